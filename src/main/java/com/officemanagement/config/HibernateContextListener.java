@@ -1,21 +1,87 @@
 package com.officemanagement.config;
 
+import com.officemanagement.index.EmployeeNameIndex;
+import com.officemanagement.index.SeatGraph;
+import com.officemanagement.util.AuditLog;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.ChangeLogFollower;
 import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.IdempotencyStore;
+import com.officemanagement.util.OccupancySampler;
+import com.officemanagement.util.StartupTimer;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 import jakarta.servlet.annotation.WebListener;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @WebListener
 public class HibernateContextListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(HibernateContextListener.class);
+
+    private ScheduledExecutorService maintenance;
+    private OccupancySampler occupancySampler;
     
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         // Initialize Hibernate when the web application starts
-        HibernateUtil.getSessionFactory();
+        try (StartupTimer.Phase phase = StartupTimer.phase("context.initialized")) {
+            SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+
+            // Hourly compaction of the change log behind GET /changes, the occupancy history
+            // and the stored Idempotency-Key responses
+            maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            maintenance.scheduleWithFixedDelay(() -> {
+                try {
+                    ChangeLog.compact(sessionFactory);
+                    occupancySampler.compact();
+                    IdempotencyStore.compact(sessionFactory);
+                } catch (RuntimeException e) {
+                    logger.warn("Hourly compaction failed", e);
+                }
+            }, 1, 60, TimeUnit.MINUTES);
+
+            // Occupancy samples behind GET /stats/history
+            occupancySampler = new OccupancySampler(sessionFactory);
+            occupancySampler.start(maintenance);
+
+            // Writes committed by other nodes invalidate the in-memory indexes below; follow the
+            // change log before loading them so none is missed
+            ChangeLogFollower.get(sessionFactory).start(maintenance);
+
+            // Typeahead index behind GET /employees/suggest
+            EmployeeNameIndex.get(sessionFactory).warmUp();
+
+            // Read replica behind the @ReplicaRead endpoints, when they are served from memory
+            if (SeatGraph.servesReads(sessionFactory)) {
+                SeatGraph.get(sessionFactory).warmUp();
+            }
+        }
     }
     
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        if (occupancySampler != null) {
+            try {
+                occupancySampler.flush();
+            } catch (RuntimeException e) {
+                logger.warn("Final occupancy flush failed", e);
+            }
+        }
+        // Write the audit events still buffered while the database is there
+        AuditLog.shutdown();
         // Clean up Hibernate resources when the web application stops
         HibernateUtil.shutdown();
     }
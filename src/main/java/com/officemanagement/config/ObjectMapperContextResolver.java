@@ -0,0 +1,20 @@
+package com.officemanagement.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.ext.ContextResolver;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Hands the application ObjectMapper to whichever Jackson provider RESTEasy selects,
+ * including its built-in ResteasyJackson2Provider, so lazy associations are always
+ * serialized through the Hibernate module.
+ */
+@Provider
+public class ObjectMapperContextResolver implements ContextResolver<ObjectMapper> {
+    private static final ObjectMapper MAPPER = RestEasyConfig.createObjectMapper();
+
+    @Override
+    public ObjectMapper getContext(Class<?> type) {
+        return MAPPER;
+    }
+}
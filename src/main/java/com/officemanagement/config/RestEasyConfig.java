@@ -1,8 +1,11 @@
 package com.officemanagement.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.jakarta.rs.json.JacksonJsonProvider;
+import com.officemanagement.util.FieldSelection;
+import com.officemanagement.util.StartupTimer;
 import jakarta.ws.rs.ApplicationPath;
 import jakarta.ws.rs.core.Application;
 import java.util.HashSet;
@@ -16,17 +19,29 @@ public class RestEasyConfig extends Application {
     public Set<Object> getSingletons() {
         Set<Object> singletons = new HashSet<>();
         
+        try (StartupTimer.Phase phase = StartupTimer.phase("jackson.object-mapper")) {
+            JacksonJsonProvider provider = new JacksonJsonProvider(createObjectMapper());
+            singletons.add(provider);
+        }
+        
+        return singletons;
+    }
+
+    // Shared with the embedded test and load-test servers so they serialize exactly like production
+    public static ObjectMapper createObjectMapper() {
         // Configure JSON serialization with JavaTimeModule
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
+        // Lazy collections that a resource did not fetch are written as null; @Transient
+        // getters such as Seat.isOccupied() are still part of the JSON
+        mapper.registerModule(new Hibernate6Module()
+            .disable(Hibernate6Module.Feature.USE_TRANSIENT_ANNOTATION));
+        // ?fields=... sparse fieldsets on entity responses
+        FieldSelection.configure(mapper);
         // Configure to write dates as ISO-8601 strings instead of timestamps
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         mapper.configure(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
-        
-        JacksonJsonProvider provider = new JacksonJsonProvider(mapper);
-        singletons.add(provider);
-        
-        return singletons;
+        return mapper;
     }
 
     @Override
@@ -38,6 +53,22 @@ public class RestEasyConfig extends Application {
         classes.add(com.officemanagement.resource.RoomResource.class);
         classes.add(com.officemanagement.resource.SeatResource.class);
         classes.add(com.officemanagement.resource.StatsResource.class);
+        classes.add(com.officemanagement.resource.BuildingResource.class);
+        classes.add(com.officemanagement.resource.ChangeResource.class);
+        classes.add(com.officemanagement.resource.ReservationResource.class);
+        classes.add(com.officemanagement.resource.AuditResource.class);
+        classes.add(com.officemanagement.resource.BatchResource.class);
+        classes.add(com.officemanagement.resource.AssignmentResource.class);
+        // Register exception mappers
+        classes.add(com.officemanagement.resource.ConstraintViolationExceptionMapper.class);
+        // Register providers
+        classes.add(ObjectMapperContextResolver.class);
+        // Register filters
+        classes.add(com.officemanagement.filter.FirstRequestTimingFilter.class);
+        classes.add(com.officemanagement.filter.RequestTracingFilter.class);
+        classes.add(com.officemanagement.filter.IdempotencyFilter.class);
+        classes.add(com.officemanagement.filter.IdempotencyFilter.InUnitOfWork.class);
+        classes.add(com.officemanagement.filter.UnitOfWorkFilter.class);
         return classes;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.officemanagement.filter;
+
+import com.officemanagement.util.StartupTimer;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Reports the time-to-first-request once; after that it's a single volatile read per request.
+ */
+@Provider
+public class FirstRequestTimingFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!StartupTimer.isFirstRequestServed()) {
+            StartupTimer.firstRequestServed();
+        }
+    }
+}
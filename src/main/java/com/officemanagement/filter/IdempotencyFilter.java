@@ -0,0 +1,272 @@
+package com.officemanagement.filter;
+
+import com.officemanagement.model.IdempotencyRecord;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.IdempotencyStore;
+import com.officemanagement.util.UnitOfWork;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.Providers;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Makes POST, PUT and DELETE requests that carry an {@code Idempotency-Key} header safe to
+ * retry: the first request with a key runs, and every later one with the same key gets its
+ * response again (status, ETag and body), marked with {@code Idempotent-Replayed: true}.
+ *
+ * A retry that arrives while the first request is still running waits for it. Server errors
+ * are not kept, so the retry after one runs for real. A key sent with a different method,
+ * path, query or body is rejected with 422.
+ *
+ * The response of a request that commits a read-write unit of work is serialized and stored
+ * by that commit ({@link InUnitOfWork}); other responses (errors, which commit nothing) are
+ * stored as they are written.
+ */
+@Provider
+public class IdempotencyFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final String CLAIM_PROPERTY = IdempotencyFilter.class.getName() + ".claim";
+    private static final String STATUS_PROPERTY = IdempotencyFilter.class.getName() + ".status";
+    private static final String ETAG_PROPERTY = IdempotencyFilter.class.getName() + ".etag";
+    private static final String STORED_PROPERTY = IdempotencyFilter.class.getName() + ".stored";
+    private static final String COMMITTED_PROPERTY = IdempotencyFilter.class.getName() + ".committed";
+
+    private final IdempotencyStore store = IdempotencyStore.get(HibernateUtil.getSessionFactory());
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        String key = request.getHeaderString(KEY_HEADER);
+        if (key == null || SAFE_METHODS.contains(request.getMethod())) {
+            return;
+        }
+        if (key.isEmpty() || key.length() > IdempotencyRecord.MAX_KEY_LENGTH) {
+            request.abortWith(Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.TEXT_PLAIN)
+                .entity(KEY_HEADER + " must be 1 to " + IdempotencyRecord.MAX_KEY_LENGTH + " characters")
+                .build());
+            return;
+        }
+
+        IdempotencyRecord pending = new IdempotencyRecord(key, fingerprint(request));
+        IdempotencyRecord existing = store.begin(pending);
+        if (existing == pending) {
+            request.setProperty(CLAIM_PROPERTY, pending);
+            return;
+        }
+
+        if (!existing.getFingerprint().equals(pending.getFingerprint())) {
+            request.abortWith(Response.status(422)
+                .type(MediaType.TEXT_PLAIN)
+                .entity("This " + KEY_HEADER + " was already used for a different request")
+                .build());
+        } else if (!existing.isCompleted()) {
+            request.abortWith(Response.status(Response.Status.CONFLICT)
+                .type(MediaType.TEXT_PLAIN)
+                .entity("A request with this " + KEY_HEADER + " is still in progress; retry later")
+                .build());
+        } else {
+            request.abortWith(replay(existing));
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        IdempotencyRecord claimed = (IdempotencyRecord) request.getProperty(CLAIM_PROPERTY);
+        if (claimed == null) {
+            return;
+        }
+        StoredResponse stored = (StoredResponse) request.getProperty(STORED_PROPERTY);
+        if (stored != null) {
+            request.removeProperty(CLAIM_PROPERTY);
+            if (request.getProperty(COMMITTED_PROPERTY) != null) {
+                store.committed(claimed, stored.status, stored.contentType, stored.etag, stored.body);
+                return;
+            }
+            if (response.getStatus() < 400) {
+                // Rolled back without an error (rollback-only): nothing to replay
+                store.release(claimed);
+                return;
+            }
+            // The commit failed; keep the error it was mapped to, as for any other error
+            request.setProperty(CLAIM_PROPERTY, claimed);
+        }
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        if (!response.hasEntity()) {
+            request.removeProperty(CLAIM_PROPERTY);
+            store.complete(claimed, response.getStatus(), null, etag, null);
+            return;
+        }
+        // The body is kept as it is written, see aroundWriteTo
+        request.setProperty(STATUS_PROPERTY, response.getStatus());
+        request.setProperty(ETAG_PROPERTY, etag);
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        IdempotencyRecord claimed = (IdempotencyRecord) context.getProperty(CLAIM_PROPERTY);
+        Integer status = (Integer) context.getProperty(STATUS_PROPERTY);
+        if (claimed == null || status == null) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(CLAIM_PROPERTY);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        context.setOutputStream(new FilterOutputStream(context.getOutputStream()) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                body.write(b, off, len);
+            }
+        });
+
+        boolean written = false;
+        try {
+            context.proceed();
+            written = true;
+        } finally {
+            if (written) {
+                MediaType type = context.getMediaType();
+                store.complete(claimed, status, type == null ? null : type.toString(),
+                    (String) context.getProperty(ETAG_PROPERTY), body.toByteArray());
+            } else {
+                store.release(claimed);
+            }
+        }
+    }
+
+    /**
+     * Stores the response of a claimed request that succeeded in a read-write unit of work as
+     * part of that unit's commit, so it is kept if and only if the work is. Its response side
+     * runs before UnitOfWorkFilter's, which commits; the body is serialized at commit time and
+     * written from the stored bytes.
+     */
+    @Provider
+    @Priority(Priorities.USER + 2000)
+    public static class InUnitOfWork implements ContainerResponseFilter {
+        private final IdempotencyStore store = IdempotencyStore.get(HibernateUtil.getSessionFactory());
+
+        @Context
+        private Providers providers;
+
+        @Override
+        public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+            IdempotencyRecord claimed = (IdempotencyRecord) request.getProperty(CLAIM_PROPERTY);
+            UnitOfWork work = UnitOfWork.current();
+            if (claimed == null || work == null || work.isReadOnly() || response.getStatus() >= 400) {
+                return;
+            }
+            request.setProperty(STORED_PROPERTY, new StoredResponse());
+            UnitOfWork.beforeCommit(session -> {
+                // After the final flush, so versions in the body and the ETag are final
+                byte[] body = response.hasEntity() ? serialize(response) : null;
+                MediaType type = response.getMediaType();
+                StoredResponse stored = (StoredResponse) request.getProperty(STORED_PROPERTY);
+                stored.status = response.getStatus();
+                stored.contentType = body == null || type == null ? null : type.toString();
+                stored.etag = response.getHeaderString(HttpHeaders.ETAG);
+                stored.body = body;
+                store.completeWith(session, claimed, stored.status, stored.contentType, stored.etag, body);
+                if (body != null) {
+                    response.setEntity(body, response.getEntityAnnotations(), type);
+                }
+            });
+            UnitOfWork.afterCommit(() -> request.setProperty(COMMITTED_PROPERTY, Boolean.TRUE));
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private byte[] serialize(ContainerResponseContext response) {
+            Object entity = response.getEntity();
+            MessageBodyWriter writer = providers.getMessageBodyWriter(response.getEntityClass(),
+                response.getEntityType(), response.getEntityAnnotations(), response.getMediaType());
+            if (writer == null) {
+                throw new IllegalStateException("No writer for " + response.getEntityClass().getName());
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try {
+                writer.writeTo(entity, response.getEntityClass(), response.getEntityType(),
+                    response.getEntityAnnotations(), response.getMediaType(), response.getHeaders(), body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return body.toByteArray();
+        }
+    }
+
+    // What InUnitOfWork stored, filled in while the unit commits
+    private static final class StoredResponse {
+        int status;
+        String contentType;
+        String etag;
+        byte[] body;
+    }
+
+    private static Response replay(IdempotencyRecord record) {
+        Response.ResponseBuilder replay = Response.status(record.getStatus())
+            .header(REPLAYED_HEADER, "true");
+        if (record.getEtag() != null) {
+            replay.header(HttpHeaders.ETAG, record.getEtag());
+        }
+        if (record.getBody() != null) {
+            replay.type(record.getContentType()).entity(record.getBody());
+        }
+        return replay.build();
+    }
+
+    // What a retry must repeat exactly: method, path, query and body
+    private static String fingerprint(ContainerRequestContext request) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        URI uri = request.getUriInfo().getRequestUri();
+        String target = request.getMethod() + " " + uri.getRawPath() + "?" + (uri.getRawQuery() == null ? "" : uri.getRawQuery());
+        digest.update(target.getBytes(StandardCharsets.UTF_8));
+        if (request.hasEntity()) {
+            // Read ahead; the resource gets the same bytes
+            byte[] body = request.getEntityStream().readAllBytes();
+            digest.update((byte) '\n');
+            digest.update(body);
+            request.setEntityStream(new ByteArrayInputStream(body));
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
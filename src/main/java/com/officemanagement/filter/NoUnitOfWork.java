@@ -0,0 +1,15 @@
+package com.officemanagement.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The resource method does not touch the database (it answers from memory), so it runs
+ * without a unit of work even when its class is @ReadOnly or @ReadWrite. See UnitOfWorkFilter.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface NoUnitOfWork {
+}
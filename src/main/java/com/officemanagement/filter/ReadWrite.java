@@ -0,0 +1,16 @@
+package com.officemanagement.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The resource method (or every method of the resource class without its own annotation)
+ * runs in a read-write unit of work: one session and transaction, committed if the response
+ * status is below 400 and rolled back otherwise. See UnitOfWorkFilter.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface ReadWrite {
+}
@@ -0,0 +1,16 @@
+package com.officemanagement.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The resource method answers from SeatGraph when officemanagement.reads.source is "memory";
+ * it then runs without a unit of work, like @NoUnitOfWork, and uses its class's mode otherwise.
+ * See UnitOfWorkFilter.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReplicaRead {
+}
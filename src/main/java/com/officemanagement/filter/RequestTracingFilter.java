@@ -0,0 +1,139 @@
+package com.officemanagement.filter;
+
+import com.officemanagement.resource.BatchResource;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.RequestTrace;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Traces every request (see {@link RequestTrace}) and reports it in a {@code Server-Timing}
+ * header, which browser dev tools show next to the request:
+ * {@code db;desc="3 statements";dur=1.20, session;dur=4.02, serialize;dur=0.81, total;dur=7.34}.
+ *
+ * The header is sent before the body is written, so serialization time is only in the trace
+ * log, unless officemanagement.trace.buffer_bodies=true: bodies are then written to a buffer
+ * first and the header has it too, at the cost of holding every body in memory.
+ * officemanagement.trace.server_timing=false turns the header off. The request id (the client's {@code X-Request-Id} if it sent a usable one) is echoed back, is in
+ * the MDC while the request runs, and starts each line of the trace log, which logs a sample
+ * of the requests (officemanagement.trace.sample_rate, 0 to 1) to com.officemanagement.trace.
+ *
+ * The lowest priority of the filters, so it wraps the others: the time of the unit of work
+ * and the idempotency store are part of the total.
+ */
+@Provider
+@Priority(Priorities.USER - 1000)
+public class RequestTracingFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final Logger traceLog = LoggerFactory.getLogger("com.officemanagement.trace");
+    private static final Pattern CLIENT_REQUEST_ID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+    private static final String TRACE_PROPERTY = RequestTracingFilter.class.getName() + ".trace";
+    private static final String STATUS_PROPERTY = RequestTracingFilter.class.getName() + ".status";
+
+    private final boolean serverTiming;
+    private final boolean bufferBodies;
+    private final double sampleRate;
+
+    public RequestTracingFilter() {
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        this.serverTiming = RequestTrace.serverTimingEnabled(sessionFactory);
+        this.bufferBodies = serverTiming && RequestTrace.bufferBodiesEnabled(sessionFactory);
+        this.sampleRate = RequestTrace.sampleRate(sessionFactory);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        // Batched sub-requests add to the trace of the batch
+        if (request.getProperty(BatchResource.SUB_REQUEST_PROPERTY) != null) {
+            return;
+        }
+        String requestId = request.getHeaderString(REQUEST_ID_HEADER);
+        if (requestId == null || !CLIENT_REQUEST_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+        request.setProperty(TRACE_PROPERTY, RequestTrace.begin(requestId, request.getMethod(),
+            request.getUriInfo().getRequestUri().getRawPath()));
+        MDC.put("requestId", requestId);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        RequestTrace trace = (RequestTrace) request.getProperty(TRACE_PROPERTY);
+        if (trace == null) {
+            return;
+        }
+        response.getHeaders().putSingle(REQUEST_ID_HEADER, trace.getRequestId());
+
+        if (serverTiming && !(bufferBodies && response.hasEntity())) {
+            response.getHeaders().putSingle(SERVER_TIMING_HEADER, trace.serverTiming(false));
+        }
+        if (response.hasEntity()) {
+            // Finished by aroundWriteTo, once the body is serialized
+            request.setProperty(STATUS_PROPERTY, response.getStatus());
+            return;
+        }
+        finish(trace, response.getStatus());
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        RequestTrace trace = (RequestTrace) context.getProperty(TRACE_PROPERTY);
+        Object status = context.getProperty(STATUS_PROPERTY);
+        if (trace == null || status == null) {
+            context.proceed();
+            return;
+        }
+
+        OutputStream out = context.getOutputStream();
+        ByteArrayOutputStream buffer = bufferBodies ? new ByteArrayOutputStream() : null;
+        try {
+            if (buffer != null) {
+                context.setOutputStream(buffer);
+            }
+            long start = System.nanoTime();
+            try {
+                context.proceed();
+            } finally {
+                trace.serialized(System.nanoTime() - start);
+                context.setOutputStream(out);
+            }
+
+            if (buffer != null) {
+                // Headers are still open: nothing has reached the real stream yet
+                context.getHeaders().putSingle(SERVER_TIMING_HEADER, trace.serverTiming(true));
+                buffer.writeTo(out);
+            }
+        } finally {
+            // Also when writing failed, so neither the trace nor the MDC entry outlives the request
+            finish(trace, (Integer) status);
+        }
+    }
+
+    private void finish(RequestTrace trace, int status) {
+        RequestTrace.unbind();
+        MDC.remove("requestId");
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate && traceLog.isInfoEnabled()) {
+            traceLog.info(trace.summary(status));
+        }
+    }
+}
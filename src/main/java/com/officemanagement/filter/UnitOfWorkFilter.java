@@ -0,0 +1,79 @@
+package com.officemanagement.filter;
+
+import com.officemanagement.index.SeatGraph;
+import com.officemanagement.resource.BatchResource;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import org.hibernate.SessionFactory;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+
+/**
+ * Opens the request's {@link UnitOfWork} right before a @ReadOnly / @ReadWrite resource method
+ * runs and ends it before the response body is written, so the connection is held for the
+ * method only and the body serializes detached entities, as it always has.
+ *
+ * Filters with a lower priority (IdempotencyFilter) run their request side before and their
+ * response side after this one: they see the response the commit really produced, including a
+ * 409 or 412 from a commit that failed. IdempotencyFilter.InUnitOfWork has a higher priority:
+ * its response side runs first and adds its write to the commit.
+ */
+@Provider
+@Priority(Priorities.USER + 1000)
+public class UnitOfWorkFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private final SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        Method method = resourceInfo.getResourceMethod();
+        // Batched sub-requests run in the batch's unit of work
+        if (method == null || request.getProperty(BatchResource.SUB_REQUEST_PROPERTY) != null
+                || method.isAnnotationPresent(NoUnitOfWork.class)
+                || (method.isAnnotationPresent(ReplicaRead.class) && SeatGraph.servesReads(sessionFactory))) {
+            return;
+        }
+        Boolean readOnly = mode(method);
+        if (readOnly == null) {
+            readOnly = mode(resourceInfo.getResourceClass());
+        }
+        if (readOnly != null) {
+            UnitOfWork.begin(sessionFactory, readOnly);
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            // A failing commit is thrown from here and mapped like any resource exception
+            work.end(response.getStatus() < 400);
+        }
+    }
+
+    // true for @ReadOnly, false for @ReadWrite, null when the element has neither
+    private static Boolean mode(AnnotatedElement element) {
+        if (element == null) {
+            return null;
+        }
+        if (element.isAnnotationPresent(ReadOnly.class)) {
+            return true;
+        }
+        if (element.isAnnotationPresent(ReadWrite.class)) {
+            return false;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,238 @@
+package com.officemanagement.index;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.Employee;
+import com.officemanagement.util.DataChanges;
+import com.officemanagement.util.TextNormalizer;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory typeahead index over employee names. Every employee has one key per word of its
+ * normalized name, running to the end of the name ("jane doe smith", "doe smith", "smith"), in
+ * one sorted array, so the employees whose name has a word starting with a prefix ("sm", or
+ * "doe s") are one binary search and a short scan away.
+ *
+ * Readers use an immutable snapshot without locking; writers build the next one and swap it in.
+ * Built at startup (HibernateContextListener) or on first use, and kept in sync from
+ * {@link DataChanges}: an employee created through POST /employees is added when its
+ * transaction commits. After an invalidation it is rebuilt on the next read; writes committed
+ * by other nodes invalidate it through ChangeLogFollower, one poll of the change log later.
+ */
+public final class EmployeeNameIndex implements DataChanges.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeNameIndex.class);
+    private static volatile EmployeeNameIndex instance;
+
+    private final SessionFactory sessionFactory;
+
+    // Null until loaded and after an invalidation; replaced, never modified, under "this"
+    private volatile Snapshot snapshot;
+
+    /** Keys in sorted order, with the employee each key belongs to at the same position. */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new Suggestion[0]);
+
+        final String[] keys;
+        final Suggestion[] employees;
+
+        Snapshot(String[] keys, Suggestion[] employees) {
+            this.keys = keys;
+            this.employees = employees;
+        }
+    }
+
+    /** An employee whose name matches the prefix. */
+    public static final class Suggestion {
+        private final long id;
+        private final String fullName;
+        private final String occupation;
+
+        Suggestion(long id, String fullName, String occupation) {
+            this.id = id;
+            this.fullName = fullName;
+            this.occupation = occupation;
+        }
+
+        public long getId() { return id; }
+        public String getFullName() { return fullName; }
+        public String getOccupation() { return occupation; }
+    }
+
+    private EmployeeNameIndex(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public static EmployeeNameIndex get(SessionFactory sessionFactory) {
+        if (instance == null) {
+            synchronized (EmployeeNameIndex.class) {
+                if (instance == null) {
+                    EmployeeNameIndex index = new EmployeeNameIndex(sessionFactory);
+                    DataChanges.addListener(index);
+                    instance = index;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Loads the index now instead of on the first read. */
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * Up to {@code limit} employees with a name word starting with the normalized prefix, in the
+     * order of the matching words; each employee once, for its first matching word.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = TextNormalizer.normalize(prefix);
+        List<Suggestion> matches = new ArrayList<>();
+        if (normalized == null || normalized.isEmpty() || limit <= 0) {
+            return matches;
+        }
+
+        Snapshot current = ensureLoaded();
+        Set<Long> seen = new HashSet<>();
+        for (int i = lowerBound(current.keys, normalized);
+                i < current.keys.length && current.keys[i].startsWith(normalized) && matches.size() < limit;
+                i++) {
+            Suggestion employee = current.employees[i];
+            if (seen.add(employee.id)) {
+                matches.add(employee);
+            }
+        }
+        return matches;
+    }
+
+    // First position whose key is not less than the prefix, i.e. the first possible match
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public synchronized void committed(List<DataChanges.EntityChange> changes) {
+        if (snapshot == null) {
+            return;
+        }
+        Set<Long> removed = new HashSet<>();
+        List<Suggestion> added = new ArrayList<>();
+        for (DataChanges.EntityChange change : changes) {
+            if (change.getEntity() instanceof Employee) {
+                Employee employee = (Employee) change.getEntity();
+                removed.add(employee.getId());
+                if (change.getOperation() != ChangeLogEntry.Operation.DELETE) {
+                    added.add(new Suggestion(employee.getId(), employee.getFullName(), employee.getOccupation()));
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            snapshot = merge(snapshot, removed, added);
+        }
+    }
+
+    @Override
+    public synchronized void invalidated() {
+        snapshot = null;
+    }
+
+    private Snapshot ensureLoaded() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Loading under the monitor: commits published meanwhile wait and are applied on top
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() {
+        long started = System.nanoTime();
+        List<Suggestion> employees = new ArrayList<>();
+        try (Session session = sessionFactory.openSession()) {
+            for (Object[] row : session.createQuery(
+                    "select e.id, e.fullName, e.occupation from Employee e", Object[].class).list()) {
+                employees.add(new Suggestion((Long) row[0], (String) row[1], (String) row[2]));
+            }
+        }
+        Snapshot loaded = merge(Snapshot.EMPTY, new HashSet<>(), employees);
+        logger.info("Loaded employee name index: {} employees, {} keys in {} ms",
+            employees.size(), loaded.keys.length, (System.nanoTime() - started) / 1_000_000);
+        return loaded;
+    }
+
+    // The keys of "base" minus those of the removed employees, plus the keys of the added ones
+    private static Snapshot merge(Snapshot base, Set<Long> removed, List<Suggestion> added) {
+        List<String> addedKeys = new ArrayList<>();
+        List<Suggestion> addedEmployees = new ArrayList<>();
+        for (Suggestion employee : added) {
+            for (String key : keys(employee.fullName)) {
+                addedKeys.add(key);
+                addedEmployees.add(employee);
+            }
+        }
+        Integer[] order = new Integer[addedKeys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(addedKeys::get));
+
+        // One pass over both sorted sequences, like the merge step of a merge sort
+        String[] keys = new String[base.keys.length + order.length];
+        Suggestion[] employees = new Suggestion[keys.length];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < base.keys.length; i++) {
+            if (removed.contains(base.employees[i].id)) {
+                continue;
+            }
+            while (next < order.length && addedKeys.get(order[next]).compareTo(base.keys[i]) < 0) {
+                keys[size] = addedKeys.get(order[next]);
+                employees[size++] = addedEmployees.get(order[next++]);
+            }
+            keys[size] = base.keys[i];
+            employees[size++] = base.employees[i];
+        }
+        while (next < order.length) {
+            keys[size] = addedKeys.get(order[next]);
+            employees[size++] = addedEmployees.get(order[next++]);
+        }
+        return new Snapshot(Arrays.copyOf(keys, size), Arrays.copyOf(employees, size));
+    }
+
+    // "Jane van Doe" -> "jane van doe", "van doe", "doe"
+    private static List<String> keys(String fullName) {
+        List<String> keys = new ArrayList<>();
+        String normalized = TextNormalizer.normalize(fullName);
+        if (normalized == null || normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int space = normalized.indexOf(' '); space >= 0; space = normalized.indexOf(' ', space + 1)) {
+            keys.add(normalized.substring(space + 1));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,290 @@
+package com.officemanagement.index;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Reservation;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.DataChanges;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory availability index: for every seat its room, floor and permanent assignment, and
+ * its reservations as a start-time ordered map of non-overlapping intervals. "Is this seat
+ * free in [start, end)?" is one floor lookup in that map.
+ *
+ * Loaded on first use and kept in sync from {@link DataChanges}; after an invalidation it is
+ * reloaded on the next read. Only reservations ending after the load time are held, so queries
+ * must not start before {@link #coversFrom()}. Writes committed by other nodes, reservations
+ * included (they advance the change log head), invalidate it through ChangeLogFollower, one
+ * poll of the change log later.
+ */
+public final class ReservationIndex implements DataChanges.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationIndex.class);
+    private static volatile ReservationIndex instance;
+
+    private final SessionFactory sessionFactory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private boolean loaded;
+    private LocalDateTime coversFrom;
+    private final Map<Long, RoomInfo> rooms = new HashMap<>();
+    private final Map<Long, SeatSlots> seats = new HashMap<>();
+    private final Map<Long, Slot> reservations = new HashMap<>();
+
+    private static final class RoomInfo {
+        Long floorId;
+        String roomNumber;
+    }
+
+    private static final class SeatSlots {
+        long id;
+        long roomId;
+        String seatNumber;
+        boolean assigned;
+        final TreeMap<LocalDateTime, Slot> slots = new TreeMap<>();
+    }
+
+    private static final class Slot {
+        final long reservationId;
+        final long seatId;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        Slot(long reservationId, long seatId, LocalDateTime start, LocalDateTime end) {
+            this.reservationId = reservationId;
+            this.seatId = seatId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** A seat that is free for the whole requested range. */
+    public static final class FreeSeat {
+        private final long seatId;
+        private final String seatNumber;
+        private final long roomId;
+        private final String roomNumber;
+        private final Long floorId;
+
+        FreeSeat(SeatSlots seat, RoomInfo room) {
+            this.seatId = seat.id;
+            this.seatNumber = seat.seatNumber;
+            this.roomId = seat.roomId;
+            this.roomNumber = room.roomNumber;
+            this.floorId = room.floorId;
+        }
+
+        public long getSeatId() { return seatId; }
+        public String getSeatNumber() { return seatNumber; }
+        public long getRoomId() { return roomId; }
+        public String getRoomNumber() { return roomNumber; }
+        public Long getFloorId() { return floorId; }
+    }
+
+    private ReservationIndex(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public static ReservationIndex get(SessionFactory sessionFactory) {
+        if (instance == null) {
+            synchronized (ReservationIndex.class) {
+                if (instance == null) {
+                    ReservationIndex index = new ReservationIndex(sessionFactory);
+                    DataChanges.addListener(index);
+                    instance = index;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Earliest start time the index answers for. */
+    public LocalDateTime coversFrom() {
+        readLockLoaded();
+        try {
+            return coversFrom;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seats without a permanent occupant and without a reservation overlapping [start, end),
+     * optionally restricted to a floor and/or room, ordered by room and seat number.
+     */
+    public List<FreeSeat> freeSeats(Long floorId, Long roomId, LocalDateTime start, LocalDateTime end) {
+        List<FreeSeat> free = new ArrayList<>();
+        readLockLoaded();
+        try {
+            for (SeatSlots seat : seats.values()) {
+                RoomInfo room = rooms.get(seat.roomId);
+                if (room == null
+                        || (roomId != null && seat.roomId != roomId)
+                        || (floorId != null && !floorId.equals(room.floorId))) {
+                    continue;
+                }
+                if (!seat.assigned && !overlaps(seat, start, end)) {
+                    free.add(new FreeSeat(seat, room));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        free.sort(Comparator.comparing(FreeSeat::getRoomNumber, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(FreeSeat::getSeatNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+        return free;
+    }
+
+    // Slots of a seat don't overlap, so only the last one starting before "end" can reach "start"
+    private static boolean overlaps(SeatSlots seat, LocalDateTime start, LocalDateTime end) {
+        Map.Entry<LocalDateTime, Slot> before = seat.slots.lowerEntry(end);
+        return before != null && before.getValue().end.isAfter(start);
+    }
+
+    @Override
+    public void committed(List<DataChanges.EntityChange> changes) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            for (DataChanges.EntityChange change : changes) {
+                Object entity = change.getEntity();
+                boolean deleted = change.getOperation() == ChangeLogEntry.Operation.DELETE;
+                if (entity instanceof Reservation) {
+                    Reservation reservation = (Reservation) entity;
+                    removeReservation(reservation.getId());
+                    if (!deleted) {
+                        addReservation(reservation.getId(), reservation.getSeat().getId(),
+                            reservation.getStartTime(), reservation.getEndTime());
+                    }
+                } else if (entity instanceof Seat) {
+                    Seat seat = (Seat) entity;
+                    if (deleted) {
+                        seats.remove(seat.getId());
+                    } else {
+                        putSeat(seat.getId(), seat.getRoom().getId(), seat.getSeatNumber(), seat.getEmployee() != null);
+                    }
+                } else if (entity instanceof OfficeRoom) {
+                    OfficeRoom room = (OfficeRoom) entity;
+                    if (deleted) {
+                        rooms.remove(room.getId());
+                    } else {
+                        putRoom(room.getId(), room.getFloor() == null ? null : room.getFloor().getId(),
+                            room.getRoomNumber());
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidated() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            rooms.clear();
+            seats.clear();
+            reservations.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Takes the read lock with the index loaded; the caller releases it. Loading downgrades the
+    // write lock to the read lock, so no invalidation can clear the maps before the caller reads
+    private void readLockLoaded() {
+        lock.readLock().lock();
+        if (loaded) {
+            return;
+        }
+        lock.readLock().unlock();
+
+        // Loading under the write lock: commits published meanwhile wait and are applied on top
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                load();
+                loaded = true;
+            }
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        try (Session session = sessionFactory.openSession()) {
+            for (Object[] row : session.createQuery(
+                    "select r.id, r.floor.id, r.roomNumber from OfficeRoom r", Object[].class).list()) {
+                putRoom((Long) row[0], (Long) row[1], (String) row[2]);
+            }
+            for (Object[] row : session.createQuery(
+                    "select s.id, s.room.id, s.seatNumber, e.id from Seat s left join s.employee e",
+                    Object[].class).list()) {
+                putSeat((Long) row[0], (Long) row[1], (String) row[2], row[3] != null);
+            }
+            for (Object[] row : session.createQuery(
+                    "select r.id, r.seat.id, r.startTime, r.endTime from Reservation r where r.endTime > :now",
+                    Object[].class)
+                    .setParameter("now", now)
+                    .list()) {
+                addReservation((Long) row[0], (Long) row[1], (LocalDateTime) row[2], (LocalDateTime) row[3]);
+            }
+        }
+        coversFrom = now;
+        logger.info("Loaded reservation index: {} rooms, {} seats, {} reservations in {} ms",
+            rooms.size(), seats.size(), reservations.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void putRoom(Long id, Long floorId, String roomNumber) {
+        RoomInfo room = rooms.computeIfAbsent(id, k -> new RoomInfo());
+        room.floorId = floorId;
+        room.roomNumber = roomNumber;
+    }
+
+    private void putSeat(Long id, Long roomId, String seatNumber, boolean assigned) {
+        SeatSlots seat = seats.computeIfAbsent(id, k -> new SeatSlots());
+        seat.id = id;
+        seat.roomId = roomId;
+        seat.seatNumber = seatNumber;
+        seat.assigned = assigned;
+    }
+
+    private void addReservation(Long id, Long seatId, LocalDateTime start, LocalDateTime end) {
+        SeatSlots seat = seats.get(seatId);
+        if (seat == null) {
+            return;
+        }
+        Slot slot = new Slot(id, seatId, start, end);
+        seat.slots.put(start, slot);
+        reservations.put(id, slot);
+    }
+
+    private void removeReservation(Long id) {
+        Slot slot = reservations.remove(id);
+        if (slot != null) {
+            SeatSlots seat = seats.get(slot.seatId);
+            if (seat != null) {
+                seat.slots.remove(slot.start, slot);
+            }
+        }
+    }
+}
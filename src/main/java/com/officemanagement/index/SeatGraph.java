@@ -0,0 +1,773 @@
+package com.officemanagement.index;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.DataChanges;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory read replica of the office graph: floors, rooms, seats, who sits where, and the
+ * employees. Each kind is a table of parallel primitive arrays sorted by id ({@code long[]}
+ * ids and versions, {@code int[]} parent indexes, a bitmap of occupied seats), and the
+ * children of a floor or room are one range of an index array, so a lookup is a binary search
+ * and a seat costs a few dozen bytes instead of an entity and its proxies.
+ *
+ * Readers take the current immutable {@link Snapshot} without locking. After a committed
+ * write the next snapshot is built and swapped in: changes to existing rows (an assignment, a
+ * rename) copy only the tables they touch and share the rest; inserts, deletes and moves
+ * rebuild the snapshot from its rows. Loaded at startup when officemanagement.reads.source is
+ * "memory" (HibernateContextListener), or on first use, and reloaded on the next read after an
+ * invalidation. Writes committed by other nodes invalidate it through ChangeLogFollower, so
+ * it trails them by one poll of the change log at most.
+ *
+ * Answers are detached entities built per call, shaped like the ones the database returns.
+ */
+public final class SeatGraph implements DataChanges.Listener {
+    /** "memory" serves the reads marked @ReplicaRead from this replica; "database" (the default) does not. */
+    public static final String READS_PROPERTY = "officemanagement.reads.source";
+    public static final String MEMORY = "memory";
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatGraph.class);
+    private static volatile SeatGraph instance;
+
+    private final SessionFactory sessionFactory;
+
+    // Null until loaded and after an invalidation; replaced, never modified, under "this"
+    private volatile Snapshot snapshot;
+
+    /** Row counts of one snapshot. */
+    public static final class Totals {
+        private final long employees;
+        private final long floors;
+        private final long rooms;
+        private final long seats;
+        private final long occupied;
+
+        Totals(long employees, long floors, long rooms, long seats, long occupied) {
+            this.employees = employees;
+            this.floors = floors;
+            this.rooms = rooms;
+            this.seats = seats;
+            this.occupied = occupied;
+        }
+
+        public long getEmployees() { return employees; }
+        public long getFloors() { return floors; }
+        public long getRooms() { return rooms; }
+        public long getSeats() { return seats; }
+        public long getOccupied() { return occupied; }
+    }
+
+    private SeatGraph(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public static SeatGraph get(SessionFactory sessionFactory) {
+        if (instance == null) {
+            synchronized (SeatGraph.class) {
+                if (instance == null) {
+                    SeatGraph graph = new SeatGraph(sessionFactory);
+                    DataChanges.addListener(graph);
+                    instance = graph;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Whether reads marked @ReplicaRead are served from the replica rather than the database. */
+    public static boolean servesReads(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(READS_PROPERTY);
+        return value != null && MEMORY.equalsIgnoreCase(value.toString().trim());
+    }
+
+    /** Loads the replica now instead of on the first read. */
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /** The floor, with its rooms if {@code rooms} and their seats if {@code seats}; null if unknown. */
+    public Floor floor(long id, boolean rooms, boolean seats) {
+        Snapshot current = ensureLoaded();
+        int f = Arrays.binarySearch(current.floors.ids, id);
+        if (f < 0) {
+            return null;
+        }
+        Floor floor = current.floor(f);
+        if (rooms) {
+            Set<OfficeRoom> floorRooms = new LinkedHashSet<>();
+            for (int i = current.floorRoomStart[f]; i < current.floorRoomStart[f + 1]; i++) {
+                int r = current.floorRooms[i];
+                OfficeRoom room = current.room(r, floor);
+                if (seats) {
+                    room.setSeats(current.seats(r, room));
+                }
+                floorRooms.add(room);
+            }
+            floor.setRooms(floorRooms);
+        }
+        return floor;
+    }
+
+    /** The room with its floor, and its seats if {@code seats}; null if unknown. */
+    public OfficeRoom room(long id, boolean seats) {
+        Snapshot current = ensureLoaded();
+        int r = Arrays.binarySearch(current.rooms.ids, id);
+        if (r < 0) {
+            return null;
+        }
+        OfficeRoom room = current.room(r);
+        if (seats) {
+            room.setSeats(current.seats(r, room));
+        }
+        return room;
+    }
+
+    /** The seats of the room, each with the room and its occupant; null if the room is unknown. */
+    public List<Seat> roomSeats(long roomId) {
+        Snapshot current = ensureLoaded();
+        int r = Arrays.binarySearch(current.rooms.ids, roomId);
+        return r < 0 ? null : current.seats(r, current.room(r));
+    }
+
+    /** The seat with its room, floor and occupant; null if unknown. */
+    public Seat seat(long id) {
+        Snapshot current = ensureLoaded();
+        int s = Arrays.binarySearch(current.seats.ids, id);
+        if (s < 0) {
+            return null;
+        }
+        int r = current.seats.rooms[s];
+        return current.seat(s, r < 0 ? null : current.room(r));
+    }
+
+    public Totals totals() {
+        Snapshot current = ensureLoaded();
+        long occupied = 0;
+        for (long word : current.seats.occupied) {
+            occupied += Long.bitCount(word);
+        }
+        return new Totals(current.employees.ids.length, current.floors.ids.length, current.rooms.ids.length,
+            current.seats.ids.length, occupied);
+    }
+
+    @Override
+    public synchronized void committed(List<DataChanges.EntityChange> changes) {
+        if (snapshot == null) {
+            return;
+        }
+        Changes rows = new Changes();
+        for (DataChanges.EntityChange change : changes) {
+            rows.add(change.getEntity(), change.getOperation() == ChangeLogEntry.Operation.DELETE);
+        }
+        if (!rows.isEmpty()) {
+            Snapshot patched = snapshot.patch(rows);
+            snapshot = patched != null ? patched : new Builder(snapshot).apply(rows).build();
+        }
+    }
+
+    @Override
+    public synchronized void invalidated() {
+        snapshot = null;
+    }
+
+    private Snapshot ensureLoaded() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Loading under the monitor: commits published meanwhile wait and are applied on top
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() {
+        long started = System.nanoTime();
+        Builder builder = new Builder();
+        try (Session session = sessionFactory.openSession()) {
+            session.setDefaultReadOnly(true);
+            for (Object[] row : session.createQuery(
+                    "select f.id, f.version, f.name, f.floorNumber from Floor f", Object[].class).list()) {
+                builder.floors.put((Long) row[0],
+                    new FloorRow((Long) row[0], (Long) row[1], (String) row[2], (Integer) row[3]));
+            }
+            for (Object[] row : session.createQuery(
+                    "select r.id, r.version, r.floor.id, r.roomNumber, r.name, r.x, r.y from OfficeRoom r",
+                    Object[].class).list()) {
+                builder.rooms.put((Long) row[0], new RoomRow((Long) row[0], (Long) row[1], (Long) row[2],
+                    (String) row[3], (String) row[4], (Double) row[5], (Double) row[6]));
+            }
+            for (Object[] row : session.createQuery(
+                    "select s.id, s.version, s.room.id, s.seatNumber, s.x, s.y, s.employee.id from Seat s",
+                    Object[].class).list()) {
+                builder.seats.put((Long) row[0], new SeatRow((Long) row[0], (Long) row[1], (Long) row[2],
+                    (String) row[3], (Double) row[4], (Double) row[5], (Long) row[6]));
+            }
+            for (Object[] row : session.createQuery(
+                    "select e.id, e.version, e.fullName, e.occupation from Employee e", Object[].class).list()) {
+                builder.employees.put((Long) row[0],
+                    new EmployeeRow((Long) row[0], (Long) row[1], (String) row[2], (String) row[3]));
+            }
+        }
+        Snapshot loaded = builder.build();
+        logger.info("Loaded seat graph: {} floors, {} rooms, {} seats, {} employees in {} ms",
+            loaded.floors.ids.length, loaded.rooms.ids.length, loaded.seats.ids.length,
+            loaded.employees.ids.length, (System.nanoTime() - started) / 1_000_000);
+        return loaded;
+    }
+
+    // Positions are NaN in the tables when the column is null
+    private static double position(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    private static Double position(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static long version(Long version) {
+        return version == null ? 0 : version;
+    }
+
+    private static final class FloorTable {
+        final long[] ids;
+        final long[] versions;
+        final String[] names;
+        final Integer[] numbers;
+
+        FloorTable(int size) {
+            ids = new long[size];
+            versions = new long[size];
+            names = new String[size];
+            numbers = new Integer[size];
+        }
+
+        FloorTable(FloorTable other) {
+            ids = other.ids;
+            versions = other.versions.clone();
+            names = other.names.clone();
+            numbers = other.numbers.clone();
+        }
+
+        void set(int f, FloorRow row) {
+            ids[f] = row.id;
+            versions[f] = row.version;
+            names[f] = row.name;
+            numbers[f] = row.floorNumber;
+        }
+    }
+
+    private static final class RoomTable {
+        final long[] ids;
+        final long[] versions;
+        final int[] floors;
+        final String[] numbers;
+        final String[] names;
+        final double[] xs;
+        final double[] ys;
+
+        RoomTable(int size) {
+            ids = new long[size];
+            versions = new long[size];
+            floors = new int[size];
+            numbers = new String[size];
+            names = new String[size];
+            xs = new double[size];
+            ys = new double[size];
+        }
+
+        // Same ids and parents: a patch never moves a room
+        RoomTable(RoomTable other) {
+            ids = other.ids;
+            floors = other.floors;
+            versions = other.versions.clone();
+            numbers = other.numbers.clone();
+            names = other.names.clone();
+            xs = other.xs.clone();
+            ys = other.ys.clone();
+        }
+
+        void set(int r, RoomRow row) {
+            ids[r] = row.id;
+            versions[r] = row.version;
+            numbers[r] = row.roomNumber;
+            names[r] = row.name;
+            xs[r] = position(row.x);
+            ys[r] = position(row.y);
+        }
+    }
+
+    private static final class SeatTable {
+        final long[] ids;
+        final long[] versions;
+        final int[] rooms;
+        final String[] numbers;
+        final double[] xs;
+        final double[] ys;
+        // Employee id per seat, 0 when free, and the same as a bitmap
+        final long[] occupants;
+        final long[] occupied;
+
+        SeatTable(int size) {
+            ids = new long[size];
+            versions = new long[size];
+            rooms = new int[size];
+            numbers = new String[size];
+            xs = new double[size];
+            ys = new double[size];
+            occupants = new long[size];
+            occupied = new long[(size + 63) >>> 6];
+        }
+
+        SeatTable(SeatTable other) {
+            ids = other.ids;
+            rooms = other.rooms;
+            versions = other.versions.clone();
+            numbers = other.numbers.clone();
+            xs = other.xs.clone();
+            ys = other.ys.clone();
+            occupants = other.occupants.clone();
+            occupied = other.occupied.clone();
+        }
+
+        void set(int s, SeatRow row) {
+            ids[s] = row.id;
+            versions[s] = row.version;
+            numbers[s] = row.seatNumber;
+            xs[s] = position(row.x);
+            ys[s] = position(row.y);
+            occupants[s] = row.employeeId == null ? 0 : row.employeeId;
+            if (row.employeeId == null) {
+                occupied[s >>> 6] &= ~(1L << s);
+            } else {
+                occupied[s >>> 6] |= 1L << s;
+            }
+        }
+
+        boolean isOccupied(int s) {
+            return (occupied[s >>> 6] & (1L << s)) != 0;
+        }
+    }
+
+    private static final class EmployeeTable {
+        final long[] ids;
+        final long[] versions;
+        final String[] fullNames;
+        final String[] occupations;
+
+        EmployeeTable(int size) {
+            ids = new long[size];
+            versions = new long[size];
+            fullNames = new String[size];
+            occupations = new String[size];
+        }
+
+        EmployeeTable(EmployeeTable other) {
+            ids = other.ids;
+            versions = other.versions.clone();
+            fullNames = other.fullNames.clone();
+            occupations = other.occupations.clone();
+        }
+
+        void set(int e, EmployeeRow row) {
+            ids[e] = row.id;
+            versions[e] = row.version;
+            fullNames[e] = row.fullName;
+            occupations[e] = row.occupation;
+        }
+    }
+
+    /** One immutable version of the graph. Tables are shared between snapshots, never modified once published. */
+    private static final class Snapshot {
+        final FloorTable floors;
+        final RoomTable rooms;
+        final SeatTable seats;
+        final EmployeeTable employees;
+        // floorRooms[floorRoomStart[f] .. floorRoomStart[f + 1]) are the rooms of floor f, by id
+        final int[] floorRoomStart;
+        final int[] floorRooms;
+        // Likewise the seats of room r
+        final int[] roomSeatStart;
+        final int[] roomSeats;
+
+        Snapshot(FloorTable floors, RoomTable rooms, SeatTable seats, EmployeeTable employees,
+                 int[] floorRoomStart, int[] floorRooms, int[] roomSeatStart, int[] roomSeats) {
+            this.floors = floors;
+            this.rooms = rooms;
+            this.seats = seats;
+            this.employees = employees;
+            this.floorRoomStart = floorRoomStart;
+            this.floorRooms = floorRooms;
+            this.roomSeatStart = roomSeatStart;
+            this.roomSeats = roomSeats;
+        }
+
+        /**
+         * The snapshot with the changed rows written over copies of their tables, or null when
+         * a change adds, removes or moves a row, which the index arrays cannot follow.
+         */
+        Snapshot patch(Changes changes) {
+            if (!changes.deleted.isEmpty()) {
+                return null;
+            }
+            for (FloorRow row : changes.floors.values()) {
+                if (Arrays.binarySearch(floors.ids, row.id) < 0) {
+                    return null;
+                }
+            }
+            for (RoomRow row : changes.rooms.values()) {
+                int r = Arrays.binarySearch(rooms.ids, row.id);
+                if (r < 0 || rooms.floors[r] != parent(floors.ids, row.floorId)) {
+                    return null;
+                }
+            }
+            for (SeatRow row : changes.seats.values()) {
+                int s = Arrays.binarySearch(seats.ids, row.id);
+                if (s < 0 || seats.rooms[s] != parent(rooms.ids, row.roomId)) {
+                    return null;
+                }
+            }
+            for (EmployeeRow row : changes.employees.values()) {
+                if (Arrays.binarySearch(employees.ids, row.id) < 0) {
+                    return null;
+                }
+            }
+
+            FloorTable patchedFloors = floors;
+            if (!changes.floors.isEmpty()) {
+                patchedFloors = new FloorTable(floors);
+                for (FloorRow row : changes.floors.values()) {
+                    patchedFloors.set(Arrays.binarySearch(floors.ids, row.id), row);
+                }
+            }
+            RoomTable patchedRooms = rooms;
+            if (!changes.rooms.isEmpty()) {
+                patchedRooms = new RoomTable(rooms);
+                for (RoomRow row : changes.rooms.values()) {
+                    patchedRooms.set(Arrays.binarySearch(rooms.ids, row.id), row);
+                }
+            }
+            SeatTable patchedSeats = seats;
+            if (!changes.seats.isEmpty()) {
+                patchedSeats = new SeatTable(seats);
+                for (SeatRow row : changes.seats.values()) {
+                    patchedSeats.set(Arrays.binarySearch(seats.ids, row.id), row);
+                }
+            }
+            EmployeeTable patchedEmployees = employees;
+            if (!changes.employees.isEmpty()) {
+                patchedEmployees = new EmployeeTable(employees);
+                for (EmployeeRow row : changes.employees.values()) {
+                    patchedEmployees.set(Arrays.binarySearch(employees.ids, row.id), row);
+                }
+            }
+            return new Snapshot(patchedFloors, patchedRooms, patchedSeats, patchedEmployees,
+                floorRoomStart, floorRooms, roomSeatStart, roomSeats);
+        }
+
+        Floor floor(int f) {
+            Floor floor = new Floor(floors.ids[f], floors.names[f], floors.numbers[f]);
+            floor.setVersion(floors.versions[f]);
+            return floor;
+        }
+
+        OfficeRoom room(int r) {
+            int f = rooms.floors[r];
+            return room(r, f < 0 ? null : floor(f));
+        }
+
+        OfficeRoom room(int r, Floor floor) {
+            OfficeRoom room = new OfficeRoom();
+            room.setId(rooms.ids[r]);
+            room.setVersion(rooms.versions[r]);
+            room.setFloor(floor);
+            room.setRoomNumber(rooms.numbers[r]);
+            room.setName(rooms.names[r]);
+            room.setX(position(rooms.xs[r]));
+            room.setY(position(rooms.ys[r]));
+            return room;
+        }
+
+        List<Seat> seats(int r, OfficeRoom room) {
+            List<Seat> roomSeatList = new ArrayList<>(roomSeatStart[r + 1] - roomSeatStart[r]);
+            for (int i = roomSeatStart[r]; i < roomSeatStart[r + 1]; i++) {
+                roomSeatList.add(seat(roomSeats[i], room));
+            }
+            return roomSeatList;
+        }
+
+        Seat seat(int s, OfficeRoom room) {
+            Seat seat = new Seat();
+            seat.setId(seats.ids[s]);
+            seat.setVersion(seats.versions[s]);
+            seat.setRoom(room);
+            seat.setSeatNumber(seats.numbers[s]);
+            seat.setX(position(seats.xs[s]));
+            seat.setY(position(seats.ys[s]));
+            if (seats.isOccupied(s)) {
+                int e = Arrays.binarySearch(employees.ids, seats.occupants[s]);
+                if (e >= 0) {
+                    Employee employee = new Employee();
+                    employee.setId(employees.ids[e]);
+                    employee.setVersion(employees.versions[e]);
+                    employee.setFullName(employees.fullNames[e]);
+                    employee.setOccupation(employees.occupations[e]);
+                    seat.setEmployee(employee);
+                }
+            }
+            return seat;
+        }
+
+        // Index of the parent in its sorted ids, -1 for none or an unknown one
+        static int parent(long[] ids, Long id) {
+            if (id == null) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(ids, id);
+            return index < 0 ? -1 : index;
+        }
+    }
+
+    private static final class FloorRow {
+        final long id;
+        final long version;
+        final String name;
+        final Integer floorNumber;
+
+        FloorRow(long id, Long version, String name, Integer floorNumber) {
+            this.id = id;
+            this.version = version(version);
+            this.name = name;
+            this.floorNumber = floorNumber;
+        }
+    }
+
+    private static final class RoomRow {
+        final long id;
+        final long version;
+        final Long floorId;
+        final String roomNumber;
+        final String name;
+        final Double x;
+        final Double y;
+
+        RoomRow(long id, Long version, Long floorId, String roomNumber, String name, Double x, Double y) {
+            this.id = id;
+            this.version = version(version);
+            this.floorId = floorId;
+            this.roomNumber = roomNumber;
+            this.name = name;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final class SeatRow {
+        final long id;
+        final long version;
+        final Long roomId;
+        final String seatNumber;
+        final Double x;
+        final Double y;
+        final Long employeeId;
+
+        SeatRow(long id, Long version, Long roomId, String seatNumber, Double x, Double y, Long employeeId) {
+            this.id = id;
+            this.version = version(version);
+            this.roomId = roomId;
+            this.seatNumber = seatNumber;
+            this.x = x;
+            this.y = y;
+            this.employeeId = employeeId;
+        }
+    }
+
+    private static final class EmployeeRow {
+        final long id;
+        final long version;
+        final String fullName;
+        final String occupation;
+
+        EmployeeRow(long id, Long version, String fullName, String occupation) {
+            this.id = id;
+            this.version = version(version);
+            this.fullName = fullName;
+            this.occupation = occupation;
+        }
+    }
+
+    /** The rows one commit wrote, as they are now, and the ones it deleted. */
+    private static final class Changes {
+        final Map<Long, FloorRow> floors = new TreeMap<>();
+        final Map<Long, RoomRow> rooms = new TreeMap<>();
+        final Map<Long, SeatRow> seats = new TreeMap<>();
+        final Map<Long, EmployeeRow> employees = new TreeMap<>();
+        final List<Object> deleted = new ArrayList<>();
+
+        void add(Object entity, boolean delete) {
+            if (!(entity instanceof Floor || entity instanceof OfficeRoom || entity instanceof Seat
+                    || entity instanceof Employee)) {
+                return;
+            }
+            if (delete) {
+                deleted.add(entity);
+            } else if (entity instanceof Floor) {
+                Floor floor = (Floor) entity;
+                floors.put(floor.getId(),
+                    new FloorRow(floor.getId(), floor.getVersion(), floor.getName(), floor.getFloorNumber()));
+            } else if (entity instanceof OfficeRoom) {
+                OfficeRoom room = (OfficeRoom) entity;
+                rooms.put(room.getId(), new RoomRow(room.getId(), room.getVersion(),
+                    room.getFloor() == null ? null : room.getFloor().getId(),
+                    room.getRoomNumber(), room.getName(), room.getX(), room.getY()));
+            } else if (entity instanceof Seat) {
+                Seat seat = (Seat) entity;
+                Employee employee = seat.getEmployee();
+                seats.put(seat.getId(), new SeatRow(seat.getId(), seat.getVersion(),
+                    seat.getRoom() == null ? null : seat.getRoom().getId(), seat.getSeatNumber(),
+                    seat.getX(), seat.getY(), employee == null ? null : employee.getId()));
+                // A forced version increment on the occupant is not a change of its own
+                if (employee != null) {
+                    addEmployee(employee);
+                }
+            } else {
+                addEmployee((Employee) entity);
+            }
+        }
+
+        private void addEmployee(Employee employee) {
+            employees.put(employee.getId(), new EmployeeRow(employee.getId(), employee.getVersion(),
+                employee.getFullName(), employee.getOccupation()));
+        }
+
+        boolean isEmpty() {
+            return floors.isEmpty() && rooms.isEmpty() && seats.isEmpty() && employees.isEmpty() && deleted.isEmpty();
+        }
+    }
+
+    /** Rows by id, turned into a snapshot by {@link #build()}. */
+    private static final class Builder {
+        final Map<Long, FloorRow> floors = new TreeMap<>();
+        final Map<Long, RoomRow> rooms = new TreeMap<>();
+        final Map<Long, SeatRow> seats = new TreeMap<>();
+        final Map<Long, EmployeeRow> employees = new TreeMap<>();
+
+        Builder() {
+        }
+
+        Builder(Snapshot snapshot) {
+            FloorTable f = snapshot.floors;
+            for (int i = 0; i < f.ids.length; i++) {
+                floors.put(f.ids[i], new FloorRow(f.ids[i], f.versions[i], f.names[i], f.numbers[i]));
+            }
+            RoomTable r = snapshot.rooms;
+            for (int i = 0; i < r.ids.length; i++) {
+                Long floorId = r.floors[i] < 0 ? null : f.ids[r.floors[i]];
+                rooms.put(r.ids[i], new RoomRow(r.ids[i], r.versions[i], floorId, r.numbers[i], r.names[i],
+                    position(r.xs[i]), position(r.ys[i])));
+            }
+            SeatTable s = snapshot.seats;
+            for (int i = 0; i < s.ids.length; i++) {
+                Long roomId = s.rooms[i] < 0 ? null : r.ids[s.rooms[i]];
+                Long employeeId = s.isOccupied(i) ? s.occupants[i] : null;
+                seats.put(s.ids[i], new SeatRow(s.ids[i], s.versions[i], roomId, s.numbers[i],
+                    position(s.xs[i]), position(s.ys[i]), employeeId));
+            }
+            EmployeeTable e = snapshot.employees;
+            for (int i = 0; i < e.ids.length; i++) {
+                employees.put(e.ids[i], new EmployeeRow(e.ids[i], e.versions[i], e.fullNames[i], e.occupations[i]));
+            }
+        }
+
+        Builder apply(Changes changes) {
+            floors.putAll(changes.floors);
+            rooms.putAll(changes.rooms);
+            seats.putAll(changes.seats);
+            employees.putAll(changes.employees);
+            for (Object entity : changes.deleted) {
+                if (entity instanceof Floor) {
+                    floors.remove(((Floor) entity).getId());
+                } else if (entity instanceof OfficeRoom) {
+                    rooms.remove(((OfficeRoom) entity).getId());
+                } else if (entity instanceof Seat) {
+                    seats.remove(((Seat) entity).getId());
+                } else {
+                    employees.remove(((Employee) entity).getId());
+                }
+            }
+            return this;
+        }
+
+        Snapshot build() {
+            // TreeMaps iterate in id order: every table comes out sorted
+            FloorTable floorTable = new FloorTable(floors.size());
+            int f = 0;
+            for (FloorRow row : floors.values()) {
+                floorTable.set(f++, row);
+            }
+            RoomTable roomTable = new RoomTable(rooms.size());
+            int r = 0;
+            for (RoomRow row : rooms.values()) {
+                roomTable.set(r, row);
+                roomTable.floors[r++] = Snapshot.parent(floorTable.ids, row.floorId);
+            }
+            SeatTable seatTable = new SeatTable(seats.size());
+            int s = 0;
+            for (SeatRow row : seats.values()) {
+                seatTable.set(s, row);
+                seatTable.rooms[s++] = Snapshot.parent(roomTable.ids, row.roomId);
+            }
+            EmployeeTable employeeTable = new EmployeeTable(employees.size());
+            int e = 0;
+            for (EmployeeRow row : employees.values()) {
+                employeeTable.set(e++, row);
+            }
+
+            int[] floorRoomStart = new int[floorTable.ids.length + 1];
+            int[] floorRooms = group(roomTable.floors, floorRoomStart);
+            int[] roomSeatStart = new int[roomTable.ids.length + 1];
+            int[] roomSeats = group(seatTable.rooms, roomSeatStart);
+            return new Snapshot(floorTable, roomTable, seatTable, employeeTable,
+                floorRoomStart, floorRooms, roomSeatStart, roomSeats);
+        }
+
+        // Children grouped by parent (a counting sort, stable so each group stays in id order);
+        // fills "start" with where each parent's group begins. Children without a parent are left out.
+        private static int[] group(int[] parents, int[] start) {
+            for (int parent : parents) {
+                if (parent >= 0) {
+                    start[parent + 1]++;
+                }
+            }
+            for (int i = 1; i < start.length; i++) {
+                start[i] += start[i - 1];
+            }
+            int[] grouped = new int[start[start.length - 1]];
+            int[] next = Arrays.copyOf(start, start.length - 1);
+            for (int child = 0; child < parents.length; child++) {
+                if (parents[child] >= 0) {
+                    grouped[next[parents[child]]++] = child;
+                }
+            }
+            return grouped;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.officemanagement.index;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.DataChanges;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory spatial index of seat positions: per floor, a uniform grid of square cells
+ * (officemanagement.seats.grid_cell_size, in floor plan units, 5 by default) listing the seats
+ * whose floor position falls in them. "Seats within r of this one" reads only the cells the
+ * circle overlaps, whatever the size of the floor.
+ *
+ * A seat's floor position is its room's position plus its own; seats without a position are
+ * known but not in the grid. Loaded on first use and kept in sync from {@link DataChanges}
+ * (moving a room moves its seats); after an invalidation it is reloaded on the next read.
+ * Writes committed by other nodes invalidate it through ChangeLogFollower, one poll of the
+ * change log later.
+ */
+public final class SeatGridIndex implements DataChanges.Listener {
+    public static final String CELL_SIZE_PROPERTY = "officemanagement.seats.grid_cell_size";
+    public static final double DEFAULT_CELL_SIZE = 5.0;
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatGridIndex.class);
+    private static volatile SeatGridIndex instance;
+
+    private final SessionFactory sessionFactory;
+    private final double cellSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private boolean loaded;
+    private final Map<Long, RoomInfo> rooms = new HashMap<>();
+    private final Map<Long, SeatInfo> seats = new HashMap<>();
+    private final Map<Long, Set<Long>> seatsByRoom = new HashMap<>();
+    private final Map<Long, Map<Long, List<SeatInfo>>> grids = new HashMap<>();
+
+    private static final class RoomInfo {
+        Long floorId;
+        String roomNumber;
+        double x;
+        double y;
+    }
+
+    private static final class SeatInfo {
+        long id;
+        long roomId;
+        String seatNumber;
+        Double x;
+        Double y;
+        boolean occupied;
+
+        // Set while the seat is in a grid
+        Long floorId;
+        long cell;
+        double floorX;
+        double floorY;
+    }
+
+    /** A seat near the one asked about, with its floor position and distance. */
+    public static final class NearbySeat {
+        private final long seatId;
+        private final String seatNumber;
+        private final long roomId;
+        private final String roomNumber;
+        private final Long floorId;
+        private final double x;
+        private final double y;
+        private final double distance;
+        private final boolean occupied;
+
+        NearbySeat(SeatInfo seat, RoomInfo room, double distance) {
+            this.seatId = seat.id;
+            this.seatNumber = seat.seatNumber;
+            this.roomId = seat.roomId;
+            this.roomNumber = room == null ? null : room.roomNumber;
+            this.floorId = seat.floorId;
+            this.x = seat.floorX;
+            this.y = seat.floorY;
+            this.distance = distance;
+            this.occupied = seat.occupied;
+        }
+
+        public long getSeatId() { return seatId; }
+        public String getSeatNumber() { return seatNumber; }
+        public long getRoomId() { return roomId; }
+        public String getRoomNumber() { return roomNumber; }
+        public Long getFloorId() { return floorId; }
+        public double getX() { return x; }
+        public double getY() { return y; }
+        public double getDistance() { return distance; }
+        public boolean isOccupied() { return occupied; }
+    }
+
+    /** Thrown for a seat that exists but has no position on a floor. */
+    public static final class UnplacedSeatException extends RuntimeException {
+        UnplacedSeatException(long seatId) {
+            super("Seat " + seatId + " has no position");
+        }
+    }
+
+    private SeatGridIndex(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        Object value = sessionFactory.getProperties().get(CELL_SIZE_PROPERTY);
+        this.cellSize = value == null ? DEFAULT_CELL_SIZE : Double.parseDouble(value.toString().trim());
+    }
+
+    public static SeatGridIndex get(SessionFactory sessionFactory) {
+        if (instance == null) {
+            synchronized (SeatGridIndex.class) {
+                if (instance == null) {
+                    SeatGridIndex index = new SeatGridIndex(sessionFactory);
+                    DataChanges.addListener(index);
+                    instance = index;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Up to {@code limit} other seats on the same floor within {@code radius} of the seat,
+     * nearest first, only unoccupied ones if {@code freeOnly}. Null when the seat does not
+     * exist; {@link UnplacedSeatException} when it has no position.
+     */
+    public List<NearbySeat> nearby(long seatId, double radius, boolean freeOnly, int limit) {
+        List<NearbySeat> nearby = new ArrayList<>();
+        readLockLoaded();
+        try {
+            SeatInfo origin = seats.get(seatId);
+            if (origin == null) {
+                return null;
+            }
+            if (origin.floorId == null) {
+                throw new UnplacedSeatException(seatId);
+            }
+            Map<Long, List<SeatInfo>> grid = grids.get(origin.floorId);
+            int minX = cellCoordinate(origin.floorX - radius);
+            int maxX = cellCoordinate(origin.floorX + radius);
+            int minY = cellCoordinate(origin.floorY - radius);
+            int maxY = cellCoordinate(origin.floorY + radius);
+
+            // More cells in the circle's bounding box than occupied ones on the floor: scan those
+            Collection<List<SeatInfo>> cells;
+            if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) > grid.size()) {
+                cells = grid.values();
+            } else {
+                cells = new ArrayList<>();
+                for (int cx = minX; cx <= maxX; cx++) {
+                    for (int cy = minY; cy <= maxY; cy++) {
+                        List<SeatInfo> cell = grid.get(cellKey(cx, cy));
+                        if (cell != null) {
+                            cells.add(cell);
+                        }
+                    }
+                }
+            }
+
+            for (List<SeatInfo> cell : cells) {
+                for (SeatInfo seat : cell) {
+                    if (seat.id == seatId || (freeOnly && seat.occupied)) {
+                        continue;
+                    }
+                    double distance = Math.hypot(seat.floorX - origin.floorX, seat.floorY - origin.floorY);
+                    if (distance <= radius) {
+                        nearby.add(new NearbySeat(seat, rooms.get(seat.roomId), distance));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        nearby.sort(Comparator.comparingDouble(NearbySeat::getDistance).thenComparingLong(NearbySeat::getSeatId));
+        return nearby.size() > limit ? new ArrayList<>(nearby.subList(0, limit)) : nearby;
+    }
+
+    @Override
+    public void committed(List<DataChanges.EntityChange> changes) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            for (DataChanges.EntityChange change : changes) {
+                Object entity = change.getEntity();
+                boolean deleted = change.getOperation() == ChangeLogEntry.Operation.DELETE;
+                if (entity instanceof Seat) {
+                    Seat seat = (Seat) entity;
+                    if (deleted) {
+                        removeSeat(seat.getId());
+                    } else {
+                        putSeat(seat.getId(), seat.getRoom().getId(), seat.getSeatNumber(), seat.getX(), seat.getY(),
+                            seat.getEmployee() != null);
+                    }
+                } else if (entity instanceof OfficeRoom) {
+                    OfficeRoom room = (OfficeRoom) entity;
+                    if (deleted) {
+                        rooms.remove(room.getId());
+                    } else {
+                        putRoom(room.getId(), room.getFloor() == null ? null : room.getFloor().getId(),
+                            room.getRoomNumber(), room.getX(), room.getY());
+                    }
+                    // The seats of a moved (or deleted) room move with it
+                    for (Long seatId : seatsByRoom.getOrDefault(room.getId(), new HashSet<>())) {
+                        place(seats.get(seatId));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidated() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            rooms.clear();
+            seats.clear();
+            seatsByRoom.clear();
+            grids.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Takes the read lock with the index loaded; the caller releases it. Loading downgrades the
+    // write lock to the read lock, so no invalidation can clear the maps before the caller reads
+    private void readLockLoaded() {
+        lock.readLock().lock();
+        if (loaded) {
+            return;
+        }
+        lock.readLock().unlock();
+
+        // Loading under the write lock: commits published meanwhile wait and are applied on top
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                load();
+                loaded = true;
+            }
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        try (Session session = sessionFactory.openSession()) {
+            for (Object[] row : session.createQuery(
+                    "select r.id, r.floor.id, r.roomNumber, r.x, r.y from OfficeRoom r", Object[].class).list()) {
+                putRoom((Long) row[0], (Long) row[1], (String) row[2], (Double) row[3], (Double) row[4]);
+            }
+            for (Object[] row : session.createQuery(
+                    "select s.id, s.room.id, s.seatNumber, s.x, s.y, e.id from Seat s left join s.employee e",
+                    Object[].class).list()) {
+                putSeat((Long) row[0], (Long) row[1], (String) row[2], (Double) row[3], (Double) row[4],
+                    row[5] != null);
+            }
+        }
+        int cells = 0;
+        for (Map<Long, List<SeatInfo>> grid : grids.values()) {
+            cells += grid.size();
+        }
+        logger.info("Loaded seat grid index: {} seats on {} floors in {} cells in {} ms",
+            seats.size(), grids.size(), cells, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void putRoom(Long id, Long floorId, String roomNumber, Double x, Double y) {
+        RoomInfo room = rooms.computeIfAbsent(id, k -> new RoomInfo());
+        room.floorId = floorId;
+        room.roomNumber = roomNumber;
+        room.x = x == null ? 0 : x;
+        room.y = y == null ? 0 : y;
+    }
+
+    private void putSeat(Long id, Long roomId, String seatNumber, Double x, Double y, boolean occupied) {
+        SeatInfo seat = seats.get(id);
+        if (seat == null) {
+            seat = new SeatInfo();
+            seat.id = id;
+            seats.put(id, seat);
+        } else if (seat.roomId != roomId) {
+            seatsByRoom.getOrDefault(seat.roomId, new HashSet<>()).remove(id);
+        }
+        seat.roomId = roomId;
+        seat.seatNumber = seatNumber;
+        seat.x = x;
+        seat.y = y;
+        seat.occupied = occupied;
+        seatsByRoom.computeIfAbsent(roomId, k -> new HashSet<>()).add(id);
+        place(seat);
+    }
+
+    private void removeSeat(Long id) {
+        SeatInfo seat = seats.remove(id);
+        if (seat != null) {
+            unplace(seat);
+            seatsByRoom.getOrDefault(seat.roomId, new HashSet<>()).remove(id);
+        }
+    }
+
+    // (Re)computes the seat's floor position and moves it to its cell
+    private void place(SeatInfo seat) {
+        unplace(seat);
+        RoomInfo room = rooms.get(seat.roomId);
+        if (room == null || room.floorId == null || seat.x == null || seat.y == null) {
+            return;
+        }
+        seat.floorId = room.floorId;
+        seat.floorX = room.x + seat.x;
+        seat.floorY = room.y + seat.y;
+        seat.cell = cellKey(cellCoordinate(seat.floorX), cellCoordinate(seat.floorY));
+        grids.computeIfAbsent(seat.floorId, k -> new HashMap<>())
+            .computeIfAbsent(seat.cell, k -> new ArrayList<>())
+            .add(seat);
+    }
+
+    private void unplace(SeatInfo seat) {
+        if (seat.floorId == null) {
+            return;
+        }
+        Map<Long, List<SeatInfo>> grid = grids.get(seat.floorId);
+        List<SeatInfo> cell = grid.get(seat.cell);
+        cell.remove(seat);
+        if (cell.isEmpty()) {
+            grid.remove(seat.cell);
+        }
+        seat.floorId = null;
+    }
+
+    private int cellCoordinate(double position) {
+        return (int) Math.floor(position / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
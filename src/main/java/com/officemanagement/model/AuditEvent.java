@@ -0,0 +1,112 @@
+package com.officemanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the audit trail behind {@code GET /audit}: who assigned or unassigned a seat,
+ * or created, changed or removed part of the building, and when. Entries are appended in
+ * batches by AuditLog (ids come from audit_event_seq) and never updated.
+ */
+@Entity
+@Immutable
+@Table(name = "audit_events", indexes = {
+    @Index(name = "idx_audit_events_occurred_at", columnList = "occurred_at"),
+    @Index(name = "idx_audit_events_entity", columnList = "entity_type, entity_id"),
+    @Index(name = "idx_audit_events_employee_id", columnList = "employee_id")
+})
+public class AuditEvent {
+    public enum Action {
+        CREATE, UPDATE, DELETE, ASSIGN, UNASSIGN, CLEAR_ASSIGNMENTS, MOVE, RENUMBER
+    }
+
+    public static final int MAX_DETAIL_LENGTH = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_event_seq")
+    @SequenceGenerator(name = "audit_event_seq", sequenceName = "audit_event_seq", allocationSize = 1)
+    @Column(name = "id", nullable = false, updatable = false)
+    private Long id;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    // The X-User request header, when the client sent one
+    @Column(name = "actor", length = 128)
+    private String actor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 32)
+    private Action action;
+
+    // As in the change log: floor, room, seat or employee
+    @Column(name = "entity_type", nullable = false, length = 32)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    // The employee a seat was assigned to or taken from
+    @Column(name = "employee_id")
+    private Long employeeId;
+
+    // Free text that may quote the request; cut to fit by Audits
+    @Column(name = "detail", length = MAX_DETAIL_LENGTH)
+    private String detail;
+
+    public AuditEvent() {
+    }
+
+    public AuditEvent(Action action, String entityType, Long entityId, Long employeeId, String detail, String actor) {
+        this.occurredAt = LocalDateTime.now();
+        this.action = action;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.employeeId = employeeId;
+        this.detail = detail;
+        this.actor = actor;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,92 @@
+package com.officemanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import java.time.LocalDateTime;
+
+/**
+ * One row per entity write, appended in the same transaction as the write. The sequence
+ * number is what delta-sync clients pass back as {@code GET /changes?since=}.
+ *
+ * Entries are inserted with a provisional, negative sequence number from change_log_seq and
+ * renumbered from change_log_head when their transaction commits (see ChangeLog), so other
+ * transactions only ever see final numbers, in commit order.
+ */
+@Entity
+@Table(name = "change_log",
+    indexes = @Index(name = "idx_change_log_changed_at", columnList = "changed_at"))
+public class ChangeLogEntry {
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    @Id
+    @GeneratedValue(generator = "change_log_seq")
+    @GenericGenerator(name = "change_log_seq", type = ProvisionalSequenceGenerator.class, parameters = {
+        @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "change_log_seq"),
+        @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "1")
+    })
+    @Column(name = "seq", nullable = false, updatable = false)
+    private Long seq;
+
+    @Column(name = "entity_type", nullable = false, length = 32)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation", nullable = false, length = 16)
+    private Operation operation;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public ChangeLogEntry() {
+    }
+
+    public ChangeLogEntry(String entityType, Long entityId, Operation operation) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    /** change_log_seq, negated: the provisional numbers of entries not committed yet. */
+    public static class ProvisionalSequenceGenerator extends SequenceStyleGenerator {
+        @Override
+        public Object generate(SharedSessionContractImplementor session, Object object) {
+            return -((Number) super.generate(session, object)).longValue();
+        }
+    }
+}
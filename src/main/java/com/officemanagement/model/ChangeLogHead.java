@@ -0,0 +1,42 @@
+package com.officemanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The single row holding the last sequence number of a committed change_log entry. Written by
+ * ChangeLog when a writing transaction commits; read as the version of the office data. Also
+ * holds the sequence number compaction deleted entries up to.
+ */
+@Entity
+@Table(name = "change_log_head")
+public class ChangeLogHead {
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "id", nullable = false, updatable = false)
+    private Integer id;
+
+    @Column(name = "seq", nullable = false)
+    private Long seq;
+
+    @Column(name = "compacted_through", nullable = false)
+    private Long compactedThrough;
+
+    public ChangeLogHead() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Long getCompactedThrough() {
+        return compactedThrough;
+    }
+}
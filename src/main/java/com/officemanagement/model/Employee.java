@@ -1,15 +1,21 @@
 package com.officemanagement.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.officemanagement.util.TextNormalizer;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -22,12 +28,28 @@ public class Employee {
     @Column(name = "id", nullable = false, updatable = false)
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @Column(name = "full_name")
     private String fullName;
 
     private String occupation;
 
-    @OneToMany(mappedBy = "employee", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Search columns, kept in sync with fullName/occupation by normalizeSearchColumns()
+    @JsonIgnore
+    @Column(name = "full_name_normalized")
+    private String fullNameNormalized;
+
+    @JsonIgnore
+    @Column(name = "occupation_normalized")
+    private String occupationNormalized;
+
+    // No orphanRemoval: a seat outlives its occupant. With association management,
+    // seat.setEmployee(null) also removes the seat from this set, which must not delete it.
+    @OneToMany(mappedBy = "employee", cascade = CascadeType.ALL)
     @JsonIgnoreProperties("employee")
     private Set<Seat> seats = new HashSet<>();
 
@@ -43,6 +65,14 @@ public class Employee {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getFullName() {
         return fullName;
     }
@@ -67,6 +97,13 @@ public class Employee {
         this.seats = seats;
     }
 
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchColumns() {
+        fullNameNormalized = TextNormalizer.normalize(fullName);
+        occupationNormalized = TextNormalizer.normalize(occupation);
+    }
+
     public void addSeat(Seat seat) {
         seats.add(seat);
         seat.setEmployee(this);
@@ -1,6 +1,7 @@
 package com.officemanagement.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.Id;
@@ -8,13 +9,16 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.UniqueConstraint;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "floors")
+@Table(name = "floors", uniqueConstraints =
+    @UniqueConstraint(name = "uk_floors_floor_number", columnNames = "floor_number"))
 public class Floor {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "floor_seq")
@@ -22,12 +26,18 @@ public class Floor {
     @Column(name = "id", nullable = false, updatable = false)
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @Column(name = "floor_number")
     private Integer floorNumber;
 
     private String name;
 
-    @OneToMany(mappedBy = "floor", fetch = FetchType.EAGER)
+    // Lazy: resources fetch-join rooms (and seats) only where the response needs them
+    @OneToMany(mappedBy = "floor", fetch = FetchType.LAZY)
     @JsonIgnoreProperties("floor")
     private Set<OfficeRoom> rooms = new HashSet<>();
 
@@ -49,6 +59,14 @@ public class Floor {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Integer getFloorNumber() {
         return floorNumber;
     }
@@ -0,0 +1,96 @@
+package com.officemanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The response of the first request sent with a given {@code Idempotency-Key}, replayed to
+ * retries of it. The row is inserted without a status when the request starts, which claims
+ * the key for this instance; the status and body are filled in once the response is known.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+    indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+public class IdempotencyRecord {
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Id
+    @Column(name = "idempotency_key", nullable = false, updatable = false, length = MAX_KEY_LENGTH)
+    private String key;
+
+    // SHA-256 of method, path, query and body; a key reused for another request is rejected
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Null while the first request is still running
+    @Column(name = "status")
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "etag", length = 64)
+    private String etag;
+
+    // bytea on PostgreSQL, whatever the length
+    @Column(name = "body", length = 1_000_000)
+    private byte[] body;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String fingerprint) {
+        this.key = key;
+        this.fingerprint = fingerprint;
+        // As stored (TIMESTAMP(6)), since it also identifies this claim of the key
+        this.createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+
+    public void complete(int status, String contentType, String etag, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.etag = etag;
+        this.body = body;
+    }
+}
@@ -0,0 +1,124 @@
+package com.officemanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Occupancy of the building, a floor or a room aggregated over one minute, hour or day. Rows
+ * are written in batches by OccupancySampler; a bucket that is still open is merged into.
+ */
+@Entity
+@Table(name = "occupancy_rollups", uniqueConstraints =
+    @UniqueConstraint(name = "uk_occupancy_rollups_bucket",
+        columnNames = {"resolution", "scope_type", "scope_id", "bucket_start"}))
+public class OccupancyRollup {
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        public Duration getStep() {
+            return unit.getDuration();
+        }
+    }
+
+    public enum Scope {
+        BUILDING, FLOOR, ROOM
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "occupancy_rollup_seq")
+    @SequenceGenerator(name = "occupancy_rollup_seq", sequenceName = "occupancy_rollup_seq", allocationSize = 1)
+    @Column(name = "id", nullable = false, updatable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false, length = 8)
+    private Resolution resolution;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope_type", nullable = false, length = 8)
+    private Scope scopeType;
+
+    // 0 for the building
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "samples", nullable = false)
+    private int samples;
+
+    @Column(name = "occupied_sum", nullable = false)
+    private long occupiedSum;
+
+    @Column(name = "occupied_min", nullable = false)
+    private int occupiedMin;
+
+    @Column(name = "occupied_max", nullable = false)
+    private int occupiedMax;
+
+    // Largest seat count seen in the bucket
+    @Column(name = "seats", nullable = false)
+    private int seats;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public Scope getScopeType() {
+        return scopeType;
+    }
+
+    public Long getScopeId() {
+        return scopeId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public long getOccupiedSum() {
+        return occupiedSum;
+    }
+
+    public int getOccupiedMin() {
+        return occupiedMin;
+    }
+
+    public int getOccupiedMax() {
+        return occupiedMax;
+    }
+
+    public int getSeats() {
+        return seats;
+    }
+}
@@ -1,6 +1,7 @@
 package com.officemanagement.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.Id;
@@ -8,14 +9,17 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.UniqueConstraint;
 import java.util.List;
 
 @Entity
-@Table(name = "office_rooms")
+@Table(name = "office_rooms", uniqueConstraints =
+    @UniqueConstraint(name = "uk_office_rooms_floor_room_number", columnNames = {"floor_id", "room_number"}))
 public class OfficeRoom {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "office_room_seq")
@@ -23,6 +27,11 @@ public class OfficeRoom {
     @Column(name = "id", nullable = false, updatable = false)
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @ManyToOne
     @JoinColumn(name = "floor_id")
     @JsonIgnoreProperties("rooms")
@@ -33,7 +42,16 @@ public class OfficeRoom {
 
     private String name;
 
-    @OneToMany(mappedBy = "room", fetch = FetchType.EAGER)
+    // Position of the room's origin on the floor, which its seats' positions are relative to;
+    // null is the floor's origin
+    @Column(name = "pos_x")
+    private Double x;
+
+    @Column(name = "pos_y")
+    private Double y;
+
+    // Lazy: resources fetch-join seats only where the response needs them
+    @OneToMany(mappedBy = "room", fetch = FetchType.LAZY)
     @JsonIgnoreProperties("room")
     private List<Seat> seats;
 
@@ -45,6 +63,14 @@ public class OfficeRoom {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Floor getFloor() {
         return floor;
     }
@@ -69,6 +95,22 @@ public class OfficeRoom {
         this.name = name;
     }
 
+    public Double getX() {
+        return x;
+    }
+
+    public void setX(Double x) {
+        this.x = x;
+    }
+
+    public Double getY() {
+        return y;
+    }
+
+    public void setY(Double y) {
+        this.y = y;
+    }
+
     public List<Seat> getSeats() {
         return seats;
     }
@@ -8,13 +8,18 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Index;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "seats")
+@Table(name = "seats",
+    uniqueConstraints = @UniqueConstraint(name = "uk_seats_room_seat_number", columnNames = {"room_id", "seat_number"}),
+    indexes = @Index(name = "idx_seats_employee_id", columnList = "employee_id"))
 public class Seat {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_seq")
@@ -22,6 +27,12 @@ public class Seat {
     @Column(name = "id", nullable = false, updatable = false)
     private Long id;
 
+    // Optimistic lock; also served as the ETag of the entity's resource
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @ManyToOne
     @JoinColumn(name = "room_id", nullable = false)
     @JsonIgnoreProperties("seats")
@@ -30,6 +41,13 @@ public class Seat {
     @Column(name = "seat_number", nullable = false)
     private String seatNumber;
 
+    // Position in the room, relative to the room's position on the floor; null when unplaced
+    @Column(name = "pos_x")
+    private Double x;
+
+    @Column(name = "pos_y")
+    private Double y;
+
     @ManyToOne
     @JoinColumn(name = "employee_id")
     @JsonIgnoreProperties("seats")
@@ -50,6 +68,14 @@ public class Seat {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public OfficeRoom getRoom() {
         return room;
     }
@@ -66,6 +92,22 @@ public class Seat {
         this.seatNumber = seatNumber;
     }
 
+    public Double getX() {
+        return x;
+    }
+
+    public void setX(Double x) {
+        this.x = x;
+    }
+
+    public Double getY() {
+        return y;
+    }
+
+    public void setY(Double y) {
+        this.y = y;
+    }
+
     public Employee getEmployee() {
         return employee;
     }
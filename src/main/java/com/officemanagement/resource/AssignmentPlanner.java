@@ -0,0 +1,289 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.index.ReservationIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Seats teams on free seats keeping each team together: a team spread over two floors costs
+ * {@link #FLOOR_WEIGHT}, over two rooms 1, and every employee left without a seat
+ * {@link #UNSEATED_WEIGHT}, so the plan seats as many people as there are seats first.
+ *
+ * Teams are placed one at a time. For each team every floor is tried as its home floor: the
+ * team goes into the room that fits it most tightly, or, if none does, fills the largest room
+ * and continues with the rest, then spills over to the floors with the most free seats. The
+ * cheapest home floor wins. Which team picks first matters, so several team orders (largest
+ * first, then seeded shuffles) are tried in parallel on the common fork-join pool and the
+ * cheapest plan is kept; the same input always gives the same plan.
+ *
+ * Works on a copy of the free seats taken from ReservationIndex and never touches the database.
+ */
+final class AssignmentPlanner {
+    static final long FLOOR_WEIGHT = 100;
+    static final long UNSEATED_WEIGHT = 10_000;
+
+    // Below this many orders an attempt is not split further
+    private static final int SEQUENTIAL_ATTEMPTS = 2;
+
+    private final List<Room> rooms = new ArrayList<>();
+    // Room indexes per floor, floors in ascending id order
+    private final List<int[]> floors = new ArrayList<>();
+
+    static final class Team {
+        final String name;
+        final List<Long> employeeIds;
+
+        Team(String name, List<Long> employeeIds) {
+            this.name = name;
+            this.employeeIds = employeeIds;
+        }
+    }
+
+    private static final class Room {
+        final int floor;
+        final List<ReservationIndex.FreeSeat> seats = new ArrayList<>();
+
+        Room(int floor) {
+            this.floor = floor;
+        }
+    }
+
+    /** One employee and the seat the plan gives them. */
+    static final class Placement {
+        final Team team;
+        final long employeeId;
+        final ReservationIndex.FreeSeat seat;
+
+        Placement(Team team, long employeeId, ReservationIndex.FreeSeat seat) {
+            this.team = team;
+            this.employeeId = employeeId;
+            this.seat = seat;
+        }
+    }
+
+    static final class Plan {
+        final List<Placement> placements = new ArrayList<>();
+        final List<Long> unseated = new ArrayList<>();
+        long cost;
+    }
+
+    // The outcome of one team order: for every team, how many seats it takes in which rooms
+    private static final class Attempt {
+        final int number;
+        final List<Team> order;
+        final List<int[][]> takes = new ArrayList<>();
+        long cost;
+
+        Attempt(int number, List<Team> order) {
+            this.number = number;
+            this.order = order;
+        }
+
+        boolean betterThan(Attempt other) {
+            return other == null || cost < other.cost || (cost == other.cost && number < other.number);
+        }
+    }
+
+    /** The free seats to plan with, as ReservationIndex returns them; all must be on a floor. */
+    AssignmentPlanner(List<ReservationIndex.FreeSeat> freeSeats) {
+        Map<Long, List<ReservationIndex.FreeSeat>> seatsByRoom = new LinkedHashMap<>();
+        Map<Long, List<Long>> roomsByFloor = new TreeMap<>();
+        for (ReservationIndex.FreeSeat seat : freeSeats) {
+            seatsByRoom.computeIfAbsent(seat.getRoomId(), roomId -> {
+                roomsByFloor.computeIfAbsent(seat.getFloorId(), k -> new ArrayList<>()).add(roomId);
+                return new ArrayList<>();
+            }).add(seat);
+        }
+        for (List<Long> roomIds : roomsByFloor.values()) {
+            int[] indexes = new int[roomIds.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                Room room = new Room(floors.size());
+                room.seats.addAll(seatsByRoom.get(roomIds.get(i)));
+                indexes[i] = rooms.size();
+                rooms.add(room);
+            }
+            floors.add(indexes);
+        }
+    }
+
+    Plan plan(List<Team> teams, int attempts) {
+        Attempt best = ForkJoinPool.commonPool().invoke(new Search(teams, 0, Math.max(1, attempts)));
+        return materialize(best);
+    }
+
+    private final class Search extends RecursiveTask<Attempt> {
+        private final List<Team> teams;
+        private final int from;
+        private final int to;
+
+        Search(List<Team> teams, int from, int to) {
+            this.teams = teams;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Attempt compute() {
+            if (to - from <= SEQUENTIAL_ATTEMPTS) {
+                Attempt best = null;
+                for (int number = from; number < to; number++) {
+                    Attempt attempt = attempt(number, order(teams, number));
+                    if (attempt.betterThan(best)) {
+                        best = attempt;
+                    }
+                }
+                return best;
+            }
+            int middle = (from + to) >>> 1;
+            Search left = new Search(teams, from, middle);
+            left.fork();
+            Attempt right = new Search(teams, middle, to).compute();
+            Attempt leftBest = left.join();
+            return leftBest.betterThan(right) ? leftBest : right;
+        }
+    }
+
+    // Order 0 seats the largest teams first; the others are shuffles seeded by their number
+    private static List<Team> order(List<Team> teams, int number) {
+        List<Team> order = new ArrayList<>(teams);
+        if (number == 0) {
+            order.sort(Comparator.comparingInt((Team team) -> team.employeeIds.size()).reversed());
+        } else {
+            Collections.shuffle(order, new Random(number));
+        }
+        return order;
+    }
+
+    private Attempt attempt(int number, List<Team> order) {
+        Attempt attempt = new Attempt(number, order);
+        int[] free = new int[rooms.size()];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = rooms.get(i).seats.size();
+        }
+
+        for (Team team : order) {
+            int[][] bestTakes = null;
+            long bestCost = Long.MAX_VALUE;
+            for (int home = 0; home < floors.size(); home++) {
+                int[][] takes = place(team.employeeIds.size(), home, free.clone());
+                long cost = cost(team.employeeIds.size(), takes);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestTakes = takes;
+                }
+            }
+            if (bestTakes == null) {
+                // No floors at all: nobody gets a seat
+                bestTakes = new int[0][];
+                bestCost = cost(team.employeeIds.size(), bestTakes);
+            }
+            for (int[] take : bestTakes) {
+                free[take[0]] -= take[1];
+            }
+            attempt.takes.add(bestTakes);
+            attempt.cost += bestCost;
+        }
+        return attempt;
+    }
+
+    // {room index, seats} pairs for a team of the given size starting on its home floor; "free" is scratch
+    private int[][] place(int size, int home, int[] free) {
+        List<int[]> takes = new ArrayList<>();
+        int remaining = fill(size, floors.get(home), free, takes);
+        if (remaining > 0) {
+            List<Integer> others = new ArrayList<>();
+            for (int f = 0; f < floors.size(); f++) {
+                if (f != home) {
+                    others.add(f);
+                }
+            }
+            others.sort(Comparator.comparingInt((Integer f) -> -freeSeats(floors.get(f), free))
+                .thenComparingInt(f -> f));
+            for (int f : others) {
+                if (remaining == 0) {
+                    break;
+                }
+                remaining = fill(remaining, floors.get(f), free, takes);
+            }
+        }
+        return takes.toArray(new int[0][]);
+    }
+
+    // Tightest room that holds everyone, else the largest room, until done or the floor is full
+    private static int fill(int remaining, int[] floorRooms, int[] free, List<int[]> takes) {
+        while (remaining > 0) {
+            int fits = -1;
+            int largest = -1;
+            for (int room : floorRooms) {
+                if (free[room] >= remaining && (fits < 0 || free[room] < free[fits])) {
+                    fits = room;
+                }
+                if (free[room] > 0 && (largest < 0 || free[room] > free[largest])) {
+                    largest = room;
+                }
+            }
+            int room = fits >= 0 ? fits : largest;
+            if (room < 0) {
+                break;
+            }
+            int taken = Math.min(free[room], remaining);
+            free[room] -= taken;
+            remaining -= taken;
+            takes.add(new int[] {room, taken});
+        }
+        return remaining;
+    }
+
+    private static int freeSeats(int[] floorRooms, int[] free) {
+        int total = 0;
+        for (int room : floorRooms) {
+            total += free[room];
+        }
+        return total;
+    }
+
+    private long cost(int size, int[][] takes) {
+        int seated = 0;
+        boolean[] floorsUsed = new boolean[floors.size()];
+        int floorCount = 0;
+        for (int[] take : takes) {
+            seated += take[1];
+            int floor = rooms.get(take[0]).floor;
+            if (!floorsUsed[floor]) {
+                floorsUsed[floor] = true;
+                floorCount++;
+            }
+        }
+        long spread = takes.length == 0 ? 0 : (floorCount - 1) * FLOOR_WEIGHT + (takes.length - 1);
+        return spread + (size - seated) * UNSEATED_WEIGHT;
+    }
+
+    private Plan materialize(Attempt attempt) {
+        Plan plan = new Plan();
+        plan.cost = attempt.cost;
+        int[] used = new int[rooms.size()];
+        for (int t = 0; t < attempt.order.size(); t++) {
+            Team team = attempt.order.get(t);
+            int member = 0;
+            for (int[] take : attempt.takes.get(t)) {
+                Room room = rooms.get(take[0]);
+                for (int i = 0; i < take[1]; i++) {
+                    plan.placements.add(new Placement(team, team.employeeIds.get(member++), room.seats.get(used[take[0]]++)));
+                }
+            }
+            while (member < team.employeeIds.size()) {
+                plan.unseated.add(team.employeeIds.get(member++));
+            }
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,361 @@
+package com.officemanagement.resource;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReadWrite;
+import com.officemanagement.index.ReservationIndex;
+import com.officemanagement.model.AuditEvent;
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.graph.RootGraph;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Seats many people at once, e.g. after a reorg. {@code POST /assignments/plan} takes teams
+ * (and/or single employees) and the floors to use and proposes free seats for everyone,
+ * keeping teams together (see {@link AssignmentPlanner}); nothing is written. Posting the
+ * plan, or just its assignments, to {@code POST /assignments/apply} assigns all its seats in
+ * one transaction, or none if any seat has been taken in the meantime.
+ *
+ * Seats people already have are kept; clear a room or floor first to move them.
+ */
+@Path("/assignments")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class AssignmentResource {
+    // Team orders the planner tries, in parallel
+    static final String PLAN_ATTEMPTS_PROPERTY = "officemanagement.assignments.plan_attempts";
+    static final int DEFAULT_PLAN_ATTEMPTS = 16;
+
+    private final SessionFactory sessionFactory;
+
+    public AssignmentResource() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+    }
+
+    // DTOs for the plan request and response
+    public static class TeamRequest {
+        private String name;
+        private List<Long> employeeIds = new ArrayList<>();
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public List<Long> getEmployeeIds() { return employeeIds; }
+        public void setEmployeeIds(List<Long> employeeIds) { this.employeeIds = employeeIds; }
+    }
+
+    public static class PlanRequest {
+        private List<TeamRequest> teams = new ArrayList<>();
+        private List<Long> employeeIds = new ArrayList<>();
+        private List<Long> floorIds = new ArrayList<>();
+
+        public List<TeamRequest> getTeams() { return teams; }
+        public void setTeams(List<TeamRequest> teams) { this.teams = teams; }
+        public List<Long> getEmployeeIds() { return employeeIds; }
+        public void setEmployeeIds(List<Long> employeeIds) { this.employeeIds = employeeIds; }
+        public List<Long> getFloorIds() { return floorIds; }
+        public void setFloorIds(List<Long> floorIds) { this.floorIds = floorIds; }
+    }
+
+    // Extra properties (room, floor, team) are what the plan shows; apply needs the two ids
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Assignment {
+        private Long employeeId;
+        private Long seatId;
+        private String seatNumber;
+        private Long roomId;
+        private String roomNumber;
+        private Long floorId;
+        private String team;
+
+        public Assignment() {
+        }
+
+        Assignment(AssignmentPlanner.Placement placement) {
+            this.employeeId = placement.employeeId;
+            this.seatId = placement.seat.getSeatId();
+            this.seatNumber = placement.seat.getSeatNumber();
+            this.roomId = placement.seat.getRoomId();
+            this.roomNumber = placement.seat.getRoomNumber();
+            this.floorId = placement.seat.getFloorId();
+            this.team = placement.team.name;
+        }
+
+        public Long getEmployeeId() { return employeeId; }
+        public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+        public Long getSeatId() { return seatId; }
+        public void setSeatId(Long seatId) { this.seatId = seatId; }
+        public String getSeatNumber() { return seatNumber; }
+        public Long getRoomId() { return roomId; }
+        public String getRoomNumber() { return roomNumber; }
+        public Long getFloorId() { return floorId; }
+        public String getTeam() { return team; }
+    }
+
+    public static class TeamSpread {
+        @JsonProperty("name")
+        private final String name;
+
+        @JsonProperty("size")
+        private final int size;
+
+        @JsonProperty("floors")
+        private final int floors;
+
+        @JsonProperty("rooms")
+        private final int rooms;
+
+        public TeamSpread(String name, int size, int floors, int rooms) {
+            this.name = name;
+            this.size = size;
+            this.floors = floors;
+            this.rooms = rooms;
+        }
+    }
+
+    public static class PlanResponse {
+        private List<Assignment> assignments = new ArrayList<>();
+        private List<Long> unassigned = new ArrayList<>();
+        private List<TeamSpread> teams = new ArrayList<>();
+        private long cost;
+
+        public List<Assignment> getAssignments() { return assignments; }
+        public void setAssignments(List<Assignment> assignments) { this.assignments = assignments; }
+        public List<Long> getUnassigned() { return unassigned; }
+        public List<TeamSpread> getTeams() { return teams; }
+        public long getCost() { return cost; }
+    }
+
+    // A plan as returned by /plan; only its assignments are read
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ApplyRequest {
+        private List<Assignment> assignments = new ArrayList<>();
+
+        public List<Assignment> getAssignments() { return assignments; }
+        public void setAssignments(List<Assignment> assignments) { this.assignments = assignments; }
+    }
+
+    @POST
+    @Path("/plan")
+    @ReadOnly
+    public Response plan(PlanRequest request) {
+        if (request == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("A plan request is required").build();
+        }
+
+        // Every employee once: teams as given, then everyone else as a team of one
+        List<AssignmentPlanner.Team> teams = new ArrayList<>();
+        Set<Long> employeeIds = new LinkedHashSet<>();
+        for (TeamRequest team : nullToEmpty(request.getTeams())) {
+            if (team == null || team.getEmployeeIds() == null || team.getEmployeeIds().isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Every team needs employees").build();
+            }
+            for (Long id : team.getEmployeeIds()) {
+                if (id == null || !employeeIds.add(id)) {
+                    return duplicateEmployee(id);
+                }
+            }
+            teams.add(new AssignmentPlanner.Team(team.getName(), new ArrayList<>(team.getEmployeeIds())));
+        }
+        for (Long id : nullToEmpty(request.getEmployeeIds())) {
+            if (id == null || !employeeIds.add(id)) {
+                return duplicateEmployee(id);
+            }
+            List<Long> single = new ArrayList<>();
+            single.add(id);
+            teams.add(new AssignmentPlanner.Team(null, single));
+        }
+        if (employeeIds.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("No employees to seat").build();
+        }
+        if (employeeIds.size() > MultiIdLoader.MAX_IDS) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot plan more than " + MultiIdLoader.MAX_IDS + " employees at once")
+                .build();
+        }
+
+        Session session = UnitOfWork.currentSession();
+        List<Long> unknownEmployees = missing(session, "Employee", employeeIds);
+        if (!unknownEmployees.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Employees not found: " + unknownEmployees)
+                .build();
+        }
+        Set<Long> floorIds = new LinkedHashSet<>(nullToEmpty(request.getFloorIds()));
+        List<Long> unknownFloors = missing(session, "Floor", floorIds);
+        if (!unknownFloors.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Floors not found: " + unknownFloors)
+                .build();
+        }
+
+        // Free now and without upcoming reservations, like assign-seat requires
+        ReservationIndex index = ReservationIndex.get(sessionFactory);
+        List<ReservationIndex.FreeSeat> freeSeats = new ArrayList<>();
+        for (ReservationIndex.FreeSeat seat : index.freeSeats(null, null, LocalDateTime.now(), LocalDateTime.MAX)) {
+            if (seat.getFloorId() != null && (floorIds.isEmpty() || floorIds.contains(seat.getFloorId()))) {
+                freeSeats.add(seat);
+            }
+        }
+
+        AssignmentPlanner.Plan plan = new AssignmentPlanner(freeSeats).plan(teams, planAttempts());
+        return Response.ok(toResponse(plan, teams)).build();
+    }
+
+    @POST
+    @Path("/apply")
+    @ReadWrite
+    public Response apply(ApplyRequest plan) {
+        if (plan == null || plan.getAssignments() == null || plan.getAssignments().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("No assignments to apply").build();
+        }
+        if (plan.getAssignments().size() > MultiIdLoader.MAX_IDS) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot apply more than " + MultiIdLoader.MAX_IDS + " assignments at once")
+                .build();
+        }
+        Set<Long> seatIds = new LinkedHashSet<>();
+        Set<Long> employeeIds = new LinkedHashSet<>();
+        for (Assignment assignment : plan.getAssignments()) {
+            if (assignment == null || assignment.getEmployeeId() == null || assignment.getSeatId() == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Every assignment needs an employeeId and a seatId")
+                    .build();
+            }
+            if (!seatIds.add(assignment.getSeatId())) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Seat " + assignment.getSeatId() + " is assigned more than once")
+                    .build();
+            }
+            employeeIds.add(assignment.getEmployeeId());
+        }
+
+        Session session = UnitOfWork.currentSession();
+        int batchSize = MultiIdLoader.batchSize(sessionFactory);
+        MultiGetResponse<Seat> seats = MultiIdLoader.load(session, Seat.class, null, new ArrayList<>(seatIds), batchSize);
+        if (!seats.getMissing().isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Seats not found: " + seats.getMissing()).build();
+        }
+        // Their seats come along: addSeat() adds to them
+        RootGraph<Employee> graph = session.createEntityGraph(Employee.class);
+        graph.addSubgraph("seats");
+        MultiGetResponse<Employee> employees = MultiIdLoader.load(session, Employee.class, graph,
+            new ArrayList<>(employeeIds), batchSize);
+        if (!employees.getMissing().isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Employees not found: " + employees.getMissing())
+                .build();
+        }
+
+        // All or nothing: the plan may be stale by now
+        List<Long> taken = new ArrayList<>();
+        Map<Long, Seat> seatsById = new LinkedHashMap<>();
+        for (Seat seat : seats.getItems()) {
+            seatsById.put(seat.getId(), seat);
+            if (seat.getEmployee() != null) {
+                taken.add(seat.getId());
+            }
+        }
+        taken.addAll(session.createQuery(
+            "select distinct r.seat.id from Reservation r where r.seat.id in :seatIds and r.endTime > :now", Long.class)
+            .setParameter("seatIds", seatIds)
+            .setParameter("now", LocalDateTime.now())
+            .list());
+        if (!taken.isEmpty()) {
+            return Response.status(Response.Status.CONFLICT)
+                .entity("Seats no longer free: " + new LinkedHashSet<>(taken))
+                .build();
+        }
+
+        Map<Long, Employee> employeesById = new LinkedHashMap<>();
+        for (Employee employee : employees.getItems()) {
+            employeesById.put(employee.getId(), employee);
+        }
+        for (Assignment assignment : plan.getAssignments()) {
+            Seat seat = seatsById.get(assignment.getSeatId());
+            employeesById.get(assignment.getEmployeeId()).addSeat(seat);
+            ChangeLog.record(session, seat, ChangeLogEntry.Operation.UPDATE);
+            Audits.record(sessionFactory, AuditEvent.Action.ASSIGN, ChangeLog.SEAT, seat.getId(),
+                assignment.getEmployeeId(), null);
+        }
+        // Versions move as with assign-seat, in one JDBC batch at commit
+        Versions.forceIncrement(session, employeesById.values());
+        for (Employee employee : employeesById.values()) {
+            ChangeLog.record(session, employee, ChangeLogEntry.Operation.UPDATE);
+        }
+        return Response.ok(new BulkUpdateResponse(plan.getAssignments().size())).build();
+    }
+
+    private static Response duplicateEmployee(Long id) {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .entity(id == null ? "Employee ids cannot be null" : "Employee " + id + " is listed more than once")
+            .build();
+    }
+
+    private static List<Long> missing(Session session, String entity, Set<Long> ids) {
+        List<Long> missing = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return missing;
+        }
+        Set<Long> found = new HashSet<>(session.createQuery(
+            "select x.id from " + entity + " x where x.id in :ids", Long.class)
+            .setParameter("ids", ids)
+            .list());
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    private static PlanResponse toResponse(AssignmentPlanner.Plan plan, List<AssignmentPlanner.Team> teams) {
+        PlanResponse response = new PlanResponse();
+        Map<AssignmentPlanner.Team, Set<Long>> floors = new LinkedHashMap<>();
+        Map<AssignmentPlanner.Team, Set<Long>> rooms = new LinkedHashMap<>();
+        for (AssignmentPlanner.Placement placement : plan.placements) {
+            response.assignments.add(new Assignment(placement));
+            floors.computeIfAbsent(placement.team, k -> new HashSet<>()).add(placement.seat.getFloorId());
+            rooms.computeIfAbsent(placement.team, k -> new HashSet<>()).add(placement.seat.getRoomId());
+        }
+        response.unassigned.addAll(plan.unseated);
+        for (AssignmentPlanner.Team team : teams) {
+            if (team.name != null) {
+                response.teams.add(new TeamSpread(team.name, team.employeeIds.size(),
+                    floors.getOrDefault(team, new HashSet<>()).size(), rooms.getOrDefault(team, new HashSet<>()).size()));
+            }
+        }
+        response.cost = plan.cost;
+        return response;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? new ArrayList<>() : list;
+    }
+
+    private int planAttempts() {
+        Object value = sessionFactory.getProperties().get(PLAN_ATTEMPTS_PROPERTY);
+        return value == null ? DEFAULT_PLAN_ATTEMPTS : Integer.parseInt(value.toString().trim());
+    }
+}
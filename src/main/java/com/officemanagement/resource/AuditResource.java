@@ -0,0 +1,140 @@
+package com.officemanagement.resource;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.model.AuditEvent;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The audit trail of seat assignments and structural changes, oldest first. Pages are keyed
+ * by event id: pass {@code nextAfter} back as {@code after} while {@code hasMore} is true.
+ *
+ * Events are written asynchronously, usually within a second of the change (see AuditLog).
+ */
+@Path("/audit")
+@ReadOnly
+@Produces(MediaType.APPLICATION_JSON)
+public class AuditResource {
+    private static final int MAX_LIMIT = 1000;
+
+    // DTO for the audit response
+    public static class AuditPage {
+        @JsonProperty("events")
+        private final List<AuditEvent> events;
+
+        @JsonProperty("hasMore")
+        private final boolean hasMore;
+
+        @JsonProperty("nextAfter")
+        private final long nextAfter;
+
+        AuditPage(List<AuditEvent> events, boolean hasMore, long nextAfter) {
+            this.events = events;
+            this.hasMore = hasMore;
+            this.nextAfter = nextAfter;
+        }
+    }
+
+    @GET
+    public Response getEvents(@QueryParam("entityType") String entityType,
+                              @QueryParam("entityId") Long entityId,
+                              @QueryParam("employeeId") Long employeeId,
+                              @QueryParam("action") String action,
+                              @QueryParam("actor") String actor,
+                              @QueryParam("from") String from,
+                              @QueryParam("to") String to,
+                              @QueryParam("after") @DefaultValue("0") long after,
+                              @QueryParam("limit") @DefaultValue("100") int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("limit must be between 1 and " + MAX_LIMIT)
+                .build();
+        }
+
+        AuditEvent.Action actionValue = null;
+        if (action != null) {
+            try {
+                actionValue = AuditEvent.Action.valueOf(action.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Unknown action: " + action)
+                    .build();
+            }
+        }
+
+        LocalDateTime fromTime;
+        LocalDateTime toTime;
+        try {
+            fromTime = from == null ? null : LocalDateTime.parse(from);
+            toTime = to == null ? null : LocalDateTime.parse(to);
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("from and to must be ISO-8601 local date-times, e.g. 2024-05-02T09:00")
+                .build();
+        }
+
+        // Only the filters that were given, all served by the audit_events indexes or the primary key
+        StringBuilder hql = new StringBuilder("from AuditEvent a where a.id > :after");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("after", after);
+        if (entityType != null) {
+            hql.append(" and a.entityType = :entityType");
+            parameters.put("entityType", entityType);
+        }
+        if (entityId != null) {
+            hql.append(" and a.entityId = :entityId");
+            parameters.put("entityId", entityId);
+        }
+        if (employeeId != null) {
+            hql.append(" and a.employeeId = :employeeId");
+            parameters.put("employeeId", employeeId);
+        }
+        if (actionValue != null) {
+            hql.append(" and a.action = :action");
+            parameters.put("action", actionValue);
+        }
+        if (actor != null) {
+            hql.append(" and a.actor = :actor");
+            parameters.put("actor", actor);
+        }
+        if (fromTime != null) {
+            hql.append(" and a.occurredAt >= :from");
+            parameters.put("from", fromTime);
+        }
+        if (toTime != null) {
+            hql.append(" and a.occurredAt < :to");
+            parameters.put("to", toTime);
+        }
+        hql.append(" order by a.id");
+
+        Session session = UnitOfWork.currentSession();
+        Query<AuditEvent> query = session.createQuery(hql.toString(), AuditEvent.class)
+            // One extra row tells whether there is another page
+            .setMaxResults(limit + 1);
+        parameters.forEach(query::setParameter);
+        List<AuditEvent> events = query.list();
+
+        boolean hasMore = events.size() > limit;
+        if (hasMore) {
+            events = events.subList(0, limit);
+        }
+        long nextAfter = events.isEmpty() ? after : events.get(events.size() - 1).getId();
+        return Response.ok(new AuditPage(events, hasMore, nextAfter)).build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.AuditEvent;
+import com.officemanagement.util.AuditLog;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.SessionFactory;
+import org.jboss.resteasy.core.ResteasyContext;
+
+import jakarta.ws.rs.core.HttpHeaders;
+
+/**
+ * Audit events of the resources, published to {@link AuditLog} once the request's unit of work
+ * has committed (right away outside of one). The actor is the {@code X-User} header of the
+ * current request, if any; there is no authentication in front of the API to take it from.
+ */
+final class Audits {
+    static final String USER_HEADER = "X-User";
+    private static final int MAX_ACTOR_LENGTH = 128;
+
+    private Audits() {
+    }
+
+    static void record(SessionFactory sessionFactory, AuditEvent.Action action, String entityType, Long entityId) {
+        record(sessionFactory, action, entityType, entityId, null, null);
+    }
+
+    static void record(SessionFactory sessionFactory, AuditEvent.Action action, String entityType, Long entityId,
+                       Long employeeId, String detail) {
+        // The actor is read now: the request context is gone by the time the hook runs
+        AuditEvent event = new AuditEvent(action, entityType, entityId, employeeId,
+            truncate(detail, AuditEvent.MAX_DETAIL_LENGTH), actor());
+        UnitOfWork.afterCommit(() -> AuditLog.get(sessionFactory).publish(event));
+    }
+
+    private static String actor() {
+        HttpHeaders headers = ResteasyContext.getContextData(HttpHeaders.class);
+        String user = headers == null ? null : headers.getHeaderString(USER_HEADER);
+        if (user == null || user.isBlank()) {
+            return null;
+        }
+        return truncate(user.trim(), MAX_ACTOR_LENGTH);
+    }
+
+    // Client input ends up in both columns; an event too long to insert would never be written
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+}
@@ -0,0 +1,273 @@
+package com.officemanagement.resource;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.RequestTrace;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.SessionFactory;
+import org.jboss.resteasy.core.ResteasyContext;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.Dispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Several GET requests in one round trip, e.g. everything a screen needs:
+ * <pre>
+ * POST /batch
+ * [{"id": "stats", "path": "/stats"}, {"id": "floor", "path": "/floors/3?fields=rooms"}]
+ * </pre>
+ * Each sub-request is dispatched to its resource method in-process and answered with its
+ * status, ETag and body, in request order. A failing sub-request does not fail the batch.
+ *
+ * By default the sub-requests run one after the other in a single read-only session and
+ * transaction, cleared between them so every body looks exactly as it would on its own.
+ * With {@code ?parallel=true} they run concurrently instead, each in its own session (a
+ * session cannot be shared between threads), on at most officemanagement.batch.parallelism
+ * threads. Batches hold at most officemanagement.batch.max_requests sub-requests and cannot
+ * contain other batches.
+ */
+@Path("/batch")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class BatchResource {
+    /** Set on sub-requests: their unit of work and trace belong to the batch. */
+    public static final String SUB_REQUEST_PROPERTY = BatchResource.class.getName() + ".subRequest";
+
+    static final String MAX_REQUESTS_PROPERTY = "officemanagement.batch.max_requests";
+    static final int DEFAULT_MAX_REQUESTS = 25;
+    static final String PARALLELISM_PROPERTY = "officemanagement.batch.parallelism";
+    static final int DEFAULT_PARALLELISM = 4;
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchResource.class);
+    private static volatile ExecutorService executor;
+
+    private final SessionFactory sessionFactory;
+
+    public BatchResource() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+    }
+
+    // DTOs for the batch request and response
+    public static class SubRequest {
+        private String id;
+        private String method = "GET";
+        private String path;
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class SubResponse {
+        @JsonProperty("id")
+        private final String id;
+
+        @JsonProperty("status")
+        private final int status;
+
+        @JsonProperty("etag")
+        private final String etag;
+
+        @JsonProperty("body")
+        private final Object body;
+
+        public SubResponse(String id, int status, String etag, Object body) {
+            this.id = id;
+            this.status = status;
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    @POST
+    public Response batch(List<SubRequest> requests,
+                          @QueryParam("parallel") @DefaultValue("false") boolean parallel,
+                          @Context UriInfo uriInfo) {
+        if (requests == null || requests.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("A batch needs at least one request")
+                .build();
+        }
+        int maxRequests = intProperty(MAX_REQUESTS_PROPERTY, DEFAULT_MAX_REQUESTS);
+        if (requests.size() > maxRequests) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("A batch holds at most " + maxRequests + " requests")
+                .build();
+        }
+
+        List<URI> uris = new ArrayList<>(requests.size());
+        for (SubRequest request : requests) {
+            String invalid = validate(request);
+            if (invalid != null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity((request == null || request.getId() == null ? "" : request.getId() + ": ") + invalid)
+                    .build();
+            }
+            // Relative to the application, like the paths of the API itself
+            uris.add(uriInfo.getBaseUri().resolve(request.getPath().substring(1)));
+        }
+
+        Dispatcher dispatcher = ResteasyContext.getContextData(Dispatcher.class);
+        URI baseUri = uriInfo.getBaseUri();
+        List<SubResponse> responses = new ArrayList<>(requests.size());
+        if (parallel && requests.size() > 1) {
+            RequestTrace trace = RequestTrace.current();
+            List<Future<SubResponse>> futures = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                String id = requests.get(i).getId();
+                URI uri = uris.get(i);
+                futures.add(executor().submit(() -> {
+                    RequestTrace.bind(trace);
+                    UnitOfWork work = UnitOfWork.begin(sessionFactory, true);
+                    try {
+                        return dispatch(dispatcher, id, uri, baseUri);
+                    } finally {
+                        work.end(true);
+                        RequestTrace.unbind();
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                responses.add(await(futures.get(i), requests.get(i).getId()));
+            }
+        } else {
+            // The sub-resources find this unit of work and use its session
+            UnitOfWork work = UnitOfWork.begin(sessionFactory, true);
+            try {
+                for (int i = 0; i < requests.size(); i++) {
+                    responses.add(dispatch(dispatcher, requests.get(i).getId(), uris.get(i), baseUri));
+                    // Entities shared between sub-requests would carry each other's fetches
+                    UnitOfWork.currentSession().clear();
+                }
+            } finally {
+                work.end(true);
+            }
+        }
+        return Response.ok(responses).build();
+    }
+
+    private static String validate(SubRequest request) {
+        if (request == null || request.getPath() == null || !request.getPath().startsWith("/")) {
+            return "path is required and must start with /";
+        }
+        if (!"GET".equalsIgnoreCase(request.getMethod())) {
+            return "only GET requests can be batched";
+        }
+        String path = request.getPath();
+        int query = path.indexOf('?');
+        String pathOnly = query < 0 ? path : path.substring(0, query);
+        if (pathOnly.contains("..") || pathOnly.contains("//") || pathOnly.contains("\\")) {
+            return "path must not contain .., // or \\";
+        }
+        if (pathOnly.equals("/batch") || pathOnly.startsWith("/batch/")) {
+            return "batches cannot be nested";
+        }
+        try {
+            URI.create(path.substring(1));
+        } catch (IllegalArgumentException e) {
+            return "path is not a valid URI";
+        }
+        return null;
+    }
+
+    private SubResponse dispatch(Dispatcher dispatcher, String id, URI uri, URI baseUri) {
+        // Despite the package name, the mock request and response are part of resteasy-core (a
+        // compile dependency), not of a test artifact: they are RESTEasy's in-process requests
+        MockHttpRequest request = MockHttpRequest.create("GET", uri, baseUri);
+        request.accept(MediaType.APPLICATION_JSON_TYPE);
+        request.setAttribute(SUB_REQUEST_PROPERTY, Boolean.TRUE);
+
+        Response response;
+        try {
+            // Runs the resource method and its request filters; no body is written
+            response = dispatcher.internalInvocation(request, new MockHttpResponse(), null);
+        } catch (WebApplicationException e) {
+            response = e.getResponse();
+        } catch (RuntimeException e) {
+            logger.error("Batched request {} failed", uri, e);
+            return new SubResponse(id, Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), null,
+                "Internal server error");
+        }
+        if (response == null) {
+            return new SubResponse(id, Response.Status.NOT_FOUND.getStatusCode(), null, null);
+        }
+
+        EntityTag tag = response.getEntityTag();
+        Object body = response.getEntity();
+        if (body instanceof byte[]) {
+            // Pre-serialized JSON (GET /building/snapshot) goes in as it is
+            body = new RawValue(new String((byte[]) body, StandardCharsets.UTF_8));
+        }
+        return new SubResponse(id, response.getStatus(), tag == null ? null : format(tag), body);
+    }
+
+    // As in an ETag header; EntityTag.toString() goes through the deprecated RuntimeDelegate
+    private static String format(EntityTag tag) {
+        return (tag.isWeak() ? "W/" : "") + "\"" + tag.getValue() + "\"";
+    }
+
+    private static SubResponse await(Future<SubResponse> future, String id) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new SubResponse(id, Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), null, "Interrupted");
+        } catch (ExecutionException e) {
+            logger.error("Batched request {} failed", id, e.getCause());
+            return new SubResponse(id, Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), null,
+                "Internal server error");
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (BatchResource.class) {
+                if (executor == null) {
+                    AtomicInteger threads = new AtomicInteger();
+                    executor = Executors.newFixedThreadPool(
+                        intProperty(PARALLELISM_PROPERTY, DEFAULT_PARALLELISM), runnable -> {
+                            Thread thread = new Thread(runnable, "batch-" + threads.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                }
+            }
+        }
+        return executor;
+    }
+
+    private int intProperty(String name, int defaultValue) {
+        Object value = sessionFactory.getProperties().get(name);
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+}
@@ -0,0 +1,176 @@
+package com.officemanagement.resource;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.officemanagement.config.RestEasyConfig;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.util.DataVersion;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.Session;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Path("/building")
+@Produces(MediaType.APPLICATION_JSON)
+public class BuildingResource {
+    private static final ObjectMapper MAPPER = RestEasyConfig.createObjectMapper();
+
+    // Serialized snapshot of the last version that was requested
+    private static volatile CachedSnapshot cache;
+
+    // DTOs for the snapshot response
+    public static class BuildingSnapshot {
+        @JsonProperty("version")
+        private final long version;
+        @JsonProperty("floors")
+        private final List<FloorNode> floors;
+
+        BuildingSnapshot(long version, List<FloorNode> floors) {
+            this.version = version;
+            this.floors = floors;
+        }
+    }
+
+    public static class FloorNode {
+        @JsonProperty("id")
+        private final Long id;
+        @JsonProperty("name")
+        private final String name;
+        @JsonProperty("floorNumber")
+        private final Integer floorNumber;
+        @JsonProperty("rooms")
+        private final List<RoomNode> rooms = new ArrayList<>();
+
+        FloorNode(Long id, String name, Integer floorNumber) {
+            this.id = id;
+            this.name = name;
+            this.floorNumber = floorNumber;
+        }
+    }
+
+    public static class RoomNode {
+        @JsonProperty("id")
+        private final Long id;
+        @JsonProperty("roomNumber")
+        private final String roomNumber;
+        @JsonProperty("name")
+        private final String name;
+        @JsonProperty("seats")
+        private final List<SeatNode> seats = new ArrayList<>();
+
+        RoomNode(Long id, String roomNumber, String name) {
+            this.id = id;
+            this.roomNumber = roomNumber;
+            this.name = name;
+        }
+    }
+
+    public static class SeatNode {
+        @JsonProperty("id")
+        private final Long id;
+        @JsonProperty("seatNumber")
+        private final String seatNumber;
+        @JsonProperty("employeeId")
+        private final Long employeeId;
+        @JsonProperty("employeeName")
+        private final String employeeName;
+
+        SeatNode(Long id, String seatNumber, Long employeeId, String employeeName) {
+            this.id = id;
+            this.seatNumber = seatNumber;
+            this.employeeId = employeeId;
+            this.employeeName = employeeName;
+        }
+    }
+
+    private static final class CachedSnapshot {
+        final long version;
+        final long localVersion;
+        final byte[] json;
+
+        CachedSnapshot(long version, long localVersion, byte[] json) {
+            this.version = version;
+            this.localVersion = localVersion;
+            this.json = json;
+        }
+    }
+
+    /**
+     * The whole hierarchy (floors, rooms, seats and occupant names) in one response. Built from
+     * three flat queries and assembled in memory, then cached as bytes until the next write.
+     * The ETag holds both data versions the cache is keyed on, so it changes whenever the bytes
+     * may have.
+     */
+    @GET
+    @Path("/snapshot")
+    @ReadOnly
+    public Response getSnapshot(@HeaderParam("If-None-Match") String ifNoneMatch) throws JsonProcessingException {
+        CachedSnapshot snapshot = cache;
+        long localVersion = DataVersion.current();
+        Session session = UnitOfWork.currentSession();
+        long version = DataVersion.shared(session);
+        if (snapshot == null || snapshot.version != version || snapshot.localVersion != localVersion) {
+            // Keyed by the versions read before querying: a write that commits meanwhile
+            // bumps them again, so this entry can never hide it
+            snapshot = new CachedSnapshot(version, localVersion,
+                MAPPER.writeValueAsBytes(load(session, version)));
+            cache = snapshot;
+        }
+
+        EntityTag etag = new EntityTag(snapshot.version + "-" + snapshot.localVersion);
+        if (ifNoneMatch != null && ifNoneMatch.replace("\"", "").trim().equals(etag.getValue())) {
+            return Response.notModified(etag).build();
+        }
+        return Response.ok(snapshot.json, MediaType.APPLICATION_JSON_TYPE).tag(etag).build();
+    }
+
+    private BuildingSnapshot load(Session session, long version) {
+        List<FloorNode> floors = new ArrayList<>();
+        Map<Long, FloorNode> floorsById = new HashMap<>();
+        for (Object[] row : session.createQuery(
+                "select f.id, f.name, f.floorNumber from Floor f order by f.floorNumber", Object[].class)
+                .list()) {
+            FloorNode floor = new FloorNode((Long) row[0], (String) row[1], (Integer) row[2]);
+            floors.add(floor);
+            floorsById.put(floor.id, floor);
+        }
+
+        Map<Long, RoomNode> roomsById = new HashMap<>();
+        for (Object[] row : session.createQuery(
+                "select r.id, r.floor.id, r.roomNumber, r.name from OfficeRoom r " +
+                "order by r.roomNumber", Object[].class)
+                .list()) {
+            FloorNode floor = floorsById.get((Long) row[1]);
+            // Rows committed between the queries may reference parents we did not read
+            if (floor != null) {
+                RoomNode room = new RoomNode((Long) row[0], (String) row[2], (String) row[3]);
+                floor.rooms.add(room);
+                roomsById.put(room.id, room);
+            }
+        }
+
+        for (Object[] row : session.createQuery(
+                "select s.id, s.room.id, s.seatNumber, e.id, e.fullName from Seat s " +
+                "left join s.employee e " +
+                "order by s.seatNumber", Object[].class)
+                .list()) {
+            RoomNode room = roomsById.get((Long) row[1]);
+            if (room != null) {
+                room.seats.add(new SeatNode((Long) row[0], (String) row[2], (Long) row[3], (String) row[4]));
+            }
+        }
+
+        return new BuildingSnapshot(version, floors);
+    }
+}
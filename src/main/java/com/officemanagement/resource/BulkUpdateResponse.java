@@ -0,0 +1,14 @@
+package com.officemanagement.resource;
+
+// Response of the bulk endpoints: how many rows the set-based statement changed
+class BulkUpdateResponse {
+    private int updated;
+
+    public BulkUpdateResponse(int updated) {
+        this.updated = updated;
+    }
+
+    // Getters and setters
+    public int getUpdated() { return updated; }
+    public void setUpdated(int updated) { this.updated = updated; }
+}
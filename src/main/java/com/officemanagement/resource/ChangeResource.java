@@ -0,0 +1,165 @@
+package com.officemanagement.resource;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.ChangeLogHead;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.Session;
+
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta synchronization. A client remembers {@code nextSince} from its last response and asks
+ * for {@code GET /changes?since=<nextSince>}; it gets the current state of every entity written
+ * since then (or a delete marker), at most once per entity.
+ *
+ * When entries the client needs were already compacted away, the response only carries
+ * {@code resyncRequired: true} and a {@code nextSince}. The client should keep that value,
+ * reload everything (e.g. {@code GET /building/snapshot}) and continue from it; changes that
+ * land during the reload are replayed, which is harmless.
+ */
+@Path("/changes")
+@ReadOnly
+@Produces(MediaType.APPLICATION_JSON)
+public class ChangeResource {
+    private static final int MAX_LIMIT = 1000;
+
+    // DTOs for the changes response
+    public static class ChangesResponse {
+        @JsonProperty("resyncRequired")
+        private final boolean resyncRequired;
+
+        @JsonProperty("nextSince")
+        private final long nextSince;
+
+        @JsonProperty("hasMore")
+        private final boolean hasMore;
+
+        @JsonProperty("changes")
+        private final List<Change> changes;
+
+        ChangesResponse(boolean resyncRequired, long nextSince, boolean hasMore, List<Change> changes) {
+            this.resyncRequired = resyncRequired;
+            this.nextSince = nextSince;
+            this.hasMore = hasMore;
+            this.changes = changes;
+        }
+    }
+
+    public static class Change {
+        @JsonProperty("seq")
+        private final long seq;
+
+        @JsonProperty("entityType")
+        private final String entityType;
+
+        @JsonProperty("entityId")
+        private final long entityId;
+
+        @JsonProperty("operation")
+        private ChangeLogEntry.Operation operation;
+
+        // Current state; null for deletes
+        @JsonProperty("entity")
+        private Object entity;
+
+        Change(ChangeLogEntry entry) {
+            this.seq = entry.getSeq();
+            this.entityType = entry.getEntityType();
+            this.entityId = entry.getEntityId();
+            this.operation = entry.getOperation();
+        }
+    }
+
+    @GET
+    public Response getChanges(@QueryParam("since") Long since,
+                               @QueryParam("limit") @DefaultValue("500") int limit) {
+        if (since == null || since < 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("since is required and must be 0 or greater")
+                .build();
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("limit must be between 1 and " + MAX_LIMIT)
+                .build();
+        }
+
+        // Sequence numbers are final and in commit order (see ChangeLog): no transaction still in
+        // flight can commit an entry below the newest one visible here
+        Session session = UnitOfWork.currentSession();
+
+        Object[] bounds = session.createQuery(
+            "select h.seq, h.compactedThrough from ChangeLogHead h where h.id = :id", Object[].class)
+            .setParameter("id", ChangeLogHead.ID)
+            .uniqueResult();
+        long head = bounds == null ? 0 : (Long) bounds[0];
+        long compactedThrough = bounds == null ? 0 : (Long) bounds[1];
+
+        // Entries after "since" were compacted, or the client is ahead of this database. Numbers
+        // have gaps, so only the recorded watermark tells compaction apart from a gap.
+        if (since < compactedThrough || since > head) {
+            return Response.ok(new ChangesResponse(true, head, false, List.of())).build();
+        }
+
+        List<ChangeLogEntry> entries = session.createQuery(
+            "from ChangeLogEntry c where c.seq > :since order by c.seq", ChangeLogEntry.class)
+            .setParameter("since", since)
+            .setMaxResults(limit + 1)
+            .list();
+        boolean hasMore = entries.size() > limit;
+        if (hasMore) {
+            entries = entries.subList(0, limit);
+        }
+        long nextSince = entries.isEmpty() ? since : entries.get(entries.size() - 1).getSeq();
+
+        return Response.ok(new ChangesResponse(false, nextSince, hasMore, collapse(session, entries))).build();
+    }
+
+    // One change per entity (its latest entry, in sequence order) with the entity's current state
+    private List<Change> collapse(Session session, List<ChangeLogEntry> entries) {
+        Map<String, Change> latest = new LinkedHashMap<>();
+        for (ChangeLogEntry entry : entries) {
+            String key = entry.getEntityType() + ":" + entry.getEntityId();
+            latest.remove(key);
+            latest.put(key, new Change(entry));
+        }
+
+        Map<String, List<Change>> byType = new LinkedHashMap<>();
+        for (Change change : latest.values()) {
+            if (change.operation != ChangeLogEntry.Operation.DELETE) {
+                byType.computeIfAbsent(change.entityType, t -> new ArrayList<>()).add(change);
+            }
+        }
+        for (Map.Entry<String, List<Change>> group : byType.entrySet()) {
+            List<Long> ids = new ArrayList<>();
+            for (Change change : group.getValue()) {
+                ids.add(change.entityId);
+            }
+            List<?> entities = session.byMultipleIds(ChangeLog.entityClass(group.getKey()))
+                .enableOrderedReturn(true)
+                .multiLoad(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                Change change = group.getValue().get(i);
+                change.entity = entities.get(i);
+                // Deleted by a later entry that is not part of this page yet
+                if (change.entity == null) {
+                    change.operation = ChangeLogEntry.Operation.DELETE;
+                }
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+}
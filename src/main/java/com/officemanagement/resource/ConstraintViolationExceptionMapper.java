@@ -0,0 +1,131 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.util.IdempotencyStore;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns unique constraint violations raised on flush/commit into 409 Conflict,
+ * so resources don't need a SELECT COUNT(...) before every insert or update.
+ * Resources that flush through {@link #flush} get the offending number in the message.
+ * Failed @Version checks (a concurrent write got there first) become 412 Precondition Failed.
+ * A commit whose Idempotency-Key was taken over by a retry becomes 409 as well.
+ */
+@Provider
+public class ConstraintViolationExceptionMapper implements ExceptionMapper<PersistenceException> {
+    private static final Logger logger = LoggerFactory.getLogger(ConstraintViolationExceptionMapper.class);
+
+    // Constraint name (as declared in the entities and migrations) -> client message, where
+    // %s is "number <value>" when the value is known and "this number" otherwise
+    private static final Map<String, String> MESSAGES = new LinkedHashMap<>();
+    static {
+        MESSAGES.put("uk_floors_floor_number", "A floor with %s already exists");
+        MESSAGES.put("uk_office_rooms_floor_room_number", "A room with %s already exists on this floor");
+        MESSAGES.put("uk_seats_room_seat_number", "A seat with %s already exists in this room");
+    }
+
+    /**
+     * Flushes the session, attaching the given number to a unique constraint violation so
+     * the 409 can name it ("A seat with number 101-1 already exists in this room").
+     */
+    public static void flush(Session session, Object number) {
+        try {
+            session.flush();
+        } catch (PersistenceException e) {
+            if (find(e, ConstraintViolationException.class) != null) {
+                throw new DuplicateNumberException(number, e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Response toResponse(PersistenceException exception) {
+        if (isOptimisticLockFailure(exception)) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                .type(MediaType.TEXT_PLAIN)
+                .entity("The resource was modified concurrently; reload it and retry")
+                .build();
+        }
+
+        if (find(exception, IdempotencyStore.ClaimLostException.class) != null) {
+            return Response.status(Response.Status.CONFLICT)
+                .type(MediaType.TEXT_PLAIN)
+                .entity("A retry with the same Idempotency-Key took this request over; nothing was changed")
+                .build();
+        }
+
+        ConstraintViolationException violation = find(exception, ConstraintViolationException.class);
+        if (violation != null) {
+            DuplicateNumberException duplicate = find(exception, DuplicateNumberException.class);
+            String message = messageFor(violation.getConstraintName(), duplicate == null ? null : duplicate.number);
+            if (message != null) {
+                return Response.status(Response.Status.CONFLICT)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(message)
+                    .build();
+            }
+        }
+
+        logger.error("Unhandled persistence error", exception);
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+            .type(MediaType.TEXT_PLAIN)
+            .entity("Database error")
+            .build();
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable exception) {
+        for (Throwable t = exception; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T extends Throwable> T find(Throwable exception, Class<T> type) {
+        for (Throwable t = exception; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return type.cast(t);
+            }
+        }
+        return null;
+    }
+
+    private static String messageFor(String constraintName, Object number) {
+        if (constraintName == null) {
+            return null;
+        }
+        // Drivers decorate the name differently (H2 upper-cases it and appends the index name)
+        String name = constraintName.toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, String> entry : MESSAGES.entrySet()) {
+            if (name.contains(entry.getKey())) {
+                return String.format(entry.getValue(), number == null ? "this number" : "number " + number);
+            }
+        }
+        return null;
+    }
+
+    // Carries the number being written from flush() to toResponse()
+    private static final class DuplicateNumberException extends PersistenceException {
+        private final Object number;
+
+        DuplicateNumberException(Object number, PersistenceException cause) {
+            super(cause.getMessage(), cause);
+            this.number = number;
+        }
+    }
+}
@@ -1,16 +1,37 @@
 package com.officemanagement.resource;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.officemanagement.filter.NoUnitOfWork;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReadWrite;
+import com.officemanagement.index.EmployeeNameIndex;
+import com.officemanagement.model.AuditEvent;
 import com.officemanagement.model.Employee;
 import com.officemanagement.model.Seat;
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.FieldSelection;
 import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
+import com.officemanagement.util.TextNormalizer;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.query.Query;
 
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.persistence.Tuple;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 // Add static inner class for pagination response
 class PageResponse<T> {
@@ -19,13 +40,22 @@ class PageResponse<T> {
     private int totalPages;
     private int currentPage;
     private int size;
+    // Only with ?facets=true
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, List<FacetCount>> facets;
 
     public PageResponse(List<T> content, long totalElements, int currentPage, int size) {
+        this(content, totalElements, currentPage, size, null);
+    }
+
+    public PageResponse(List<T> content, long totalElements, int currentPage, int size,
+                        Map<String, List<FacetCount>> facets) {
         this.content = content;
         this.totalElements = totalElements;
         this.currentPage = currentPage;
         this.size = size;
         this.totalPages = (int) Math.ceil(totalElements / (double) size);
+        this.facets = facets;
     }
 
     // Getters and setters
@@ -39,9 +69,33 @@ class PageResponse<T> {
     public void setCurrentPage(int currentPage) { this.currentPage = currentPage; }
     public int getSize() { return size; }
     public void setSize(int size) { this.size = size; }
+    public Map<String, List<FacetCount>> getFacets() { return facets; }
+    public void setFacets(Map<String, List<FacetCount>> facets) { this.facets = facets; }
+}
+
+// One value of a search facet and how many results have it
+class FacetCount {
+    private Object value;
+    private String label;
+    private long count;
+
+    public FacetCount(Object value, String label, long count) {
+        this.value = value;
+        this.label = label;
+        this.count = count;
+    }
+
+    // Getters and setters
+    public Object getValue() { return value; }
+    public void setValue(Object value) { this.value = value; }
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
 }
 
 @Path("/employees")
+@ReadOnly
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class EmployeeResource {
@@ -51,47 +105,75 @@ public class EmployeeResource {
         this.sessionFactory = HibernateUtil.getSessionFactory();
     }
 
+    @GET
+    public Response getEmployees(@QueryParam("ids") List<String> idParams, @QueryParam("fields") String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        List<Long> ids = MultiIdLoader.parseIds(idParams);
+        Response invalid = MultiIdLoader.validate(ids);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        Session session = UnitOfWork.currentSession();
+        // Same shape as GET /employees/{id}: seats and their rooms come with the employees
+        RootGraph<Employee> graph = null;
+        if (FieldSelection.includes(selection, "seats")) {
+            graph = session.createEntityGraph(Employee.class);
+            graph.addSubgraph("seats").addAttributeNodes("room");
+        }
+
+        return Response.ok(FieldSelection.apply(selection, MultiIdLoader.load(session, Employee.class,
+            graph, ids, MultiIdLoader.batchSize(sessionFactory)))).build();
+    }
+
     @GET
     @Path("/{id}")
-    public Response getEmployee(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            Employee employee = session.createQuery(
-                "select distinct e from Employee e " +
-                "left join fetch e.seats s " +
-                "left join fetch s.room r " +
-                "where e.id = :id", 
-                Employee.class)
-                .setParameter("id", id)
-                .uniqueResult();
-            
-            if (employee == null) {
-                return Response.status(Response.Status.NOT_FOUND).build();
-            }
-            return Response.ok(employee).build();
+    public Response getEmployee(@PathParam("id") Long id, @QueryParam("fields") String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        Session session = UnitOfWork.currentSession();
+        // Seats and their rooms are joined only when the requested fields need them
+        String seatJoins = FieldSelection.includes(selection, "seats")
+            ? "left join fetch e.seats s left join fetch s.room r "
+            : "";
+        Employee employee = session.createQuery(
+            "select distinct e from Employee e " +
+            seatJoins +
+            "where e.id = :id", 
+            Employee.class)
+            .setParameter("id", id)
+            .uniqueResult();
+        
+        if (employee == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+
+        // The entity's own version; nested collections in the body do not move it
+        return Response.ok(FieldSelection.apply(selection, employee))
+            .tag(Versions.tag(employee.getVersion()))
+            .build();
     }
 
     @GET
     @Path("/{id}/seats")
-    public Response getEmployeeSeats(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            Employee employee = session.createQuery(
-                "select distinct e from Employee e " +
-                "left join fetch e.seats s " +
-                "left join fetch s.room r " +
-                "where e.id = :id", 
-                Employee.class)
-                .setParameter("id", id)
-                .uniqueResult();
-            
-            if (employee == null) {
-                return Response.status(Response.Status.NOT_FOUND).build();
-            }
-            return Response.ok(employee.getSeats()).build();
+    public Response getEmployeeSeats(@PathParam("id") Long id, @QueryParam("fields") String fields) {
+        Session session = UnitOfWork.currentSession();
+        Employee employee = session.createQuery(
+            "select distinct e from Employee e " +
+            "left join fetch e.seats s " +
+            "left join fetch s.room r " +
+            "where e.id = :id", 
+            Employee.class)
+            .setParameter("id", id)
+            .uniqueResult();
+        
+        if (employee == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+        return Response.ok(FieldSelection.apply(FieldSelection.parse(fields), employee.getSeats())).build();
     }
 
     @POST
+    @ReadWrite
     public Response createEmployee(Employee employee) {
         // Validate input
         if (employee == null || employee.getFullName() == null || employee.getFullName().trim().isEmpty()) {
@@ -106,80 +188,105 @@ public class EmployeeResource {
                 .build();
         }
 
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            session.save(employee);
-            session.getTransaction().commit();
-            return Response.status(Response.Status.CREATED).entity(employee).build();
-        }
+        Session session = UnitOfWork.currentSession();
+        session.save(employee);
+        ChangeLog.record(session, employee, ChangeLogEntry.Operation.CREATE);
+        return Response.status(Response.Status.CREATED)
+            .entity(employee)
+            .tag(Versions.tag(employee.getVersion()))
+            .build();
     }
 
     @PUT
     @Path("/{id}/assign-seat/{seatId}")
-    public Response assignSeat(@PathParam("id") Long employeeId, @PathParam("seatId") Long seatId) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            Employee employee = session.get(Employee.class, employeeId);
-            if (employee == null) {
-                return Response.status(Response.Status.NOT_FOUND).entity("Employee not found").build();
-            }
+    @ReadWrite
+    public Response assignSeat(@PathParam("id") Long employeeId, @PathParam("seatId") Long seatId,
+                               @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        Employee employee = session.get(Employee.class, employeeId);
+        if (employee == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Employee not found").build();
+        }
 
-            Seat seat = session.get(Seat.class, seatId);
-            if (seat == null) {
-                return Response.status(Response.Status.NOT_FOUND).entity("Seat not found").build();
-            }
+        Response preconditionFailed = Versions.checkPreconditions(request, employee.getVersion(), "Employee");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
 
-            // Check if seat is already occupied
-            if (seat.getEmployee() != null) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("Seat is already occupied").build();
-            }
+        Seat seat = session.get(Seat.class, seatId);
+        if (seat == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Seat not found").build();
+        }
 
-            // Add seat to employee's seats
-            employee.addSeat(seat);
-            
-            // Update both entities
-            session.update(seat);
-            session.update(employee);
-            
-            session.getTransaction().commit();
-            
-            return Response.ok(employee).build();
+        // Check if seat is already occupied
+        if (seat.getEmployee() != null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Seat is already occupied").build();
         }
+
+        // A hot desk with upcoming reservations cannot become someone's permanent seat
+        Long upcoming = session.createQuery(
+            "select count(r) from Reservation r where r.seat.id = :seatId and r.endTime > :now", Long.class)
+            .setParameter("seatId", seatId)
+            .setParameter("now", LocalDateTime.now())
+            .uniqueResult();
+        if (upcoming > 0) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Seat has upcoming reservations").build();
+        }
+
+        // Add seat to employee's seats
+        employee.addSeat(seat);
+        
+        // Update both entities
+        session.update(seat);
+        EntityTag tag = Versions.forceIncrement(session, employee);
+        ChangeLog.record(session, seat, ChangeLogEntry.Operation.UPDATE);
+        ChangeLog.record(session, employee, ChangeLogEntry.Operation.UPDATE);
+        
+        Audits.record(sessionFactory, AuditEvent.Action.ASSIGN, ChangeLog.SEAT, seatId, employeeId, null);
+        
+        return Response.ok(employee)
+            .tag(tag)
+            .build();
     }
 
     @DELETE
     @Path("/{employeeId}/unassign-seat/{seatId}")
-    public Response unassignSeat(@PathParam("employeeId") Long employeeId, @PathParam("seatId") Long seatId) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            Employee employee = session.get(Employee.class, employeeId);
-            if (employee == null) {
-                return Response.status(Response.Status.NOT_FOUND).entity("Employee not found").build();
-            }
+    @ReadWrite
+    public Response unassignSeat(@PathParam("employeeId") Long employeeId, @PathParam("seatId") Long seatId,
+                                 @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        Employee employee = session.get(Employee.class, employeeId);
+        if (employee == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Employee not found").build();
+        }
 
-            Seat seat = session.get(Seat.class, seatId);
-            if (seat == null) {
-                return Response.status(Response.Status.NOT_FOUND).entity("Seat not found").build();
-            }
+        Response preconditionFailed = Versions.checkPreconditions(request, employee.getVersion(), "Employee");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
 
-            // Check if this seat belongs to the employee
-            if (seat.getEmployee() == null || !seat.getEmployee().getId().equals(employeeId)) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("This seat is not assigned to the employee").build();
-            }
+        Seat seat = session.get(Seat.class, seatId);
+        if (seat == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Seat not found").build();
+        }
 
-            // Just set the employee reference to null instead of removing the seat
-            seat.setEmployee(null);
-            session.update(seat);
-            
-            session.getTransaction().commit();
-            
-            // Refresh the employee to get the updated state
-            session.refresh(employee);
-            
-            return Response.ok(employee).build();
+        // Check if this seat belongs to the employee
+        if (seat.getEmployee() == null || !seat.getEmployee().getId().equals(employeeId)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("This seat is not assigned to the employee").build();
         }
+
+        // Just set the employee reference to null instead of removing the seat
+        seat.setEmployee(null);
+        session.update(seat);
+        EntityTag tag = Versions.forceIncrement(session, employee);
+        ChangeLog.record(session, seat, ChangeLogEntry.Operation.UPDATE);
+        ChangeLog.record(session, employee, ChangeLogEntry.Operation.UPDATE);
+        
+        Audits.record(sessionFactory, AuditEvent.Action.UNASSIGN, ChangeLog.SEAT, seatId, employeeId, null);
+        
+        return Response.ok(employee)
+            .tag(tag)
+            .build();
     }
 
     @GET
@@ -187,7 +294,13 @@ public class EmployeeResource {
     public Response searchEmployees(
             @QueryParam("search") @DefaultValue("") String searchTerm,
             @QueryParam("page") @DefaultValue("0") int page,
-            @QueryParam("size") @DefaultValue("10") int size) {
+            @QueryParam("size") @DefaultValue("10") int size,
+            @QueryParam("fields") String fields,
+            @QueryParam("floorId") Long floorId,
+            @QueryParam("roomId") Long roomId,
+            @QueryParam("occupation") String occupation,
+            @QueryParam("seated") Boolean seated,
+            @QueryParam("facets") @DefaultValue("false") boolean facets) {
         
         // Validate pagination parameters
         if (page < 0) {
@@ -210,34 +323,166 @@ public class EmployeeResource {
                 .build();
         }
 
-        try (Session session = sessionFactory.openSession()) {
-            // Create the base query for total count
-            String countQuery = "select count(distinct e) from Employee e " +
-                    "where lower(e.fullName) like lower(:searchTerm) " +
-                    "or lower(e.occupation) like lower(:searchTerm)";
-            
-            Long totalElements = session.createQuery(countQuery, Long.class)
-                    .setParameter("searchTerm", "%" + searchTerm + "%")
-                    .uniqueResult();
-
-            // Create the main query with pagination
-            String query = "select distinct e from Employee e " +
-                    "left join fetch e.seats s " +
-                    "left join fetch s.room r " +
-                    "where lower(e.fullName) like lower(:searchTerm) " +
-                    "or lower(e.occupation) like lower(:searchTerm)";
-
-            List<Employee> employees = session.createQuery(query, Employee.class)
-                    .setParameter("searchTerm", "%" + searchTerm + "%")
+        SearchFilters filters = new SearchFilters(searchTerm, floorId, roomId, occupation, seated);
+        FieldSelection selection = FieldSelection.parse(fields);
+
+        Session session = UnitOfWork.currentSession();
+        // Create the base query for total count
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String where = filters.where(parameters, null);
+        Query<Long> countQuery = session.createQuery("select count(e) from Employee e " + where, Long.class);
+        parameters.forEach(countQuery::setParameter);
+        Long totalElements = countQuery.uniqueResult();
+
+        Map<String, List<FacetCount>> facetCounts = facets ? facetCounts(session, filters) : null;
+
+        // Only basic columns requested: select just those instead of hydrating employees
+        List<String> columns = selection == null
+                ? null : selection.basicAttributes(sessionFactory.getMetamodel(), Employee.class);
+        if (columns != null) {
+            String projection = "select " + columns.stream().map(c -> "e." + c).collect(Collectors.joining(", ")) +
+                    " from Employee e " + where + " order by e.id";
+
+            List<Map<String, Object>> rows = new ArrayList<>();
+            Query<Tuple> rowQuery = session.createQuery(projection, Tuple.class);
+            parameters.forEach(rowQuery::setParameter);
+            for (Tuple tuple : rowQuery
                     .setFirstResult(page * size)
                     .setMaxResults(size)
+                    .list()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    row.put(columns.get(i), tuple.get(i));
+                }
+                rows.add(row);
+            }
+            return Response.ok(new PageResponse<>(rows, totalElements, page, size, facetCounts)).build();
+        }
+
+        // The page is cut from employee ids in the database; fetch-joining seats into a
+        // paginated query would make Hibernate read every match and paginate in memory
+        Query<Long> idQuery = session.createQuery("select e.id from Employee e " + where + " order by e.id", Long.class);
+        parameters.forEach(idQuery::setParameter);
+        List<Long> ids = idQuery
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .list();
+
+        List<Employee> employees = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            // Seats are joined only when requested, with their rooms' floors: one select per
+            // floor otherwise
+            String seatJoins = FieldSelection.includes(selection, "seats")
+                    ? "left join fetch e.seats s left join fetch s.room r left join fetch r.floor "
+                    : "";
+            employees = session.createQuery(
+                    "select distinct e from Employee e " +
+                    seatJoins +
+                    "where e.id in :ids " +
+                    "order by e.id", Employee.class)
+                    .setParameter("ids", ids)
                     .list();
+        }
+
+        PageResponse<Employee> pageResponse = new PageResponse<>(
+            employees, totalElements, page, size, facetCounts
+        );
+
+        return Response.ok(FieldSelection.apply(selection, pageResponse)).build();
+    }
 
-            PageResponse<Employee> pageResponse = new PageResponse<>(
-                employees, totalElements, page, size
-            );
+    /**
+     * Counts per occupation and per floor (of the employees' seats) for the search results,
+     * one grouped query each. Each facet ignores its own filter, so the counts show what
+     * choosing another value would give.
+     */
+    private static Map<String, List<FacetCount>> facetCounts(Session session, SearchFilters filters) {
+        Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
 
-            return Response.ok(pageResponse).build();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        Query<Object[]> occupations = session.createQuery(
+            "select min(e.occupation), count(e) from Employee e " + filters.where(parameters, "occupation") +
+            " group by e.occupationNormalized order by count(e) desc, min(e.occupation)", Object[].class);
+        parameters.forEach(occupations::setParameter);
+        List<FacetCount> occupationCounts = new ArrayList<>();
+        for (Object[] row : occupations.list()) {
+            occupationCounts.add(new FacetCount(row[0], (String) row[0], (Long) row[1]));
+        }
+        facets.put("occupation", occupationCounts);
+
+        // An employee with several seats on a floor counts once for it
+        parameters = new LinkedHashMap<>();
+        String where = filters.where(parameters, "floorId");
+        Query<Object[]> floors = session.createQuery(
+            "select f.id, f.name, count(distinct e.id) from Employee e " +
+            "join e.seats fs join fs.room fr join fr.floor f " + where +
+            " group by f.id, f.name, f.floorNumber order by f.floorNumber", Object[].class);
+        parameters.forEach(floors::setParameter);
+        List<FacetCount> floorCounts = new ArrayList<>();
+        for (Object[] row : floors.list()) {
+            floorCounts.add(new FacetCount(row[0], (String) row[1], (Long) row[2]));
+        }
+        facets.put("floor", floorCounts);
+        return facets;
+    }
+
+    // The filters of GET /employees/search, as one where clause on Employee e
+    private static final class SearchFilters {
+        private final String pattern;
+        private final Long floorId;
+        private final Long roomId;
+        private final String occupation;
+        private final Boolean seated;
+
+        SearchFilters(String searchTerm, Long floorId, Long roomId, String occupation, Boolean seated) {
+            // Match against the normalized search columns so case and accents don't matter
+            this.pattern = "%" + TextNormalizer.normalize(searchTerm) + "%";
+            this.floorId = floorId;
+            this.roomId = roomId;
+            this.occupation = occupation == null || occupation.isBlank() ? null : TextNormalizer.normalize(occupation);
+            this.seated = seated;
+        }
+
+        // Seat conditions are subqueries, so an employee is one row whatever their seats
+        String where(Map<String, Object> parameters, String skip) {
+            StringBuilder where = new StringBuilder(
+                "where (e.fullNameNormalized like :searchTerm or e.occupationNormalized like :searchTerm)");
+            parameters.put("searchTerm", pattern);
+            if (occupation != null && !"occupation".equals(skip)) {
+                where.append(" and e.occupationNormalized = :occupation");
+                parameters.put("occupation", occupation);
+            }
+            if (floorId != null && !"floorId".equals(skip)) {
+                where.append(" and exists (select 1 from Seat s where s.employee = e and s.room.floor.id = :floorId)");
+                parameters.put("floorId", floorId);
+            }
+            if (roomId != null) {
+                where.append(" and exists (select 1 from Seat s where s.employee = e and s.room.id = :roomId)");
+                parameters.put("roomId", roomId);
+            }
+            if (seated != null) {
+                where.append(seated ? " and " : " and not ").append("exists (select 1 from Seat s where s.employee = e)");
+            }
+            return where.toString();
+        }
+    }
+
+    /**
+     * Typeahead: employees with a name word starting with the prefix, case and accents ignored,
+     * answered from EmployeeNameIndex without going to the database.
+     */
+    @GET
+    @Path("/suggest")
+    @NoUnitOfWork
+    public Response suggestEmployees(
+            @QueryParam("prefix") @DefaultValue("") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+        final int MAX_LIMIT = 50;
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Limit must be between 1 and " + MAX_LIMIT)
+                .build();
         }
+        return Response.ok(EmployeeNameIndex.get(sessionFactory).suggest(prefix, limit)).build();
     }
 }
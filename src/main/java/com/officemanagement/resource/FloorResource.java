@@ -1,17 +1,30 @@
 package com.officemanagement.resource;
 
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReadWrite;
+import com.officemanagement.filter.ReplicaRead;
+import com.officemanagement.index.SeatGraph;
+import com.officemanagement.model.AuditEvent;
 import com.officemanagement.model.Floor;
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.FieldSelection;
 import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Path("/floors")
+@ReadOnly
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class FloorResource {
@@ -22,36 +35,58 @@ public class FloorResource {
     }
 
     @GET
-    public Response getAllFloors() {
-        try (Session session = sessionFactory.openSession()) {
-            List<Floor> floors = session.createQuery(
-                "select new Floor(f.id, f.name, f.floorNumber) from Floor f", 
-                Floor.class).list();
-            return Response.ok(floors).build();
-        }
+    public Response getAllFloors(@QueryParam("fields") String fields) {
+        Session session = UnitOfWork.currentSession();
+        List<Floor> floors = session.createQuery(
+            "select new Floor(f.id, f.name, f.floorNumber) from Floor f", 
+            Floor.class).list();
+        return Response.ok(FieldSelection.apply(FieldSelection.parse(fields), floors)).build();
     }
 
     @GET
     @Path("/{id}")
-    public Response getFloor(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            // Using criteria to fetch the floor and its associations
-            Floor floor = session.createQuery(
-                "select distinct f from Floor f " +
-                "left join fetch f.rooms r " +
-                "left join fetch r.seats " +
-                "where f.id = :id", Floor.class)
-                .setParameter("id", id)
-                .uniqueResult();
-                
+    @ReplicaRead
+    public Response getFloor(@PathParam("id") Long id, @QueryParam("fields") String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        if (SeatGraph.servesReads(sessionFactory)) {
+            Floor floor = SeatGraph.get(sessionFactory).floor(id, FieldSelection.includes(selection, "rooms"),
+                FieldSelection.includes(selection, "rooms.seats"));
             if (floor == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            return Response.ok(floor).build();
+            return Response.ok(FieldSelection.apply(selection, floor))
+                .tag(Versions.tag(floor.getVersion()))
+                .build();
+        }
+
+        Session session = UnitOfWork.currentSession();
+        // Fetch the floor and only the associations the requested fields need
+        StringBuilder query = new StringBuilder("select distinct f from Floor f ");
+        if (FieldSelection.includes(selection, "rooms")) {
+            query.append("left join fetch f.rooms r ");
+            if (FieldSelection.includes(selection, "rooms.seats")) {
+                // Seat.employee is an eager to-one: join it rather than select it per seat
+                query.append("left join fetch r.seats s left join fetch s.employee ");
+            }
         }
+        query.append("where f.id = :id");
+
+        Floor floor = session.createQuery(query.toString(), Floor.class)
+            .setParameter("id", id)
+            .uniqueResult();
+            
+        if (floor == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        // The entity's own version; nested collections in the body do not move it
+        return Response.ok(FieldSelection.apply(selection, floor))
+            .tag(Versions.tag(floor.getVersion()))
+            .build();
     }
 
     @POST
+    @ReadWrite
     public Response createFloor(Floor floor) {
         // Validate input
         if (floor == null || floor.getName() == null || floor.getName().trim().isEmpty()) {
@@ -66,29 +101,22 @@ public class FloorResource {
                 .build();
         }
 
-        try (Session session = sessionFactory.openSession()) {
-            // Check for duplicate floor number
-            Long count = session.createQuery(
-                "SELECT COUNT(f) FROM Floor f WHERE f.floorNumber = :floorNumber", Long.class)
-                .setParameter("floorNumber", floor.getFloorNumber())
-                .uniqueResult();
-
-            if (count > 0) {
-                return Response.status(Response.Status.CONFLICT)
-                    .entity("A floor with number " + floor.getFloorNumber() + " already exists")
-                    .build();
-            }
-
-            session.beginTransaction();
-            session.save(floor);
-            session.getTransaction().commit();
-            return Response.status(Response.Status.CREATED).entity(floor).build();
-        }
+        // Duplicate floor numbers are rejected by uk_floors_floor_number (mapped to 409)
+        Session session = UnitOfWork.currentSession();
+        session.save(floor);
+        ChangeLog.record(session, floor, ChangeLogEntry.Operation.CREATE);
+        ConstraintViolationExceptionMapper.flush(session, floor.getFloorNumber());
+        Audits.record(sessionFactory, AuditEvent.Action.CREATE, ChangeLog.FLOOR, floor.getId());
+        return Response.status(Response.Status.CREATED)
+            .entity(floor)
+            .tag(Versions.tag(floor.getVersion()))
+            .build();
     }
 
     @PUT
     @Path("/{id}")
-    public Response updateFloor(@PathParam("id") Long id, Floor floor) {
+    @ReadWrite
+    public Response updateFloor(@PathParam("id") Long id, Floor floor, @Context Request request) {
         // Validate input
         if (floor == null || floor.getName() == null || floor.getName().trim().isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
@@ -102,64 +130,90 @@ public class FloorResource {
                 .build();
         }
 
-        try (Session session = sessionFactory.openSession()) {
-            Floor existingFloor = session.get(Floor.class, id);
-            if (existingFloor == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Floor not found")
-                    .build();
-            }
-
-            // Check for duplicate floor number (excluding current floor)
-            Long count = session.createQuery(
-                "SELECT COUNT(f) FROM Floor f WHERE f.floorNumber = :floorNumber AND f.id != :id", Long.class)
-                .setParameter("floorNumber", floor.getFloorNumber())
-                .setParameter("id", id)
-                .uniqueResult();
-
-            if (count > 0) {
-                return Response.status(Response.Status.CONFLICT)
-                    .entity("A floor with number " + floor.getFloorNumber() + " already exists")
-                    .build();
-            }
+        Session session = UnitOfWork.currentSession();
+        Floor existingFloor = session.get(Floor.class, id);
+        if (existingFloor == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Floor not found")
+                .build();
+        }
 
-            session.beginTransaction();
-            existingFloor.setName(floor.getName());
-            existingFloor.setFloorNumber(floor.getFloorNumber());
-            session.update(existingFloor);
-            session.getTransaction().commit();
-            return Response.ok(existingFloor).build();
+        // If-Match must name the version read here; later concurrent writes fail the flush's version check
+        Response preconditionFailed = Versions.checkPreconditions(request, existingFloor.getVersion(), "Floor");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
         }
+
+        // Duplicate floor numbers are rejected by uk_floors_floor_number (mapped to 409)
+        existingFloor.setName(floor.getName());
+        existingFloor.setFloorNumber(floor.getFloorNumber());
+        ChangeLog.record(session, existingFloor, ChangeLogEntry.Operation.UPDATE);
+        // The version moves at flush, and the ETag must carry the new one
+        ConstraintViolationExceptionMapper.flush(session, existingFloor.getFloorNumber());
+        Audits.record(sessionFactory, AuditEvent.Action.UPDATE, ChangeLog.FLOOR, id);
+        return Response.ok(existingFloor)
+            .tag(Versions.tag(existingFloor.getVersion()))
+            .build();
     }
 
     @DELETE
     @Path("/{id}")
-    public Response deleteFloor(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            Floor floor = session.get(Floor.class, id);
-            
-            if (floor == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Floor not found")
-                    .build();
-            }
+    @ReadWrite
+    public Response deleteFloor(@PathParam("id") Long id, @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        Floor floor = session.get(Floor.class, id);
+        
+        if (floor == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Floor not found")
+                .build();
+        }
 
-            // Check if floor has rooms
-            Long roomCount = session.createQuery(
-                "SELECT COUNT(r) FROM OfficeRoom r WHERE r.floor.id = :floorId", Long.class)
-                .setParameter("floorId", id)
-                .uniqueResult();
+        Response preconditionFailed = Versions.checkPreconditions(request, floor.getVersion(), "Floor");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
 
-            if (roomCount > 0) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Cannot delete floor that has rooms")
-                    .build();
-            }
+        // Check if floor has rooms
+        Long roomCount = session.createQuery(
+            "SELECT COUNT(r) FROM OfficeRoom r WHERE r.floor.id = :floorId", Long.class)
+            .setParameter("floorId", id)
+            .uniqueResult();
 
-            session.delete(floor);
-            session.getTransaction().commit();
-            return Response.noContent().build();
+        if (roomCount > 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot delete floor that has rooms")
+                .build();
+        }
+
+        ChangeLog.record(session, floor, ChangeLogEntry.Operation.DELETE);
+        session.delete(floor);
+        Audits.record(sessionFactory, AuditEvent.Action.DELETE, ChangeLog.FLOOR, id);
+        return Response.noContent().build();
+    }
+
+    /**
+     * Unassigns every seat on the floor with one UPDATE, e.g. ahead of an office move.
+     */
+    @DELETE
+    @Path("/{id}/assignments")
+    @ReadWrite
+    public Response clearAssignments(@PathParam("id") Long id) {
+        Session session = UnitOfWork.currentSession();
+        Floor floor = session.get(Floor.class, id);
+
+        if (floor == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Floor not found")
+                .build();
         }
+
+        int updated = SeatAssignments.clear(session,
+            "room_id in (select id from office_rooms where floor_id = :floorId)",
+            "s.room.id in (select r.id from OfficeRoom r where r.floor.id = :floorId)",
+            Map.of("floorId", id));
+        Audits.record(sessionFactory, AuditEvent.Action.CLEAR_ASSIGNMENTS, ChangeLog.FLOOR, id,
+            null, updated + " seats unassigned");
+        return Response.ok(new BulkUpdateResponse(updated)).build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.officemanagement.resource;
+
+import java.util.List;
+
+// Response of the multi-id endpoints: items in request order, null where the id was not found
+class MultiGetResponse<T> {
+    private List<T> items;
+    private List<Long> missing;
+
+    public MultiGetResponse(List<T> items, List<Long> missing) {
+        this.items = items;
+        this.missing = missing;
+    }
+
+    // Getters and setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+    public List<Long> getMissing() { return missing; }
+    public void setMissing(List<Long> missing) { this.missing = missing; }
+}
@@ -0,0 +1,105 @@
+package com.officemanagement.resource;
+
+import jakarta.ws.rs.core.Response;
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shared implementation of the {@code GET /employees?ids=...}, {@code /seats?ids=...} and
+ * {@code /rooms?ids=...} endpoints. Entities are loaded with Hibernate's multi-identifier
+ * loading: the persistence context and second-level cache are checked first and the rest is
+ * read with {@code id in (...)} selects of at most {@link #BATCH_SIZE_PROPERTY} ids each.
+ */
+final class MultiIdLoader {
+    // Ids per "id in (...)" select; set in hibernate.cfg.xml
+    static final String BATCH_SIZE_PROPERTY = "officemanagement.multiload.batch_size";
+    static final int DEFAULT_BATCH_SIZE = 100;
+
+    // Upper bound on ids per request to keep responses and IN lists reasonable
+    static final int MAX_IDS = 1000;
+
+    private MultiIdLoader() {
+    }
+
+    static int batchSize(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(BATCH_SIZE_PROPERTY);
+        return value == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(value.toString().trim());
+    }
+
+    /**
+     * Parses {@code ids=1,2,3} (the parameter may also be repeated). Duplicates are dropped,
+     * keeping the first occurrence, so the response order is the order of first request.
+     * Returns null when the parameter is malformed; {@link #validate} produces the error.
+     */
+    static List<Long> parseIds(List<String> values) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                String trimmed = part.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                try {
+                    ids.add(Long.parseLong(trimmed));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    static Response validate(List<Long> ids) {
+        if (ids == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("ids must be a comma-separated list of numeric ids")
+                .build();
+        }
+        if (ids.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("ids query parameter is required")
+                .build();
+        }
+        if (ids.size() > MAX_IDS) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot request more than " + MAX_IDS + " ids at once")
+                .build();
+        }
+        return null;
+    }
+
+    /**
+     * Loads the entities in request order. The graph, if not null, is applied as a load graph
+     * so the associations the single-entity endpoints fetch-join are part of the same selects;
+     * associations mapped as eager stay eager.
+     */
+    static <T> MultiGetResponse<T> load(Session session, Class<T> entityClass, RootGraph<T> graph,
+                                        List<Long> ids, int batchSize) {
+        MultiIdentifierLoadAccess<T> access = session.byMultipleIds(entityClass)
+            .withBatchSize(batchSize)
+            .enableSessionCheck(true)
+            .enableOrderedReturn(true);
+        if (graph != null) {
+            access.with(graph, GraphSemantic.LOAD);
+        }
+        List<T> loaded = access.multiLoad(ids);
+
+        // Ordered return puts null where an id was not found
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            T entity = loaded.get(i);
+            if (entity == null) {
+                missing.add(ids.get(i));
+            }
+        }
+        return new MultiGetResponse<>(loaded, missing);
+    }
+}
@@ -0,0 +1,173 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReadWrite;
+import com.officemanagement.index.ReservationIndex;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Reservation;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+@Path("/reservations")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class ReservationResource {
+    private final SessionFactory sessionFactory;
+
+    public ReservationResource() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+    }
+
+    @GET
+    @Path("/{id}")
+    @ReadOnly
+    public Response getReservation(@PathParam("id") Long id) {
+        Session session = UnitOfWork.currentSession();
+        Reservation reservation = session.get(Reservation.class, id);
+        if (reservation == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(reservation).build();
+    }
+
+    @POST
+    @ReadWrite
+    public Response createReservation(Reservation reservation) {
+        // Validate input
+        if (reservation == null || reservation.getSeat() == null || reservation.getSeat().getId() == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Seat reference is required")
+                .build();
+        }
+
+        if (reservation.getEmployee() == null || reservation.getEmployee().getId() == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Employee reference is required")
+                .build();
+        }
+
+        if (reservation.getStartTime() == null || reservation.getEndTime() == null
+                || !reservation.getStartTime().isBefore(reservation.getEndTime())) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Start time must be before end time")
+                .build();
+        }
+
+        if (!reservation.getEndTime().isAfter(LocalDateTime.now())) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Reservation must end in the future")
+                .build();
+        }
+
+        Session session = UnitOfWork.currentSession();
+        // Lock the seat so concurrent reservations of it are checked one after the other
+        Seat seat = session.get(Seat.class, reservation.getSeat().getId(), LockMode.PESSIMISTIC_WRITE);
+        if (seat == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced seat does not exist")
+                .build();
+        }
+
+        if (seat.getEmployee() != null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Seat is permanently assigned")
+                .build();
+        }
+
+        Employee employee = session.get(Employee.class, reservation.getEmployee().getId());
+        if (employee == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced employee does not exist")
+                .build();
+        }
+
+        // The database is authoritative for conflicts; the index only serves availability reads
+        Long overlapping = session.createQuery(
+            "select count(r) from Reservation r where r.seat.id = :seatId " +
+            "and r.startTime < :end and r.endTime > :start", Long.class)
+            .setParameter("seatId", seat.getId())
+            .setParameter("start", reservation.getStartTime())
+            .setParameter("end", reservation.getEndTime())
+            .uniqueResult();
+        if (overlapping > 0) {
+            return Response.status(Response.Status.CONFLICT)
+                .entity("Seat is already reserved in this time range")
+                .build();
+        }
+
+        reservation.setSeat(seat);
+        reservation.setEmployee(employee);
+        session.save(reservation);
+        ChangeLog.touch(session);
+
+        return Response.status(Response.Status.CREATED).entity(reservation).build();
+    }
+
+    @DELETE
+    @Path("/{id}")
+    @ReadWrite
+    public Response deleteReservation(@PathParam("id") Long id) {
+        Session session = UnitOfWork.currentSession();
+        Reservation reservation = session.get(Reservation.class, id);
+        if (reservation == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Reservation not found")
+                .build();
+        }
+
+        session.delete(reservation);
+        ChangeLog.touch(session);
+
+        return Response.noContent().build();
+    }
+
+    /**
+     * Free seats for a time range, e.g.
+     * {@code /reservations/free-seats?floorId=3&start=2024-05-02T09:00&end=2024-05-02T13:00}.
+     * Answered from the in-memory ReservationIndex without touching the database.
+     */
+    @GET
+    @Path("/free-seats")
+    public Response getFreeSeats(
+            @QueryParam("floorId") Long floorId,
+            @QueryParam("roomId") Long roomId,
+            @QueryParam("start") String start,
+            @QueryParam("end") String end) {
+        LocalDateTime startTime;
+        LocalDateTime endTime;
+        try {
+            startTime = LocalDateTime.parse(start);
+            endTime = LocalDateTime.parse(end);
+        } catch (NullPointerException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("start and end are required ISO-8601 local date-times, e.g. 2024-05-02T09:00")
+                .build();
+        }
+
+        if (!startTime.isBefore(endTime)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Start time must be before end time")
+                .build();
+        }
+
+        ReservationIndex index = ReservationIndex.get(sessionFactory);
+        if (startTime.isBefore(index.coversFrom())) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Availability can only be queried from " + index.coversFrom() + " on")
+                .build();
+        }
+
+        return Response.ok(index.freeSeats(floorId, roomId, startTime, endTime)).build();
+    }
+}
@@ -1,19 +1,34 @@
 package com.officemanagement.resource;
 
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReadWrite;
+import com.officemanagement.filter.ReplicaRead;
+import com.officemanagement.index.SeatGraph;
 import com.officemanagement.model.OfficeRoom;
 import com.officemanagement.model.Seat;
 import com.officemanagement.model.Floor;
+import com.officemanagement.model.AuditEvent;
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.DataChanges;
+import com.officemanagement.util.FieldSelection;
 import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.graph.RootGraph;
 
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Path("/rooms")
+@ReadOnly
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class RoomResource {
@@ -23,7 +38,29 @@ public class RoomResource {
         this.sessionFactory = HibernateUtil.getSessionFactory();
     }
 
+    @GET
+    public Response getRooms(@QueryParam("ids") List<String> idParams, @QueryParam("fields") String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        List<Long> ids = MultiIdLoader.parseIds(idParams);
+        Response invalid = MultiIdLoader.validate(ids);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        Session session = UnitOfWork.currentSession();
+        // Same shape as GET /rooms/{id}: seats and their occupants come with the rooms
+        RootGraph<OfficeRoom> graph = null;
+        if (FieldSelection.includes(selection, "seats")) {
+            graph = session.createEntityGraph(OfficeRoom.class);
+            graph.addSubgraph("seats").addAttributeNodes("employee");
+        }
+
+        return Response.ok(FieldSelection.apply(selection, MultiIdLoader.load(session, OfficeRoom.class,
+            graph, ids, MultiIdLoader.batchSize(sessionFactory)))).build();
+    }
+
     @POST
+    @ReadWrite
     public Response createRoom(OfficeRoom room) {
         // Validate input
         if (room == null || room.getName() == null || room.getName().trim().isEmpty()) {
@@ -38,90 +75,105 @@ public class RoomResource {
                 .build();
         }
 
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            // Validate that floor is provided
-            if (room.getFloor() == null || room.getFloor().getId() == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Floor reference is required")
-                    .build();
-            }
-            
-            // Load the referenced floor
-            Floor floor = session.get(Floor.class, room.getFloor().getId());
-            if (floor == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Referenced floor does not exist")
-                    .build();
-            }
-
-            // Check for duplicate room number in the same floor
-            Long count = session.createQuery(
-                "SELECT COUNT(r) FROM OfficeRoom r WHERE r.floor.id = :floorId AND r.roomNumber = :roomNumber", Long.class)
-                .setParameter("floorId", floor.getId())
-                .setParameter("roomNumber", room.getRoomNumber())
-                .uniqueResult();
-
-            if (count > 0) {
-                return Response.status(Response.Status.CONFLICT)
-                    .entity("A room with number " + room.getRoomNumber() + " already exists on this floor")
-                    .build();
-            }
-
-            room.setFloor(floor);
-            session.save(room);
-            session.getTransaction().commit();
-            
-            return Response.status(Response.Status.CREATED)
-                .entity(room)
+        Session session = UnitOfWork.currentSession();
+        // Validate that floor is provided
+        if (room.getFloor() == null || room.getFloor().getId() == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Floor reference is required")
                 .build();
         }
+        
+        // Load the referenced floor
+        Floor floor = session.get(Floor.class, room.getFloor().getId());
+        if (floor == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced floor does not exist")
+                .build();
+        }
+
+        // Duplicate room numbers on a floor are rejected by uk_office_rooms_floor_room_number (mapped to 409)
+        room.setFloor(floor);
+        session.save(room);
+        ChangeLog.record(session, room, ChangeLogEntry.Operation.CREATE);
+        ConstraintViolationExceptionMapper.flush(session, room.getRoomNumber());
+        Audits.record(sessionFactory, AuditEvent.Action.CREATE, ChangeLog.ROOM, room.getId());
+        
+        return Response.status(Response.Status.CREATED)
+            .entity(room)
+            .tag(Versions.tag(room.getVersion()))
+            .build();
     }
 
     @GET
     @Path("/{id}")
-    public Response getRoom(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            OfficeRoom room = session.createQuery(
-                "select distinct r from OfficeRoom r " +
-                "left join fetch r.seats s " +
-                "left join fetch s.employee " +
-                "where r.id = :id", OfficeRoom.class)
-                .setParameter("id", id)
-                .uniqueResult();
-                
+    @ReplicaRead
+    public Response getRoom(@PathParam("id") Long id, @QueryParam("fields") String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        if (SeatGraph.servesReads(sessionFactory)) {
+            OfficeRoom room = SeatGraph.get(sessionFactory).room(id, FieldSelection.includes(selection, "seats"));
             if (room == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
+            return Response.ok(FieldSelection.apply(selection, room))
+                .tag(Versions.tag(room.getVersion()))
+                .build();
+        }
+
+        Session session = UnitOfWork.currentSession();
+        // Seats (and their eager employee) are joined only when the requested fields need them
+        String seatJoins = FieldSelection.includes(selection, "seats")
+            ? "left join fetch r.seats s left join fetch s.employee "
+            : "";
+        OfficeRoom room = session.createQuery(
+            "select distinct r from OfficeRoom r " +
+            seatJoins +
+            "where r.id = :id", OfficeRoom.class)
+            .setParameter("id", id)
+            .uniqueResult();
             
-            return Response.ok(room).build();
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+
+        // The entity's own version; nested collections in the body do not move it
+        return Response.ok(FieldSelection.apply(selection, room))
+            .tag(Versions.tag(room.getVersion()))
+            .build();
     }
 
     @GET
     @Path("/{id}/seats")
-    public Response getRoomSeats(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            OfficeRoom room = session.createQuery(
-                "select distinct r from OfficeRoom r " +
-                "left join fetch r.seats " +
-                "where r.id = :id", OfficeRoom.class)
-                .setParameter("id", id)
-                .uniqueResult();
-                
-            if (room == null) {
+    @ReplicaRead
+    public Response getRoomSeats(@PathParam("id") Long id, @QueryParam("fields") String fields) {
+        if (SeatGraph.servesReads(sessionFactory)) {
+            List<Seat> seats = SeatGraph.get(sessionFactory).roomSeats(id);
+            if (seats == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
+            return Response.ok(FieldSelection.apply(FieldSelection.parse(fields), seats)).build();
+        }
+
+        Session session = UnitOfWork.currentSession();
+        OfficeRoom room = session.createQuery(
+            "select distinct r from OfficeRoom r " +
+            "left join fetch r.seats s " +
+            "left join fetch s.employee " +
+            "where r.id = :id", OfficeRoom.class)
+            .setParameter("id", id)
+            .uniqueResult();
             
-            List<Seat> seats = room.getSeats();
-            return Response.ok(seats).build();
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+        
+        List<Seat> seats = room.getSeats();
+        return Response.ok(FieldSelection.apply(FieldSelection.parse(fields), seats)).build();
     }
 
     @PUT
     @Path("/{id}")
-    public Response updateRoom(@PathParam("id") Long id, OfficeRoom room) {
+    @ReadWrite
+    public Response updateRoom(@PathParam("id") Long id, OfficeRoom room, @Context Request request) {
         // Validate input
         if (room == null || room.getName() == null || room.getName().trim().isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
@@ -135,87 +187,211 @@ public class RoomResource {
                 .build();
         }
 
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            // Check if room exists
-            OfficeRoom existingRoom = session.get(OfficeRoom.class, id);
-            if (existingRoom == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Room not found")
-                    .build();
-            }
-            
-            // Validate that floor is provided
-            if (room.getFloor() == null || room.getFloor().getId() == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Floor reference is required")
-                    .build();
-            }
-            
-            // Load the referenced floor
-            Floor floor = session.get(Floor.class, room.getFloor().getId());
-            if (floor == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Referenced floor does not exist")
-                    .build();
-            }
-
-            // Check for duplicate room number in the same floor (excluding current room)
-            Long count = session.createQuery(
-                "SELECT COUNT(r) FROM OfficeRoom r WHERE r.floor.id = :floorId AND r.roomNumber = :roomNumber AND r.id != :roomId", Long.class)
-                .setParameter("floorId", floor.getId())
-                .setParameter("roomNumber", room.getRoomNumber())
-                .setParameter("roomId", id)
-                .uniqueResult();
-
-            if (count > 0) {
-                return Response.status(Response.Status.CONFLICT)
-                    .entity("A room with number " + room.getRoomNumber() + " already exists on this floor")
-                    .build();
-            }
+        Session session = UnitOfWork.currentSession();
+        // Check if room exists
+        OfficeRoom existingRoom = session.get(OfficeRoom.class, id);
+        if (existingRoom == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Room not found")
+                .build();
+        }
 
-            existingRoom.setName(room.getName());
-            existingRoom.setRoomNumber(room.getRoomNumber());
-            existingRoom.setFloor(floor);
-            
-            session.update(existingRoom);
-            session.getTransaction().commit();
-            
-            return Response.ok(existingRoom).build();
+        Response preconditionFailed = Versions.checkPreconditions(request, existingRoom.getVersion(), "Room");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
         }
+        
+        // Validate that floor is provided
+        if (room.getFloor() == null || room.getFloor().getId() == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Floor reference is required")
+                .build();
+        }
+        
+        // Load the referenced floor
+        Floor floor = session.get(Floor.class, room.getFloor().getId());
+        if (floor == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced floor does not exist")
+                .build();
+        }
+
+        // Duplicate room numbers on a floor are rejected by uk_office_rooms_floor_room_number (mapped to 409)
+        existingRoom.setName(room.getName());
+        existingRoom.setRoomNumber(room.getRoomNumber());
+        existingRoom.setFloor(floor);
+        existingRoom.setX(room.getX());
+        existingRoom.setY(room.getY());
+        
+        ChangeLog.record(session, existingRoom, ChangeLogEntry.Operation.UPDATE);
+        // The version moves at flush, and the ETag must carry the new one
+        ConstraintViolationExceptionMapper.flush(session, existingRoom.getRoomNumber());
+        Audits.record(sessionFactory, AuditEvent.Action.UPDATE, ChangeLog.ROOM, id);
+        
+        return Response.ok(existingRoom)
+            .tag(Versions.tag(existingRoom.getVersion()))
+            .build();
     }
 
     @DELETE
     @Path("/{id}")
-    public Response deleteRoom(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            // Check if room exists
-            OfficeRoom room = session.get(OfficeRoom.class, id);
-            if (room == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Room not found")
-                    .build();
-            }
+    @ReadWrite
+    public Response deleteRoom(@PathParam("id") Long id, @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        // Check if room exists
+        OfficeRoom room = session.get(OfficeRoom.class, id);
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Room not found")
+                .build();
+        }
+
+        Response preconditionFailed = Versions.checkPreconditions(request, room.getVersion(), "Room");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
 
-            // Check if room has seats
-            Long seatCount = session.createQuery(
-                "SELECT COUNT(s) FROM Seat s WHERE s.room.id = :roomId", Long.class)
-                .setParameter("roomId", id)
-                .uniqueResult();
+        // Check if room has seats
+        Long seatCount = session.createQuery(
+            "SELECT COUNT(s) FROM Seat s WHERE s.room.id = :roomId", Long.class)
+            .setParameter("roomId", id)
+            .uniqueResult();
 
-            if (seatCount > 0) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Cannot delete room that has seats")
-                    .build();
-            }
-            
-            session.delete(room);
-            session.getTransaction().commit();
-            
-            return Response.noContent().build();
+        if (seatCount > 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot delete room that has seats")
+                .build();
+        }
+        
+        ChangeLog.record(session, room, ChangeLogEntry.Operation.DELETE);
+        session.delete(room);
+        Audits.record(sessionFactory, AuditEvent.Action.DELETE, ChangeLog.ROOM, id);
+        
+        return Response.noContent().build();
+    }
+
+    /**
+     * Unassigns every seat in the room with one UPDATE.
+     */
+    @DELETE
+    @Path("/{id}/assignments")
+    @ReadWrite
+    public Response clearAssignments(@PathParam("id") Long id) {
+        Session session = UnitOfWork.currentSession();
+        OfficeRoom room = session.get(OfficeRoom.class, id);
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Room not found")
+                .build();
+        }
+
+        int updated = SeatAssignments.clear(session,
+            "room_id = :roomId",
+            "s.room.id = :roomId",
+            Map.of("roomId", id));
+        Audits.record(sessionFactory, AuditEvent.Action.CLEAR_ASSIGNMENTS, ChangeLog.ROOM, id,
+            null, updated + " seats unassigned");
+        return Response.ok(new BulkUpdateResponse(updated)).build();
+    }
+
+    /**
+     * Moves the room, with its seats and their assignments, to another floor.
+     */
+    @PUT
+    @Path("/{id}/move-to-floor/{floorId}")
+    @ReadWrite
+    public Response moveToFloor(@PathParam("id") Long id, @PathParam("floorId") Long floorId,
+                                @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        OfficeRoom room = session.get(OfficeRoom.class, id);
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Room not found")
+                .build();
         }
+
+        Response preconditionFailed = Versions.checkPreconditions(request, room.getVersion(), "Room");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
+
+        Floor floor = session.get(Floor.class, floorId);
+        if (floor == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced floor does not exist")
+                .build();
+        }
+
+        // A room number already taken on the target floor violates
+        // uk_office_rooms_floor_room_number (mapped to 409)
+        Long fromFloorId = room.getFloor() == null ? null : room.getFloor().getId();
+        ChangeLog.record(session, room, ChangeLogEntry.Operation.UPDATE);
+        // Still at the version checked above, or someone else moved or edited it meanwhile
+        int updated = session.createMutationQuery(
+            "update versioned OfficeRoom r set r.floor = :floor where r.id = :id and r.version = :version")
+            .setParameter("floor", floor)
+            .setParameter("id", id)
+            .setParameter("version", room.getVersion())
+            .executeUpdate();
+        if (updated == 0) {
+            // The 412 rolls back the change log entry recorded above
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                .entity("Room was modified since it was read; reload it and retry")
+                .build();
+        }
+        Audits.record(sessionFactory, AuditEvent.Action.MOVE, ChangeLog.ROOM, id,
+            null, "floor " + fromFloorId + " -> " + floorId);
+
+        // Bulk statements are invisible to the change interceptor
+        UnitOfWork.afterCommit(DataChanges::invalidateAll);
+        return Response.ok(new BulkUpdateResponse(updated)).build();
+    }
+
+    /**
+     * Replaces the {@code from} prefix of the room's seat numbers with {@code to} in one UPDATE,
+     * e.g. {@code ?from=101-&to=201-} turns 101-1, 101-2 into 201-1, 201-2.
+     */
+    @PUT
+    @Path("/{id}/renumber-seats")
+    @ReadWrite
+    public Response renumberSeats(@PathParam("id") Long id,
+                                  @QueryParam("from") String from,
+                                  @QueryParam("to") String to) {
+        if (from == null || from.isEmpty() || to == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("from (non-empty) and to are required")
+                .build();
+        }
+
+        Session session = UnitOfWork.currentSession();
+        OfficeRoom room = session.get(OfficeRoom.class, id);
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Room not found")
+                .build();
+        }
+
+        // Match the prefix literally, even if it contains LIKE wildcards
+        String pattern = from.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        Map<String, Object> parameters = Map.of("roomId", id, "pattern", pattern);
+
+        // Renumbered seats colliding with existing ones violate uk_seats_room_seat_number (mapped to 409)
+        ChangeLog.recordAll(session, ChangeLog.SEAT, ChangeLogEntry.Operation.UPDATE,
+            "select id from seats where room_id = :roomId and seat_number like :pattern escape '\\'",
+            parameters);
+        int updated = session.createMutationQuery(
+            "update versioned Seat s set s.seatNumber = concat(:to, substring(s.seatNumber, :start)) " +
+            "where s.room.id = :roomId and s.seatNumber like :pattern escape '\\'")
+            .setParameter("to", to)
+            .setParameter("start", from.length() + 1)
+            .setParameter("roomId", id)
+            .setParameter("pattern", pattern)
+            .executeUpdate();
+        Audits.record(sessionFactory, AuditEvent.Action.RENUMBER, ChangeLog.ROOM, id,
+            null, updated + " seats " + from + "* -> " + to + "*");
+
+        // Bulk statements are invisible to the change interceptor
+        UnitOfWork.afterCommit(DataChanges::invalidateAll);
+        return Response.ok(new BulkUpdateResponse(updated)).build();
     }
-} 
\ No newline at end of file
+}
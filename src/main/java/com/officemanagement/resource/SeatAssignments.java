@@ -0,0 +1,51 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.DataChanges;
+import com.officemanagement.util.UnitOfWork;
+import org.hibernate.Session;
+import org.hibernate.query.MutationQuery;
+
+import java.util.Map;
+
+/**
+ * Set-based seat assignment changes shared by the room and floor endpoints. These statements
+ * bypass the persistence context: Hibernate evicts the seat and employee cache regions for
+ * HQL bulk updates, and DataChanges.invalidateAll() runs once the unit of work commits so the
+ * snapshot version and in-memory indexes follow.
+ */
+final class SeatAssignments {
+
+    private SeatAssignments() {
+    }
+
+    /**
+     * Unassigns every seat matching the given filters, one on the seats table (native, for the
+     * change log) and one on Seat s (HQL), both using the same parameters.
+     */
+    static int clear(Session session, String seatFilterSql, String seatFilterHql, Map<String, Object> parameters) {
+        // Log the seats and their employees before the update forgets who sat where
+        ChangeLog.recordAll(session, ChangeLog.SEAT, ChangeLogEntry.Operation.UPDATE,
+            "select id from seats where employee_id is not null and " + seatFilterSql, parameters);
+        ChangeLog.recordAll(session, ChangeLog.EMPLOYEE, ChangeLogEntry.Operation.UPDATE,
+            "select distinct employee_id as id from seats where employee_id is not null and " + seatFilterSql,
+            parameters);
+
+        // Employees lose seats, so their versions move as with unassign-seat
+        MutationQuery bump = session.createNativeMutationQuery(
+            "update employees set version = version + 1 where id in " +
+            "(select employee_id from seats where employee_id is not null and " + seatFilterSql + ")");
+        parameters.forEach(bump::setParameter);
+        bump.executeUpdate();
+
+        MutationQuery update = session.createMutationQuery(
+            "update versioned Seat s set s.employee = null where s.employee is not null and " + seatFilterHql);
+        parameters.forEach(update::setParameter);
+        int updated = update.executeUpdate();
+
+        // Bulk statements are invisible to the change interceptor
+        UnitOfWork.afterCommit(DataChanges::invalidateAll);
+        return updated;
+    }
+}
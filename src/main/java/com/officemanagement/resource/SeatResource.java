@@ -1,17 +1,32 @@
 package com.officemanagement.resource;
 
+import com.officemanagement.filter.NoUnitOfWork;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReadWrite;
+import com.officemanagement.filter.ReplicaRead;
+import com.officemanagement.index.SeatGraph;
+import com.officemanagement.index.SeatGridIndex;
+import com.officemanagement.model.AuditEvent;
 import com.officemanagement.model.Seat;
 import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.util.ChangeLog;
+import com.officemanagement.util.FieldSelection;
 import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Path("/seats")
+@ReadOnly
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class SeatResource {
@@ -21,152 +36,209 @@ public class SeatResource {
         this.sessionFactory = HibernateUtil.getSessionFactory();
     }
 
+    @GET
+    public Response getSeats(@QueryParam("ids") List<String> idParams, @QueryParam("fields") String fields) {
+        List<Long> ids = MultiIdLoader.parseIds(idParams);
+        Response invalid = MultiIdLoader.validate(ids);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        Session session = UnitOfWork.currentSession();
+        // Room and employee are eager to-one associations and are joined already
+        return Response.ok(FieldSelection.apply(FieldSelection.parse(fields), MultiIdLoader.load(
+            session, Seat.class, null, ids, MultiIdLoader.batchSize(sessionFactory)))).build();
+    }
+
     @GET
     @Path("/{id}")
-    public Response getSeat(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            Seat seat = session.get(Seat.class, id);
-                
-            if (seat == null) {
-                return Response.status(Response.Status.NOT_FOUND).build();
-            }
+    @ReplicaRead
+    public Response getSeat(@PathParam("id") Long id, @QueryParam("fields") String fields) {
+        Seat seat;
+        if (SeatGraph.servesReads(sessionFactory)) {
+            seat = SeatGraph.get(sessionFactory).seat(id);
+        } else {
+            seat = UnitOfWork.currentSession().get(Seat.class, id);
+        }
             
-            return Response.ok(seat).build();
+        if (seat == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+
+        // The entity's own version; nested collections in the body do not move it
+        return Response.ok(FieldSelection.apply(FieldSelection.parse(fields), seat))
+            .tag(Versions.tag(seat.getVersion()))
+            .build();
+    }
+
+    /**
+     * Seats on the same floor within {@code radius} of a seat (in floor plan units), nearest
+     * first, answered from SeatGridIndex without going to the database.
+     */
+    @GET
+    @Path("/nearby")
+    @NoUnitOfWork
+    public Response getNearbySeats(@QueryParam("seatId") Long seatId,
+                                   @QueryParam("radius") Double radius,
+                                   @QueryParam("free") @DefaultValue("false") boolean free,
+                                   @QueryParam("limit") @DefaultValue("20") int limit) {
+        final int MAX_LIMIT = 100;
+        if (seatId == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("seatId is required").build();
+        }
+        if (radius == null || !(radius > 0) || radius.isInfinite()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("radius must be a positive number").build();
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Limit must be between 1 and " + MAX_LIMIT)
+                .build();
+        }
+
+        List<SeatGridIndex.NearbySeat> nearby;
+        try {
+            nearby = SeatGridIndex.get(sessionFactory).nearby(seatId, radius, free, limit);
+        } catch (SeatGridIndex.UnplacedSeatException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        if (nearby == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Seat not found").build();
+        }
+        return Response.ok(nearby).build();
     }
 
     @POST
+    @ReadWrite
     public Response createSeat(Seat seat) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            // Validate that room is provided
-            if (seat.getRoom() == null || seat.getRoom().getId() == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Room reference is required")
-                    .build();
-            }
-            
-            // Load the referenced room
-            OfficeRoom room = session.get(OfficeRoom.class, seat.getRoom().getId());
-            if (room == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Referenced room does not exist")
-                    .build();
-            }
-
-            // Check for duplicate seat number in the same room
-            String hql = "FROM Seat s WHERE s.room.id = :roomId AND s.seatNumber = :seatNumber";
-            Long count = session.createQuery(hql, Seat.class)
-                .setParameter("roomId", room.getId())
-                .setParameter("seatNumber", seat.getSeatNumber())
-                .stream()
-                .count();
-
-            if (count > 0) {
-                return Response.status(Response.Status.CONFLICT)
-                    .entity("A seat with number " + seat.getSeatNumber() + " already exists in this room")
-                    .build();
-            }
-            
-            // Set the room and creation timestamp
-            seat.setRoom(room);
-            
-            // Save the seat
-            session.save(seat);
-            session.getTransaction().commit();
-            
-            // Refresh the seat to get the generated ID
-            session.refresh(seat);
-            
-            return Response.status(Response.Status.CREATED)
-                .entity(seat)
+        Session session = UnitOfWork.currentSession();
+        // Validate that room is provided
+        if (seat.getRoom() == null || seat.getRoom().getId() == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Room reference is required")
+                .build();
+        }
+        
+        // Load the referenced room
+        OfficeRoom room = session.get(OfficeRoom.class, seat.getRoom().getId());
+        if (room == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced room does not exist")
                 .build();
         }
+
+        // Duplicate seat numbers in a room are rejected by uk_seats_room_seat_number (mapped to 409)
+
+        // Set the room and creation timestamp
+        seat.setRoom(room);
+        
+        // Save the seat
+        session.save(seat);
+        ChangeLog.record(session, seat, ChangeLogEntry.Operation.CREATE);
+        Audits.record(sessionFactory, AuditEvent.Action.CREATE, ChangeLog.SEAT, seat.getId());
+        
+        // Refresh the seat to get the generated ID
+        ConstraintViolationExceptionMapper.flush(session, seat.getSeatNumber());
+        session.refresh(seat);
+        
+        return Response.status(Response.Status.CREATED)
+            .entity(seat)
+            .tag(Versions.tag(seat.getVersion()))
+            .build();
     }
 
     @PUT
     @Path("/{id}")
-    public Response updateSeat(@PathParam("id") Long id, Seat updatedSeat) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            // Check if seat exists
-            Seat existingSeat = session.get(Seat.class, id);
-            if (existingSeat == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Seat not found")
-                    .build();
-            }
-            
-            // Validate that room is provided
-            if (updatedSeat.getRoom() == null || updatedSeat.getRoom().getId() == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Room reference is required")
-                    .build();
-            }
-            
-            // Load the referenced room
-            OfficeRoom room = session.get(OfficeRoom.class, updatedSeat.getRoom().getId());
-            if (room == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Referenced room does not exist")
-                    .build();
-            }
-
-            // Check for duplicate seat number in the same room (excluding current seat)
-            String hql = "FROM Seat s WHERE s.room.id = :roomId AND s.seatNumber = :seatNumber AND s.id != :seatId";
-            Long count = session.createQuery(hql, Seat.class)
-                .setParameter("roomId", room.getId())
-                .setParameter("seatNumber", updatedSeat.getSeatNumber())
-                .setParameter("seatId", id)
-                .stream()
-                .count();
-
-            if (count > 0) {
-                return Response.status(Response.Status.CONFLICT)
-                    .entity("A seat with number " + updatedSeat.getSeatNumber() + " already exists in this room")
-                    .build();
-            }
-            
-            // Update the seat properties
-            existingSeat.setSeatNumber(updatedSeat.getSeatNumber());
-            existingSeat.setRoom(room);
-            
-            // Save the changes
-            session.update(existingSeat);
-            session.getTransaction().commit();
-            
-            return Response.ok(existingSeat).build();
+    @ReadWrite
+    public Response updateSeat(@PathParam("id") Long id, Seat updatedSeat, @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        // Check if seat exists
+        Seat existingSeat = session.get(Seat.class, id);
+        if (existingSeat == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Seat not found")
+                .build();
         }
+
+        Response preconditionFailed = Versions.checkPreconditions(request, existingSeat.getVersion(), "Seat");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
+        
+        // Validate that room is provided
+        if (updatedSeat.getRoom() == null || updatedSeat.getRoom().getId() == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Room reference is required")
+                .build();
+        }
+        
+        // Load the referenced room
+        OfficeRoom room = session.get(OfficeRoom.class, updatedSeat.getRoom().getId());
+        if (room == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Referenced room does not exist")
+                .build();
+        }
+
+        // Duplicate seat numbers in a room are rejected by uk_seats_room_seat_number (mapped to 409)
+        // Update the seat properties
+        existingSeat.setSeatNumber(updatedSeat.getSeatNumber());
+        existingSeat.setRoom(room);
+        existingSeat.setX(updatedSeat.getX());
+        existingSeat.setY(updatedSeat.getY());
+        
+        ChangeLog.record(session, existingSeat, ChangeLogEntry.Operation.UPDATE);
+        // Save the changes; the version moves at flush, and the ETag must carry the new one
+        ConstraintViolationExceptionMapper.flush(session, existingSeat.getSeatNumber());
+        Audits.record(sessionFactory, AuditEvent.Action.UPDATE, ChangeLog.SEAT, id);
+        
+        return Response.ok(existingSeat)
+            .tag(Versions.tag(existingSeat.getVersion()))
+            .build();
     }
 
     @DELETE
     @Path("/{id}")
-    public Response deleteSeat(@PathParam("id") Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            
-            // Check if seat exists
-            Seat seat = session.get(Seat.class, id);
-            if (seat == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Seat not found")
-                    .build();
-            }
-            
-            // Check if seat is assigned to an employee
-            if (seat.getEmployee() != null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Cannot delete seat that is assigned to an employee")
-                    .build();
-            }
-            
-            // Delete the seat
-            session.delete(seat);
-            session.getTransaction().commit();
-            
-            return Response.status(Response.Status.NO_CONTENT).build();
+    @ReadWrite
+    public Response deleteSeat(@PathParam("id") Long id, @Context Request request) {
+        Session session = UnitOfWork.currentSession();
+        // Check if seat exists
+        Seat seat = session.get(Seat.class, id);
+        if (seat == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("Seat not found")
+                .build();
+        }
+
+        Response preconditionFailed = Versions.checkPreconditions(request, seat.getVersion(), "Seat");
+        if (preconditionFailed != null) {
+            return preconditionFailed;
+        }
+        
+        // Check if seat is assigned to an employee
+        if (seat.getEmployee() != null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot delete seat that is assigned to an employee")
+                .build();
+        }
+
+        // Check if seat has reservations
+        Long reservationCount = session.createQuery(
+            "SELECT COUNT(r) FROM Reservation r WHERE r.seat.id = :seatId", Long.class)
+            .setParameter("seatId", id)
+            .uniqueResult();
+
+        if (reservationCount > 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("Cannot delete seat that has reservations")
+                .build();
         }
+        
+        // Delete the seat; an occupant loses it, which the audit entry keeps
+        Long occupantId = seat.getEmployee() == null ? null : seat.getEmployee().getId();
+        ChangeLog.record(session, seat, ChangeLogEntry.Operation.DELETE);
+        session.delete(seat);
+        Audits.record(sessionFactory, AuditEvent.Action.DELETE, ChangeLog.SEAT, id, occupantId, null);
+        
+        return Response.status(Response.Status.NO_CONTENT).build();
     }
 } 
\ No newline at end of file
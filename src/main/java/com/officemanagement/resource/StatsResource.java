@@ -1,18 +1,44 @@
 package com.officemanagement.resource;
 
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import com.officemanagement.filter.ReadOnly;
+import com.officemanagement.filter.ReplicaRead;
+import com.officemanagement.index.SeatGraph;
+import com.officemanagement.model.OccupancyRollup;
+import com.officemanagement.util.DataVersion;
 import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.UnitOfWork;
+import com.officemanagement.util.OccupancySampler;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 @Path("/stats") // Base path for all stats-related endpoints
+@ReadOnly
 public class StatsResource {
 
+    private static final int MAX_HISTORY_POINTS = 5000;
+
+    // Seconds a utilization breakdown may still be served after a write; 0 (the default) never
+    static final String UTILIZATION_TTL_PROPERTY = "officemanagement.stats.utilization_ttl_seconds";
+
+    private static volatile CachedUtilization utilizationCache;
+
     private final SessionFactory sessionFactory;
 
     public StatsResource() {
@@ -43,10 +69,16 @@ public class StatsResource {
 
     @GET
     @Produces(MediaType.APPLICATION_JSON) // Return JSON response
+    @ReplicaRead
     public Response getStats() {
-        Session session = null;
+        if (SeatGraph.servesReads(sessionFactory)) {
+            SeatGraph.Totals totals = SeatGraph.get(sessionFactory).totals();
+            return Response.ok(new StatsDTO(totals.getEmployees(), totals.getFloors(), totals.getRooms(),
+                totals.getSeats())).build();
+        }
+
+        Session session = UnitOfWork.currentSession();
         try {
-            session = sessionFactory.openSession();
             // Get counts using getSingleResult instead of uniqueResult
             Long totalEmployees = session.createQuery("SELECT COUNT(e) FROM Employee e", Long.class)
                                       .getSingleResult();
@@ -67,11 +99,320 @@ public class StatsResource {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new ErrorResponse("Failed to retrieve stats: " + e.getMessage()))
                     .build();
-        } finally {
-            if (session != null && session.isOpen()) {
-                session.close();
+        }
+    }
+
+    // DTOs for the utilization response
+    public static class UtilizationDTO {
+        @JsonProperty("seats")
+        private long seats;
+
+        @JsonProperty("occupied")
+        private long occupied;
+
+        // Share of seats occupied, 0 when there are no seats
+        @JsonProperty("utilization")
+        private double utilization;
+
+        @JsonProperty("floors")
+        private final List<FloorUtilization> floors = new ArrayList<>();
+
+        void add(long seats, long occupied) {
+            this.seats += seats;
+            this.occupied += occupied;
+            this.utilization = share(this.occupied, this.seats);
+        }
+    }
+
+    public static class FloorUtilization {
+        @JsonProperty("floorId")
+        private final long floorId;
+
+        @JsonProperty("name")
+        private final String name;
+
+        @JsonProperty("floorNumber")
+        private final Integer floorNumber;
+
+        @JsonProperty("seats")
+        private long seats;
+
+        @JsonProperty("occupied")
+        private long occupied;
+
+        @JsonProperty("utilization")
+        private double utilization;
+
+        @JsonProperty("rooms")
+        private final List<RoomUtilization> rooms = new ArrayList<>();
+
+        public FloorUtilization(long floorId, String name, Integer floorNumber) {
+            this.floorId = floorId;
+            this.name = name;
+            this.floorNumber = floorNumber;
+        }
+
+        void add(RoomUtilization room) {
+            rooms.add(room);
+            seats += room.seats;
+            occupied += room.occupied;
+            utilization = share(occupied, seats);
+        }
+    }
+
+    public static class RoomUtilization {
+        @JsonProperty("roomId")
+        private final long roomId;
+
+        @JsonProperty("roomNumber")
+        private final String roomNumber;
+
+        @JsonProperty("name")
+        private final String name;
+
+        @JsonProperty("seats")
+        private final long seats;
+
+        @JsonProperty("occupied")
+        private final long occupied;
+
+        @JsonProperty("utilization")
+        private final double utilization;
+
+        public RoomUtilization(long roomId, String roomNumber, String name, long seats, long occupied) {
+            this.roomId = roomId;
+            this.roomNumber = roomNumber;
+            this.name = name;
+            this.seats = seats;
+            this.occupied = occupied;
+            this.utilization = share(occupied, seats);
+        }
+    }
+
+    private static final class CachedUtilization {
+        final long version;
+        final long localVersion;
+        final long builtAt;
+        final UtilizationDTO utilization;
+
+        CachedUtilization(long version, long localVersion, long builtAt, UtilizationDTO utilization) {
+            this.version = version;
+            this.localVersion = localVersion;
+            this.builtAt = builtAt;
+            this.utilization = utilization;
+        }
+    }
+
+    private static double share(long occupied, long seats) {
+        return seats == 0 ? 0 : (double) occupied / seats;
+    }
+
+    /**
+     * Seats, occupied seats and utilization for the building, every floor and every room. One
+     * query groups the seats per room; floors and the building are summed up from its rows.
+     * Cached until the next write on any node, like the building snapshot, and for
+     * officemanagement.stats.utilization_ttl_seconds after it if set, for busy write hours.
+     */
+    @GET
+    @Path("/utilization")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getUtilization() {
+        CachedUtilization cached = utilizationCache;
+        long localVersion = DataVersion.current();
+        long now = System.nanoTime();
+        Session session = UnitOfWork.currentSession();
+        long version = DataVersion.shared(session);
+        if (cached == null || ((cached.version != version || cached.localVersion != localVersion)
+                && now - cached.builtAt >= utilizationTtlSeconds() * 1_000_000_000L)) {
+            // Keyed by the versions read before querying: a write that commits meanwhile
+            // bumps them again, so this entry can never hide it
+            cached = new CachedUtilization(version, localVersion, now, loadUtilization(session));
+            utilizationCache = cached;
+        }
+        return Response.ok(cached.utilization).build();
+    }
+
+    private UtilizationDTO loadUtilization(Session session) {
+        UtilizationDTO building = new UtilizationDTO();
+        Map<Long, FloorUtilization> floors = new LinkedHashMap<>();
+        for (Object[] row : session.createQuery(
+                "select f.id, f.name, f.floorNumber, r.id, r.roomNumber, r.name, count(s), count(s.employee.id) " +
+                "from Floor f left join f.rooms r left join r.seats s " +
+                "group by f.id, f.name, f.floorNumber, r.id, r.roomNumber, r.name " +
+                "order by f.floorNumber, f.id, r.roomNumber, r.id", Object[].class)
+                .list()) {
+            FloorUtilization floor = floors.computeIfAbsent((Long) row[0],
+                id -> new FloorUtilization(id, (String) row[1], (Integer) row[2]));
+            // A floor without rooms is one row without a room
+            if (row[3] != null) {
+                floor.add(new RoomUtilization((Long) row[3], (String) row[4], (String) row[5],
+                    (Long) row[6], (Long) row[7]));
+            }
+        }
+        for (FloorUtilization floor : floors.values()) {
+            building.floors.add(floor);
+            building.add(floor.seats, floor.occupied);
+        }
+        return building;
+    }
+
+    private long utilizationTtlSeconds() {
+        Object value = sessionFactory.getProperties().get(UTILIZATION_TTL_PROPERTY);
+        return value == null ? 0 : Long.parseLong(value.toString().trim());
+    }
+
+    // DTOs for the history response
+    public static class HistoryDTO {
+        @JsonProperty("scope")
+        private final String scope;
+
+        @JsonProperty("id")
+        private final long id;
+
+        @JsonProperty("resolution")
+        private final OccupancyRollup.Resolution resolution;
+
+        @JsonProperty("from")
+        private final LocalDateTime from;
+
+        @JsonProperty("to")
+        private final LocalDateTime to;
+
+        @JsonProperty("points")
+        private final List<HistoryPoint> points;
+
+        public HistoryDTO(String scope, long id, OccupancyRollup.Resolution resolution,
+                          LocalDateTime from, LocalDateTime to, List<HistoryPoint> points) {
+            this.scope = scope;
+            this.id = id;
+            this.resolution = resolution;
+            this.from = from;
+            this.to = to;
+            this.points = points;
+        }
+    }
+
+    public static class HistoryPoint {
+        @JsonProperty("time")
+        private final LocalDateTime time;
+
+        @JsonProperty("samples")
+        private final int samples;
+
+        @JsonProperty("avgOccupied")
+        private final double avgOccupied;
+
+        @JsonProperty("minOccupied")
+        private final int minOccupied;
+
+        @JsonProperty("maxOccupied")
+        private final int maxOccupied;
+
+        @JsonProperty("seats")
+        private final int seats;
+
+        // Average share of seats occupied, 0 when there were no seats
+        @JsonProperty("utilization")
+        private final double utilization;
+
+        public HistoryPoint(OccupancyRollup rollup) {
+            this.time = rollup.getBucketStart();
+            this.samples = rollup.getSamples();
+            this.avgOccupied = (double) rollup.getOccupiedSum() / rollup.getSamples();
+            this.minOccupied = rollup.getOccupiedMin();
+            this.maxOccupied = rollup.getOccupiedMax();
+            this.seats = rollup.getSeats();
+            this.utilization = seats == 0 ? 0 : avgOccupied / seats;
+        }
+    }
+
+    /**
+     * Occupancy over time for the building, a floor or a room, e.g.
+     * {@code /stats/history?scope=floor&id=3&from=2024-01-01T00:00&to=2025-01-01T00:00}.
+     * Served from the finest rollup resolution that still has data for {@code from} and needs
+     * at most {@code maxPoints} points, so long ranges read hour or day rollups only. Samples
+     * reach the rollups when the sampler flushes, every few minutes.
+     */
+    @GET
+    @Path("/history")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getHistory(@QueryParam("scope") @DefaultValue("building") String scope,
+                               @QueryParam("id") Long id,
+                               @QueryParam("from") String from,
+                               @QueryParam("to") String to,
+                               @QueryParam("maxPoints") @DefaultValue("500") int maxPoints) {
+        OccupancyRollup.Scope scopeType;
+        try {
+            scopeType = OccupancyRollup.Scope.valueOf(scope.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("scope must be building, floor or room")
+                .build();
+        }
+        if (scopeType == OccupancyRollup.Scope.BUILDING) {
+            id = 0L;
+        } else if (id == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("id is required for scope " + scope)
+                .build();
+        }
+
+        if (maxPoints <= 0 || maxPoints > MAX_HISTORY_POINTS) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("maxPoints must be between 1 and " + MAX_HISTORY_POINTS)
+                .build();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime toTime;
+        LocalDateTime fromTime;
+        try {
+            toTime = to == null ? now : LocalDateTime.parse(to);
+            fromTime = from == null ? toTime.minusDays(1) : LocalDateTime.parse(from);
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("from and to must be ISO-8601 local date-times, e.g. 2024-05-02T09:00")
+                .build();
+        }
+        if (!fromTime.isBefore(toTime)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("from must be before to")
+                .build();
+        }
+
+        OccupancyRollup.Resolution resolution = resolutionFor(fromTime, toTime, maxPoints, now);
+        Session session = UnitOfWork.currentSession();
+        List<OccupancyRollup> rollups = session.createQuery(
+            "from OccupancyRollup r where r.resolution = :resolution " +
+            "and r.scopeType = :scopeType and r.scopeId = :scopeId " +
+            "and r.bucketStart >= :from and r.bucketStart < :to " +
+            "order by r.bucketStart", OccupancyRollup.class)
+            .setParameter("resolution", resolution)
+            .setParameter("scopeType", scopeType)
+            .setParameter("scopeId", id)
+            .setParameter("from", resolution.truncate(fromTime))
+            .setParameter("to", toTime)
+            .list();
+
+        List<HistoryPoint> points = new ArrayList<>(rollups.size());
+        for (OccupancyRollup rollup : rollups) {
+            points.add(new HistoryPoint(rollup));
+        }
+        return Response.ok(new HistoryDTO(scopeType.name().toLowerCase(Locale.ROOT), id,
+            resolution, fromTime, toTime, points)).build();
+    }
+
+    private OccupancyRollup.Resolution resolutionFor(LocalDateTime from, LocalDateTime to,
+                                                     int maxPoints, LocalDateTime now) {
+        Duration range = Duration.between(from, to);
+        for (OccupancyRollup.Resolution resolution : OccupancyRollup.Resolution.values()) {
+            LocalDateTime retained = OccupancySampler.retentionStart(sessionFactory, resolution, now);
+            boolean covered = retained == null || !from.isBefore(retained);
+            if (covered && range.dividedBy(resolution.getStep()) < maxPoints) {
+                return resolution;
             }
         }
+        return OccupancyRollup.Resolution.DAY;
     }
 
     // Error response class
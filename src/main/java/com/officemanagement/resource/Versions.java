@@ -0,0 +1,92 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.Employee;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ETags of single-entity resources, taken from the entity's @Version. Writes honour If-Match
+ * against the version read in their transaction; a concurrent write between that read and the
+ * flush fails Hibernate's version check instead (also 412, see ConstraintViolationExceptionMapper).
+ *
+ * Reads only send the tag: a version covers the entity's own columns, not the collections
+ * nested in its representation, so it cannot back If-None-Match.
+ */
+final class Versions {
+
+    private Versions() {
+    }
+
+    static EntityTag tag(Long version) {
+        return new EntityTag(String.valueOf(version));
+    }
+
+    /**
+     * Moves the employee's version (its ETag) when only its seats changed: they are an inverse
+     * collection, so Hibernate never does. The version is forced when the transaction commits,
+     * by an UPDATE that checks the version read here: a concurrent writer fails the commit with
+     * 412, and no row lock is taken before the commit. (Hibernate's OPTIMISTIC_FORCE_INCREMENT
+     * queues that UPDATE on the JDBC batch after the last flush, where it is never executed.)
+     * Returns the tag of the version written.
+     */
+    static EntityTag forceIncrement(Session session, Employee employee) {
+        forceIncrement(session, List.of(employee));
+        return tag(employee.getVersion() + 1);
+    }
+
+    /** {@link #forceIncrement(Session, Employee)} for many employees, with one JDBC batch. */
+    static void forceIncrement(Session session, Collection<Employee> employees) {
+        List<Employee> forced = new ArrayList<>(employees);
+        long[] ids = new long[forced.size()];
+        long[] versions = new long[forced.size()];
+        for (int i = 0; i < forced.size(); i++) {
+            ids[i] = forced.get(i).getId();
+            versions[i] = forced.get(i).getVersion();
+        }
+        session.unwrap(SessionImplementor.class).getActionQueue().registerProcess(completing -> {
+            completing.doWork(connection -> {
+                try (PreparedStatement update = connection.prepareStatement(
+                        "update employees set version = version + 1 where id = ? and version = ?")) {
+                    for (int i = 0; i < ids.length; i++) {
+                        update.setLong(1, ids[i]);
+                        update.setLong(2, versions[i]);
+                        update.addBatch();
+                    }
+                    int[] updated = update.executeBatch();
+                    for (int i = 0; i < updated.length; i++) {
+                        if (updated[i] == 0) {
+                            throw new OptimisticLockException("Employee " + ids[i] + " was modified concurrently");
+                        }
+                    }
+                }
+            });
+            for (int i = 0; i < forced.size(); i++) {
+                forced.get(i).setVersion(versions[i] + 1);
+            }
+        });
+    }
+
+    /**
+     * Evaluates If-Match / If-None-Match of a write against the entity's current version.
+     * Returns the 412 response to send, or null when the write may proceed.
+     */
+    static Response checkPreconditions(Request request, Long version, String entityName) {
+        Response.ResponseBuilder failed = request.evaluatePreconditions(tag(version));
+        if (failed == null) {
+            return null;
+        }
+        return Response.status(Response.Status.PRECONDITION_FAILED)
+            .tag(tag(version))
+            .entity(entityName + " was modified since it was read; reload it and retry")
+            .build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.officemanagement.server;
+
+import com.officemanagement.util.HibernateUtil;
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.GracefulShutdownHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.Options;
+
+/**
+ * StandaloneServer tuned for running behind a load balancer, several instances side by side.
+ * Built by the "production" profile into target/production/ (see run-production.sh).
+ *
+ * System properties, on top of those of StandaloneServer:
+ * <ul>
+ *   <li>{@code server.ioThreads} (available processors, at least 2): XNIO threads accepting
+ *       connections and parsing requests; they never block</li>
+ *   <li>{@code server.workerThreads} (8 per I/O thread): threads running the servlet, and so
+ *       the Hibernate sessions; size the connection pool to match</li>
+ *   <li>{@code server.bufferSize} (16384) and {@code server.directBuffers} (true): pooled
+ *       request/response buffers, off-heap so sockets are written without a copy</li>
+ *   <li>{@code server.http2} (true): HTTP/2 over cleartext (h2c upgrade); TLS is expected to
+ *       end at the load balancer</li>
+ *   <li>{@code server.keepAlive} (true), {@code server.idleTimeoutMillis} (60000) and
+ *       {@code server.noRequestTimeoutMillis} (60000): persistent connections and how long an
+ *       idle one is kept</li>
+ *   <li>{@code server.backlog} (1024): pending connections queued by the kernel</li>
+ *   <li>{@code server.maxEntitySize} (10485760): largest accepted request body</li>
+ *   <li>{@code server.shutdownTimeoutMillis} (30000): how long a stop waits for in-flight
+ *       requests; new ones are answered with 503 meanwhile</li>
+ * </ul>
+ */
+public class ProductionServer extends StandaloneServer {
+    private static final Logger logger = LoggerFactory.getLogger(ProductionServer.class);
+
+    private GracefulShutdownHandler gracefulShutdown;
+
+    public ProductionServer(String host, int port) {
+        super(host, port);
+    }
+
+    @Override
+    protected Undertow createUndertow(HttpHandler handler) {
+        int ioThreads = Integer.getInteger("server.ioThreads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        int workerThreads = Integer.getInteger("server.workerThreads", ioThreads * 8);
+        int bufferSize = Integer.getInteger("server.bufferSize", 16 * 1024);
+        boolean directBuffers = booleanProperty("server.directBuffers", true);
+        boolean http2 = booleanProperty("server.http2", true);
+        boolean keepAlive = booleanProperty("server.keepAlive", true);
+        int idleTimeout = Integer.getInteger("server.idleTimeoutMillis", 60_000);
+        int noRequestTimeout = Integer.getInteger("server.noRequestTimeoutMillis", 60_000);
+        int backlog = Integer.getInteger("server.backlog", 1024);
+        long maxEntitySize = Long.getLong("server.maxEntitySize", 10L * 1024 * 1024);
+
+        gracefulShutdown = new GracefulShutdownHandler(handler);
+        logger.info("I/O threads: {}, worker threads: {}, buffers: {} bytes ({}), HTTP/2: {}, keep-alive: {}, backlog: {}",
+            ioThreads, workerThreads, bufferSize, directBuffers ? "direct" : "heap", http2, keepAlive, backlog);
+
+        return Undertow.builder()
+            .addHttpListener(port, host)
+            .setIoThreads(ioThreads)
+            .setWorkerThreads(workerThreads)
+            .setBufferSize(bufferSize)
+            .setDirectBuffers(directBuffers)
+            .setServerOption(UndertowOptions.ENABLE_HTTP2, http2)
+            .setServerOption(UndertowOptions.ALWAYS_SET_KEEP_ALIVE, keepAlive)
+            .setServerOption(UndertowOptions.IDLE_TIMEOUT, idleTimeout)
+            .setServerOption(UndertowOptions.NO_REQUEST_TIMEOUT, noRequestTimeout)
+            .setServerOption(UndertowOptions.MAX_ENTITY_SIZE, maxEntitySize)
+            .setSocketOption(Options.BACKLOG, backlog)
+            .setSocketOption(Options.KEEP_ALIVE, keepAlive)
+            .setSocketOption(Options.TCP_NODELAY, true)
+            .setSocketOption(Options.REUSE_ADDRESSES, true)
+            .setHandler(gracefulShutdown)
+            .build();
+    }
+
+    /**
+     * Stops accepting requests, waits for the in-flight ones, then undeploys and closes the
+     * SessionFactory (and with it the connection pool).
+     */
+    @Override
+    public void stop() {
+        try {
+            if (gracefulShutdown != null) {
+                long timeout = Long.getLong("server.shutdownTimeoutMillis", 30_000L);
+                gracefulShutdown.shutdown();
+                if (!gracefulShutdown.awaitShutdown(timeout)) {
+                    logger.warn("Requests still running after {} ms; stopping anyway", timeout);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            super.stop();
+            // Already done by HibernateContextListener on undeploy, unless that failed
+            HibernateUtil.shutdown();
+        }
+        logger.info("Stopped");
+    }
+
+    private static boolean booleanProperty(String name, boolean defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public static void main(String[] args) throws Exception {
+        useStandaloneConfig();
+        ProductionServer server = new ProductionServer(
+            System.getProperty("server.host", "0.0.0.0"),
+            Integer.getInteger("server.port", 8080));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "shutdown"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.officemanagement.server;
+
+import com.officemanagement.config.HibernateContextListener;
+import com.officemanagement.config.RestEasyConfig;
+import com.officemanagement.filter.CORSFilter;
+import com.officemanagement.util.HibernateUtil;
+import com.officemanagement.util.StartupTimer;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.servlet.Servlets;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import org.jboss.resteasy.plugins.server.servlet.HttpServlet30Dispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Runs the application on embedded Undertow with the same servlet, filter and listener
+ * setup as web.xml, without an application server.
+ *
+ * With {@code --train} it starts, sends a few requests to the common endpoints and exits,
+ * which is used to record an application class-data-sharing archive (see the "cds" profile
+ * in pom.xml). Starting with that archive skips most of the classloading of RESTEasy,
+ * Hibernate and Jackson.
+ *
+ * System properties: {@code server.host} (0.0.0.0), {@code server.port} (8080), plus
+ * {@code hibernate.cfg} (default hibernate-standalone.cfg.xml) and {@code hibernate.*}
+ * overrides understood by HibernateUtil.
+ */
+public class StandaloneServer {
+    private static final Logger logger = LoggerFactory.getLogger(StandaloneServer.class);
+
+    protected final String host;
+    protected final int port;
+    private DeploymentManager manager;
+    private Undertow undertow;
+
+    public StandaloneServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public void start() throws ServletException {
+        try (StartupTimer.Phase phase = StartupTimer.phase("undertow.deploy")) {
+            DeploymentInfo deployment = Servlets.deployment()
+                .setClassLoader(StandaloneServer.class.getClassLoader())
+                .setContextPath("/")
+                .setDeploymentName("office-management-system")
+                .addListener(Servlets.listener(HibernateContextListener.class))
+                .addInitParameter("resteasy.servlet.mapping.prefix", "/api")
+                .addFilter(Servlets.filter("CORSFilter", CORSFilter.class))
+                .addFilterUrlMapping("CORSFilter", "/api/*", DispatcherType.REQUEST)
+                .addServlet(Servlets.servlet("RESTEasy", HttpServlet30Dispatcher.class)
+                    .addInitParam("jakarta.ws.rs.Application", RestEasyConfig.class.getName())
+                    .addMapping("/api/*")
+                    .setLoadOnStartup(1)
+                    .setAsyncSupported(true));
+
+            manager = Servlets.defaultContainer().addDeployment(deployment);
+            manager.deploy();
+            HttpHandler handler = manager.start();
+
+            undertow = createUndertow(handler);
+            undertow.start();
+        }
+        logger.info("Listening on http://{}:{}/api ({} ms after JVM start)", host, port, StartupTimer.uptimeMillis());
+    }
+
+    /** The server in front of the deployment; subclasses tune listeners, threads and buffers. */
+    protected Undertow createUndertow(HttpHandler handler) {
+        return Undertow.builder()
+            .addHttpListener(port, host)
+            .setHandler(handler)
+            .build();
+    }
+
+    public void stop() {
+        if (undertow != null) {
+            undertow.stop();
+        }
+        if (manager != null) {
+            try {
+                manager.stop();
+            } catch (ServletException e) {
+                logger.warn("Error stopping deployment", e);
+            }
+            // Runs HibernateContextListener.contextDestroyed
+            manager.undeploy();
+        }
+    }
+
+    /** Exercises the endpoints every client hits so their classes end up in the CDS archive. */
+    void train() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        String base = "http://localhost:" + port + "/api";
+        String[] paths = {"/stats", "/floors", "/floors/1", "/rooms/1", "/seats/1", "/employees/1",
+            "/employees/search?search=a"};
+        long firstResponse = -1;
+        for (int round = 0; round < 20; round++) {
+            for (String path : paths) {
+                client.send(HttpRequest.newBuilder(URI.create(base + path)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+                if (firstResponse < 0) {
+                    firstResponse = StartupTimer.uptimeMillis();
+                }
+            }
+        }
+        logger.info("Training run finished; first response {} ms after JVM start", firstResponse);
+    }
+
+    // No JNDI datasource or JTA outside WildFly
+    static void useStandaloneConfig() {
+        if (System.getProperty(HibernateUtil.CONFIG_RESOURCE_PROPERTY) == null) {
+            System.setProperty(HibernateUtil.CONFIG_RESOURCE_PROPERTY, "hibernate-standalone.cfg.xml");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean training = args.length > 0 && "--train".equals(args[0]);
+        useStandaloneConfig();
+        StandaloneServer server = new StandaloneServer(
+            System.getProperty("server.host", "0.0.0.0"),
+            Integer.getInteger("server.port", 8080));
+        server.start();
+
+        if (training) {
+            try {
+                server.train();
+            } finally {
+                server.stop();
+            }
+            // The JVM dumps the archive (-XX:ArchiveClassesAtExit) on exit
+            System.exit(0);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "shutdown"));
+    }
+}
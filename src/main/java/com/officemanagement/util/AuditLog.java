@@ -0,0 +1,308 @@
+package com.officemanagement.util;
+
+import com.officemanagement.model.AuditEvent;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the audit trail off the request path. {@link #publish} puts an event into a bounded
+ * ring buffer without taking a lock (producers claim a slot with one CAS); a single "audit-writer"
+ * thread drains it every flush interval, or as soon as a batch is waiting, and appends the
+ * events to audit_events with one JDBC batch per transaction.
+ *
+ * When the buffer is full (the database is slow or down) the overflow policy applies: "block"
+ * makes the publisher wait up to block_millis for room and then drops the event, "drop" drops it
+ * at once. Dropped events are counted and logged. A batch that fails to insert is written again
+ * one event at a time: an event the database rejects (too long, a violated constraint) is logged,
+ * counted and dropped, so it cannot hold up the trail. Any other failure (the database is down)
+ * keeps the events for the next flush, so the buffer fills and the policy kicks in instead of
+ * events being lost silently.
+ */
+public final class AuditLog {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+    private static volatile AuditLog instance;
+
+    public static final String BUFFER_SIZE_PROPERTY = "officemanagement.audit.buffer_size";
+    public static final long DEFAULT_BUFFER_SIZE = 8192;
+
+    public static final String BATCH_SIZE_PROPERTY = "officemanagement.audit.batch_size";
+    public static final long DEFAULT_BATCH_SIZE = 500;
+
+    public static final String FLUSH_MILLIS_PROPERTY = "officemanagement.audit.flush_millis";
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+    // "block" (default) or "drop"
+    public static final String OVERFLOW_PROPERTY = "officemanagement.audit.overflow";
+    public static final String BLOCK_MILLIS_PROPERTY = "officemanagement.audit.block_millis";
+    public static final long DEFAULT_BLOCK_MILLIS = 100;
+
+    private static final String INSERT_SQL =
+        "insert into audit_events (id, occurred_at, actor, action, entity_type, entity_id, employee_id, detail) " +
+        "values (nextval('audit_event_seq'), ?, ?, ?, ?, ?, ?, ?)";
+
+    private final SessionFactory sessionFactory;
+    private final int batchSize;
+    private final long flushNanos;
+    private final boolean blockOnOverflow;
+    private final long blockNanos;
+
+    // Slot of sequence n is n & mask; a null slot is free, or claimed but not written yet
+    private final AtomicReferenceArray<AuditEvent> slots;
+    private final int mask;
+    // Next sequence a publisher claims
+    private final AtomicLong claimed = new AtomicLong();
+    // Next sequence the writer reads; only the writer (holding writeLock) advances it
+    private volatile long consumed;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedReported;
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Drained but not written yet (the last insert failed); guarded by writeLock
+    private final List<AuditEvent> retry = new ArrayList<>();
+    private final Object writeLock = new Object();
+
+    private final Thread writer;
+    private volatile boolean stopped;
+
+    private AuditLog(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        // Rounded up to a power of two
+        int requested = (int) Math.max(2, longProperty(sessionFactory, BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE));
+        int capacity = Integer.highestOneBit(requested - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.batchSize = (int) longProperty(sessionFactory, BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(longProperty(sessionFactory, FLUSH_MILLIS_PROPERTY, DEFAULT_FLUSH_MILLIS));
+        Object overflow = sessionFactory.getProperties().get(OVERFLOW_PROPERTY);
+        this.blockOnOverflow = overflow == null || !"drop".equals(overflow.toString().trim().toLowerCase(Locale.ROOT));
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(longProperty(sessionFactory, BLOCK_MILLIS_PROPERTY, DEFAULT_BLOCK_MILLIS));
+
+        this.writer = new Thread(this::run, "audit-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public static AuditLog get(SessionFactory sessionFactory) {
+        if (instance == null) {
+            synchronized (AuditLog.class) {
+                if (instance == null) {
+                    AuditLog log = new AuditLog(sessionFactory);
+                    log.writer.start();
+                    instance = log;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Stops the writer after a last flush; a no-op if the audit log was never used. */
+    public static void shutdown() {
+        AuditLog log;
+        synchronized (AuditLog.class) {
+            log = instance;
+            instance = null;
+        }
+        if (log != null) {
+            log.stop();
+        }
+    }
+
+    /**
+     * Queues an event for writing. Call it after the audited transaction committed. Returns
+     * false if the event was dropped because the buffer stayed full.
+     */
+    public boolean publish(AuditEvent event) {
+        long deadline = 0;
+        while (true) {
+            long sequence = claimed.get();
+            long backlog = sequence - consumed;
+            if (backlog >= slots.length()) {
+                if (!blockOnOverflow || stopped) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                if (deadline == 0) {
+                    deadline = System.nanoTime() + blockNanos;
+                } else if (System.nanoTime() - deadline >= 0) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) (sequence & mask), event);
+                if (backlog + 1 == batchSize) {
+                    // A full batch is waiting; don't sit on it until the next interval
+                    LockSupport.unpark(writer);
+                }
+                return true;
+            }
+        }
+    }
+
+    /** Writes everything published so far; returns the number of events written. */
+    public int flush() {
+        synchronized (writeLock) {
+            reportDropped();
+            // Not beyond what was published on entry, so a steady stream cannot keep us here
+            long upTo = claimed.get();
+            int written = 0;
+            while (true) {
+                if (retry.size() < batchSize && consumed < upTo) {
+                    drain((int) Math.min(batchSize - retry.size(), upTo - consumed), retry);
+                }
+                if (retry.isEmpty()) {
+                    return written;
+                }
+                try {
+                    insert(retry);
+                    written += retry.size();
+                } catch (RuntimeException e) {
+                    logger.warn("Writing {} audit events failed; writing them one by one", retry.size(), e);
+                    written += insertEach(retry);
+                }
+                retry.clear();
+            }
+        }
+    }
+
+    /** Events dropped on overflow since startup. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Events dropped since startup because the database rejected them. */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void run() {
+        while (!stopped) {
+            LockSupport.parkNanos(this, flushNanos);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.warn("Audit flush failed; the events are kept for the next one", e);
+                LockSupport.parkNanos(this, flushNanos);
+            }
+        }
+    }
+
+    private void stop() {
+        stopped = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.NANOSECONDS.toMillis(flushNanos) + 5000);
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("Final audit flush failed", e);
+        }
+    }
+
+    // Moves up to max published events, in order, into the list; writer only
+    private void drain(int max, List<AuditEvent> into) {
+        long sequence = consumed;
+        for (int i = 0; i < max; i++) {
+            int index = (int) (sequence & mask);
+            AuditEvent event = slots.get(index);
+            if (event == null) {
+                // Not published yet, or claimed and still being written by its publisher
+                break;
+            }
+            slots.set(index, null);
+            into.add(event);
+            sequence++;
+        }
+        consumed = sequence;
+    }
+
+    private void insert(List<AuditEvent> events) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                insert(session, events);
+                transaction.commit();
+            } catch (RuntimeException e) {
+                // The rows of the batch that did go in must not reach the database with a later commit
+                transaction.rollback();
+                throw e;
+            }
+        }
+        logger.debug("Wrote {} audit events", events.size());
+    }
+
+    private static void insert(Session session, List<AuditEvent> events) {
+        session.doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                for (AuditEvent event : events) {
+                    insert.setTimestamp(1, Timestamp.valueOf(event.getOccurredAt()));
+                    insert.setString(2, event.getActor());
+                    insert.setString(3, event.getAction().name());
+                    insert.setString(4, event.getEntityType());
+                    insert.setLong(5, event.getEntityId());
+                    if (event.getEmployeeId() == null) {
+                        insert.setNull(6, Types.BIGINT);
+                    } else {
+                        insert.setLong(6, event.getEmployeeId());
+                    }
+                    insert.setString(7, event.getDetail());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    // Writes the events one per transaction, removing each from the list once written or
+    // rejected; any other failure is thrown with the rest still in the list
+    private int insertEach(List<AuditEvent> events) {
+        int written = 0;
+        for (Iterator<AuditEvent> it = events.iterator(); it.hasNext(); ) {
+            AuditEvent event = it.next();
+            try {
+                insert(List.of(event));
+                written++;
+            } catch (DataException | ConstraintViolationException e) {
+                rejected.incrementAndGet();
+                logger.error("Dropped an audit event the database rejects: {} {} {}",
+                    event.getAction(), event.getEntityType(), event.getEntityId(), e);
+            }
+            it.remove();
+        }
+        return written;
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total > droppedReported) {
+            logger.warn("Dropped {} audit events because the buffer was full ({} in total)", total - droppedReported, total);
+            droppedReported = total;
+        }
+    }
+
+    private static long longProperty(SessionFactory sessionFactory, String name, long defaultValue) {
+        Object value = sessionFactory.getProperties().get(name);
+        return value == null ? defaultValue : Long.parseLong(value.toString().trim());
+    }
+}
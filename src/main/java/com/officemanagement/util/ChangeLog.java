@@ -0,0 +1,211 @@
+package com.officemanagement.util;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.ChangeLogHead;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.MutationQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Writes and compacts the change log behind {@code GET /changes}. Every resource write calls
+ * {@link #record} inside its transaction, so a change is logged if and only if it commits.
+ *
+ * Entries are written with provisional negative sequence numbers. Right before the transaction
+ * commits they are renumbered from the change_log_head row, whose row lock is held until the
+ * commit: transactions take their final numbers one after the other, in the order they commit,
+ * so a client that has seen sequence number n has seen every change committed before it.
+ */
+public final class ChangeLog {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLog.class);
+
+    // Entries older than this are deleted by compact(); clients further behind must resync
+    public static final String RETENTION_HOURS_PROPERTY = "officemanagement.changes.retention_hours";
+    public static final long DEFAULT_RETENTION_HOURS = 24 * 7;
+
+    // Entity type names as they appear in the API
+    public static final String FLOOR = "floor";
+    public static final String ROOM = "room";
+    public static final String SEAT = "seat";
+    public static final String EMPLOYEE = "employee";
+
+    // Session property set once the session renumbers its entries at commit
+    private static final String SEQUENCE_AT_COMMIT = "officemanagement.changes.sequence_at_commit";
+
+    private static final Map<Class<?>, String> TYPES = Map.of(
+        Floor.class, FLOOR,
+        OfficeRoom.class, ROOM,
+        Seat.class, SEAT,
+        Employee.class, EMPLOYEE);
+
+    private ChangeLog() {
+    }
+
+    /** The entity class for an API type name, or null if there is none. */
+    public static Class<?> entityClass(String type) {
+        for (Map.Entry<Class<?>, String> entry : TYPES.entrySet()) {
+            if (entry.getValue().equals(type)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends an entry for a managed entity. Call it before the transaction commits; for
+     * creates after save() (the id must be assigned), for deletes before delete().
+     */
+    public static void record(Session session, Object entity, ChangeLogEntry.Operation operation) {
+        String type = TYPES.get(Hibernate.getClass(entity));
+        if (type == null) {
+            throw new IllegalArgumentException("Not a synchronized entity: " + entity.getClass().getName());
+        }
+        session.persist(new ChangeLogEntry(type, (Long) session.getIdentifier(entity), operation));
+        sequenceAtCommit(session);
+    }
+
+    /**
+     * Appends one entry per id returned by a native {@code idSelect} (a query with a single
+     * {@code id} column), as one INSERT ... SELECT. For bulk statements, which never load the
+     * entities they change; run it in the same transaction, before the bulk statement.
+     */
+    public static int recordAll(Session session, String entityType, ChangeLogEntry.Operation operation,
+                                String idSelect, Map<String, Object> parameters) {
+        MutationQuery insert = session.createNativeMutationQuery(
+            "insert into change_log (seq, entity_type, entity_id, operation, changed_at) " +
+            "select -nextval('change_log_seq'), :entityType, ids.id, :operation, :changedAt " +
+            "from (" + idSelect + ") ids")
+            .setParameter("entityType", entityType)
+            .setParameter("operation", operation.name())
+            .setParameter("changedAt", LocalDateTime.now());
+        parameters.forEach(insert::setParameter);
+        sequenceAtCommit(session);
+        return insert.executeUpdate();
+    }
+
+    /**
+     * Advances the head when the transaction commits without logging an entry, for writes that
+     * GET /changes does not serve but other nodes' in-memory indexes follow (reservations): see
+     * {@link ChangeLogFollower}.
+     */
+    public static void touch(Session session) {
+        sequenceAtCommit(session);
+    }
+
+    /** The sequence number of the last committed entry, 0 before the first. */
+    public static long head(Session session) {
+        Long seq = session.createQuery("select h.seq from ChangeLogHead h where h.id = :id", Long.class)
+            .setParameter("id", ChangeLogHead.ID)
+            .uniqueResult();
+        return seq == null ? 0 : seq;
+    }
+
+    // Renumbers the session's entries when its transaction commits; registered once per session
+    private static void sequenceAtCommit(Session session) {
+        if (session.getProperties().containsKey(SEQUENCE_AT_COMMIT)) {
+            return;
+        }
+        session.setProperty(SEQUENCE_AT_COMMIT, Boolean.TRUE);
+        session.unwrap(SessionImplementor.class).getActionQueue()
+            .registerProcess(ChangeLog::assignSequence);
+    }
+
+    // Runs after the final flush. Provisional numbers are negative and only this transaction's
+    // uncommitted entries have them; they are numbered in the order they were recorded.
+    private static void assignSequence(SessionImplementor session) {
+        String span = "coalesce((select max(c.seq) - min(c.seq) + 1 from change_log c where c.seq < 0), 1)";
+        // Locks the head until the commit: the next writer waits here, then numbers after us
+        int updated = session.createNativeMutationQuery(
+            "update change_log_head set seq = seq + " + span + " where id = :id")
+            .setParameter("id", ChangeLogHead.ID)
+            .executeUpdate();
+        if (updated == 0) {
+            // No head yet (an empty schema created without the migrations): start after the log
+            session.createNativeMutationQuery(
+                "insert into change_log_head (id, seq, compacted_through) " +
+                "select :id, coalesce(max(l.seq), 0) + " + span + ", 0 from change_log l where l.seq > 0")
+                .setParameter("id", ChangeLogHead.ID)
+                .executeUpdate();
+        }
+
+        Object[] row = session.createNativeQuery(
+            "select h.seq, (select max(c.seq) from change_log c where c.seq < 0), " +
+            "(select min(c.seq) from change_log c where c.seq < 0) from change_log_head h where h.id = :id",
+            Object[].class)
+            .setParameter("id", ChangeLogHead.ID)
+            .getSingleResult();
+        long head = ((Number) row[0]).longValue();
+        long count = 1;
+        if (row[1] != null) {
+            long first = ((Number) row[1]).longValue();
+            long last = ((Number) row[2]).longValue();
+            count = first - last + 1;
+            // -first was recorded first and becomes head - count + 1; -last becomes head
+            session.createNativeMutationQuery("update change_log set seq = :base - seq where seq < 0")
+                .setParameter("base", head - count + 1 + first)
+                .executeUpdate();
+        }
+
+        // The listeners of this process apply the write themselves; the follower must not
+        // mistake these numbers for another node's
+        long taken = head - count + 1;
+        session.getActionQueue().registerProcess((success, completed) -> {
+            if (success) {
+                ChangeLogFollower.committed(taken, head);
+            }
+        });
+    }
+
+    public static long retentionHours(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(RETENTION_HOURS_PROPERTY);
+        return value == null ? DEFAULT_RETENTION_HOURS : Long.parseLong(value.toString().trim());
+    }
+
+    /**
+     * Deletes entries older than the retention period, and every entry numbered below them. The
+     * newest entry is always kept. The head row records the sequence number deleted up to, which
+     * tells clients whether they missed compacted entries: the numbers have gaps, so the lowest
+     * entry left cannot.
+     */
+    public static int compact(SessionFactory sessionFactory) {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours(sessionFactory));
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            Long through = session.createQuery(
+                "select max(c.seq) from ChangeLogEntry c where c.changedAt < :cutoff " +
+                "and c.seq < (select max(l.seq) from ChangeLogEntry l)", Long.class)
+                .setParameter("cutoff", cutoff)
+                .uniqueResult();
+            if (through == null || through <= 0) {
+                session.getTransaction().commit();
+                return 0;
+            }
+            // Provisional (negative) numbers belong to transactions still in flight
+            int deleted = session.createMutationQuery(
+                "delete from ChangeLogEntry c where c.seq > 0 and c.seq <= :through")
+                .setParameter("through", through)
+                .executeUpdate();
+            session.createMutationQuery(
+                "update ChangeLogHead h set h.compactedThrough = :through " +
+                "where h.id = :id and h.compactedThrough < :through")
+                .setParameter("through", through)
+                .setParameter("id", ChangeLogHead.ID)
+                .executeUpdate();
+            session.getTransaction().commit();
+            if (deleted > 0) {
+                logger.info("Compacted change log: deleted {} entries older than {}", deleted, cutoff);
+            }
+            return deleted;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.officemanagement.util;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notices writes committed by other nodes, so in-memory structures kept in sync from
+ * {@link DataChanges} do not go stale when several nodes share the database.
+ *
+ * Every write advances the change log head when it commits (see {@link ChangeLog}). The
+ * follower polls the head every officemanagement.changes.poll_millis and remembers the ranges
+ * this process committed itself, which the listeners already applied. When the head moved by
+ * anything else, it calls {@link DataChanges#invalidateAll()} and the listeners reload on their
+ * next read: a write on another node is visible here after one poll interval at most.
+ */
+public final class ChangeLogFollower {
+    public static final String POLL_MILLIS_PROPERTY = "officemanagement.changes.poll_millis";
+    public static final long DEFAULT_POLL_MILLIS = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogFollower.class);
+    private static volatile ChangeLogFollower instance;
+
+    private final SessionFactory sessionFactory;
+    // First and last sequence number of the commits of this process not yet polled past
+    private final TreeMap<Long, Long> local = new TreeMap<>();
+    private long seen;
+
+    private ChangeLogFollower(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.seen = head();
+    }
+
+    /**
+     * The follower, created on first use. Create it before loading anything that follows
+     * {@link DataChanges}: writes from other nodes are detected from then on.
+     */
+    public static ChangeLogFollower get(SessionFactory sessionFactory) {
+        ChangeLogFollower follower = instance;
+        if (follower == null) {
+            synchronized (ChangeLogFollower.class) {
+                follower = instance;
+                if (follower == null) {
+                    follower = new ChangeLogFollower(sessionFactory);
+                    instance = follower;
+                }
+            }
+        }
+        return follower;
+    }
+
+    /** Polls on the given executor until it shuts down. */
+    public void start(ScheduledExecutorService executor) {
+        long interval = pollMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                logger.warn("Polling the change log head failed", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Reads the head and invalidates the listeners if another node committed since the last poll. */
+    public synchronized void poll() {
+        long head = head();
+        if (head == seen) {
+            return;
+        }
+        if (head < seen) {
+            // The log was reset (a restored database): nothing remembered applies any more
+            local.clear();
+        }
+        long next = seen + 1;
+        for (Map.Entry<Long, Long> range : local.entrySet()) {
+            if (range.getKey() > next) {
+                break;
+            }
+            next = Math.max(next, range.getValue() + 1);
+        }
+        // A range committed here but registered after this read is left for the next poll
+        local.headMap(head, true).clear();
+        boolean covered = head > seen && next > head;
+        seen = head;
+        if (!covered) {
+            logger.debug("Change log head moved to {} by another node, invalidating", head);
+            DataChanges.invalidateAll();
+        }
+    }
+
+    // Called by ChangeLog after a commit of this process took sequence numbers first..last
+    static void committed(long first, long last) {
+        ChangeLogFollower follower = instance;
+        if (follower != null) {
+            synchronized (follower) {
+                if (last > follower.seen) {
+                    follower.local.put(first, last);
+                }
+            }
+        }
+    }
+
+    private long head() {
+        try (Session session = sessionFactory.openSession()) {
+            return ChangeLog.head(session);
+        }
+    }
+
+    private long pollMillis() {
+        Object value = sessionFactory.getProperties().get(POLL_MILLIS_PROPERTY);
+        return value == null ? DEFAULT_POLL_MILLIS : Long.parseLong(value.toString().trim());
+    }
+}
@@ -0,0 +1,45 @@
+package com.officemanagement.util;
+
+import com.officemanagement.model.ChangeLogEntry;
+import org.hibernate.Interceptor;
+import org.hibernate.Transaction;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.hibernate.type.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Session-scoped interceptor (one instance per session, see HibernateUtil) that collects the
+ * entities a transaction inserts, updates and deletes and hands them to {@link DataChanges}
+ * once the transaction has committed.
+ */
+public class ChangeTrackingInterceptor implements Interceptor {
+    private final List<DataChanges.EntityChange> changes = new ArrayList<>();
+
+    @Override
+    public boolean onSave(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        changes.add(new DataChanges.EntityChange(entity, ChangeLogEntry.Operation.CREATE));
+        return false;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Object id, Object[] currentState, Object[] previousState,
+                                String[] propertyNames, Type[] types) {
+        changes.add(new DataChanges.EntityChange(entity, ChangeLogEntry.Operation.UPDATE));
+        return false;
+    }
+
+    @Override
+    public void onDelete(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        changes.add(new DataChanges.EntityChange(entity, ChangeLogEntry.Operation.DELETE));
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        if (!changes.isEmpty() && tx.getStatus() == TransactionStatus.COMMITTED) {
+            DataChanges.publish(new ArrayList<>(changes));
+        }
+        changes.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package com.officemanagement.util;
+
+import com.officemanagement.model.ChangeLogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process notification of committed writes, for in-memory structures derived from the
+ * database (indexes, caches). {@link ChangeTrackingInterceptor} publishes the entities each
+ * committed transaction inserted, updated or deleted, and bumps {@link DataVersion}.
+ *
+ * Writes that bypass the persistence context (bulk HQL, native SQL) are invisible to the
+ * interceptor; whoever runs them must call {@link #invalidateAll()} after committing. Writes
+ * committed by other nodes are noticed by {@link ChangeLogFollower}, which invalidates too.
+ */
+public final class DataChanges {
+    private static final Logger logger = LoggerFactory.getLogger(DataChanges.class);
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public interface Listener {
+        /** Called after commit, on the committing thread, with the entities as flushed. */
+        void committed(List<EntityChange> changes);
+
+        /** Called when the data changed in ways that cannot be described entity by entity. */
+        void invalidated();
+    }
+
+    public static final class EntityChange {
+        private final Object entity;
+        private final ChangeLogEntry.Operation operation;
+
+        EntityChange(Object entity, ChangeLogEntry.Operation operation) {
+            this.entity = entity;
+            this.operation = operation;
+        }
+
+        public Object getEntity() {
+            return entity;
+        }
+
+        public ChangeLogEntry.Operation getOperation() {
+            return operation;
+        }
+    }
+
+    private DataChanges() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static void publish(List<EntityChange> changes) {
+        DataVersion.bump();
+        for (Listener listener : listeners) {
+            try {
+                listener.committed(changes);
+            } catch (RuntimeException e) {
+                // The write is committed; a listener that cannot follow must rebuild instead
+                logger.error("Change listener {} failed, invalidating it", listener, e);
+                listener.invalidated();
+            }
+        }
+    }
+
+    public static void invalidateAll() {
+        DataVersion.bump();
+        for (Listener listener : listeners) {
+            listener.invalidated();
+        }
+    }
+}
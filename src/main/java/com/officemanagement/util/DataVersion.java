@@ -0,0 +1,40 @@
+package com.officemanagement.util;
+
+import org.hibernate.Session;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the office data. Caches of derived responses key their entries on both, so a
+ * cached entry is only served while nothing has changed since it was built.
+ *
+ * {@link #shared} is the change log head, advanced by every logged write when it commits. It is
+ * the same on every node, so a write on any node changes it.
+ *
+ * {@link #current} is process-local, bumped after every committed write this process sees,
+ * including bulk statements and writes that are not logged. It is bumped through
+ * {@link DataChanges}: by {@link ChangeTrackingInterceptor} for writes through a Session and by
+ * {@link DataChanges#invalidateAll()} for bulk HQL and native SQL.
+ *
+ * ETags of cached responses hold both: with the shared version alone, a write that only moves
+ * the local one would change the response under an unchanged tag.
+ */
+public final class DataVersion {
+    private static final AtomicLong version = new AtomicLong();
+
+    private DataVersion() {
+    }
+
+    public static long current() {
+        return version.get();
+    }
+
+    /** The change log head, read in the given session: one statement. */
+    public static long shared(Session session) {
+        return ChangeLog.head(session);
+    }
+
+    static long bump() {
+        return version.incrementAndGet();
+    }
+}
@@ -0,0 +1,204 @@
+package com.officemanagement.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jakarta.persistence.Entity;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets: {@code ?fields=id,name,seats.seatNumber,seats.employee.fullName}.
+ *
+ * Paths are relative to the returned entity (to each element for list responses). Naming an
+ * association includes it whole; naming a nested path includes only that part of it. Unknown
+ * names are ignored. Resources use {@link #includes} to skip fetch joins nobody asked for, and
+ * {@link #apply} to limit what Jackson writes.
+ */
+public final class FieldSelection {
+    static final String FILTER_ID = "fieldSelection";
+
+    private final Set<String> paths;
+
+    private FieldSelection(Set<String> paths) {
+        this.paths = paths;
+    }
+
+    /** Returns null when no fields were requested, meaning "everything, as before". */
+    public static FieldSelection parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> paths = new LinkedHashSet<>();
+        for (String part : fields.split(",")) {
+            String path = part.trim();
+            if (!path.isEmpty()) {
+                paths.add(path);
+            }
+        }
+        return paths.isEmpty() ? null : new FieldSelection(Collections.unmodifiableSet(paths));
+    }
+
+    /** Whether anything at or below the given path is part of the response. */
+    public boolean includes(String path) {
+        for (String selected : paths) {
+            if (selected.equals(path)
+                    || selected.startsWith(path + ".")
+                    || path.startsWith(selected + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Null-safe {@link #includes}: without a selection everything is included. */
+    public static boolean includes(FieldSelection selection, String path) {
+        return selection == null || selection.includes(path);
+    }
+
+    /**
+     * The selected names if all of them are basic, JSON-visible attributes of the entity, so
+     * the response can be built from a scalar projection instead of entities; otherwise null.
+     */
+    public List<String> basicAttributes(Metamodel metamodel, Class<?> entityClass) {
+        EntityType<?> entityType = metamodel.entity(entityClass);
+        List<String> names = new ArrayList<>();
+        for (String path : paths) {
+            Attribute<?, ?> attribute = entityType.getAttributes().stream()
+                .filter(a -> a.getName().equals(path))
+                .findFirst()
+                .orElse(null);
+            if (attribute == null
+                    || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+                    || isJsonIgnored(entityClass, path)) {
+                return null;
+            }
+            names.add(path);
+        }
+        return names;
+    }
+
+    private static boolean isJsonIgnored(Class<?> type, String fieldName) {
+        try {
+            return type.getDeclaredField(fieldName).isAnnotationPresent(JsonIgnore.class);
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    /** Wraps a response entity (or list of entities) so it is written with this selection. */
+    public Object apply(Object value) {
+        return new Selected(value, this);
+    }
+
+    /** Null-safe {@link #apply}: without a selection the value is returned unchanged. */
+    public static Object apply(FieldSelection selection, Object value) {
+        return selection == null ? value : selection.apply(value);
+    }
+
+    /**
+     * Registers the property filter on every JPA entity. Without a selection in scope the
+     * filter writes everything, so responses that don't ask for fields are unchanged.
+     */
+    public static void configure(ObjectMapper mapper) {
+        mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public Object findFilterId(Annotated annotated) {
+                if (annotated instanceof AnnotatedClass && isEntity(annotated.getRawType())) {
+                    return FILTER_ID;
+                }
+                return super.findFilterId(annotated);
+            }
+        });
+        mapper.setFilterProvider(new SimpleFilterProvider().addFilter(FILTER_ID, new PathFilter()));
+    }
+
+    // References may be Hibernate proxies (when the entities are not enhanced): generated
+    // subclasses that don't inherit @Entity. Resolved on the class, which loads nothing
+    private static boolean isEntity(Class<?> type) {
+        if (HibernateProxy.class.isAssignableFrom(type)) {
+            type = type.getSuperclass();
+        }
+        return type.isAnnotationPresent(Entity.class);
+    }
+
+    // Writes the wrapped value as-is, with the selection visible to PathFilter for this call only
+    private static final class Selected implements JsonSerializable {
+        private final Object value;
+        private final FieldSelection selection;
+
+        Selected(Object value, FieldSelection selection) {
+            this.value = value;
+            this.selection = selection;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+            // Restored afterwards: a batch response writes several selections side by side
+            Object outer = provider.getAttribute(FieldSelection.class);
+            provider.setAttribute(FieldSelection.class, selection);
+            try {
+                provider.defaultSerializeValue(value, gen);
+            } finally {
+                provider.setAttribute(FieldSelection.class, outer);
+            }
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider provider,
+                                      TypeSerializer typeSerializer) throws IOException {
+            serialize(gen, provider);
+        }
+    }
+
+    private static final class PathFilter extends SimpleBeanPropertyFilter {
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider,
+                                     PropertyWriter writer) throws Exception {
+            FieldSelection selection = (FieldSelection) provider.getAttribute(FieldSelection.class);
+            if (selection == null || selection.includes(path(gen.getOutputContext(), writer.getName()))) {
+                writer.serializeAsField(pojo, gen, provider);
+            } else if (!gen.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, gen, provider);
+            }
+        }
+
+        // Property path from the outermost entity, e.g. "seats.employee.fullName"; wrappers
+        // such as page or multi-get responses and array levels are not part of it
+        private static String path(JsonStreamContext context, String name) {
+            StringBuilder path = new StringBuilder(name);
+            JsonStreamContext current = context;
+            while (true) {
+                JsonStreamContext parent = current.getParent();
+                while (parent != null && parent.inArray()) {
+                    parent = parent.getParent();
+                }
+                if (parent == null || !parent.inObject() || parent.getCurrentValue() == null
+                        || !isEntity(parent.getCurrentValue().getClass())) {
+                    return path.toString();
+                }
+                path.insert(0, parent.getCurrentName() + ".");
+                current = parent;
+            }
+        }
+    }
+}
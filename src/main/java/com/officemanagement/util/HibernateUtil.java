@@ -1,22 +1,36 @@
 package com.officemanagement.util;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
-
 public class HibernateUtil {
     private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
     private static volatile SessionFactory sessionFactory;
     private static final Object LOCK = new Object();
 
+    // Alternative configuration resource, e.g. hibernate-standalone.cfg.xml outside WildFly
+    public static final String CONFIG_RESOURCE_PROPERTY = "hibernate.cfg";
+
     private static Configuration createConfiguration() {
-        Configuration configuration = new Configuration().configure();
-        logger.debug("Created Hibernate configuration from hibernate.cfg.xml");
+        String resource = System.getProperty(CONFIG_RESOURCE_PROPERTY, "hibernate.cfg.xml");
+        Configuration configuration = new Configuration().configure(resource);
+
+        // -Dhibernate.connection.url=... and friends override the file
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("hibernate.") && !name.equals(CONFIG_RESOURCE_PROPERTY)) {
+                configuration.setProperty(name, System.getProperty(name));
+            }
+        }
+        // One interceptor per session: tracks committed writes for DataVersion
+        configuration.setProperty(AvailableSettings.SESSION_SCOPED_INTERCEPTOR,
+            ChangeTrackingInterceptor.class.getName());
+        // One listener per session: statement counts and JDBC time for RequestTrace
+        configuration.setProperty(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+            RequestTraceListener.class.getName());
+        logger.debug("Created Hibernate configuration from {}", resource);
         return configuration;
     }
 
@@ -26,8 +40,18 @@ public class HibernateUtil {
                 if (sessionFactory == null) {
                     try {
                         // Create configuration and build SessionFactory
-                        Configuration configuration = createConfiguration();
-                        sessionFactory = configuration.buildSessionFactory();
+                        Configuration configuration;
+                        try (StartupTimer.Phase phase = StartupTimer.phase("hibernate.configure")) {
+                            configuration = createConfiguration();
+                        }
+                        if (SchemaMigrator.isEnabled(configuration)) {
+                            try (StartupTimer.Phase phase = StartupTimer.phase("schema.migrate")) {
+                                SchemaMigrator.migrate(configuration);
+                            }
+                        }
+                        try (StartupTimer.Phase phase = StartupTimer.phase("hibernate.session-factory")) {
+                            sessionFactory = configuration.buildSessionFactory();
+                        }
                         logger.info("Hibernate SessionFactory initialized successfully");
                     } catch (Throwable ex) {
                         logger.error("Initial SessionFactory creation failed", ex);
@@ -0,0 +1,388 @@
+package com.officemanagement.util;
+
+import com.officemanagement.model.IdempotencyRecord;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Responses of requests sent with an {@code Idempotency-Key}: the idempotency_keys table,
+ * fronted by a bounded LRU of completed responses so that retries are usually answered
+ * without a query.
+ *
+ * A key is claimed by inserting its row before the request runs, which also works across
+ * instances. Within this instance a duplicate that arrives while the first request is still
+ * running waits for it and replays its response; on another instance it gets a "busy" answer.
+ *
+ * A successful response is stored by the request's own transaction ({@link #completeWith}),
+ * so a claim without a response never has committed work behind it: a duplicate may run again
+ * once the claim is released or abandoned, and otherwise gets the "busy" answer too, never a
+ * second run of a request whose outcome is unknown.
+ *
+ * Rows are written through a StatelessSession or with mutation queries, so they are not
+ * entity changes as far as {@link DataChanges} is concerned.
+ */
+public final class IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+    private static volatile IdempotencyStore instance;
+
+    public static final String CACHE_SIZE_PROPERTY = "officemanagement.idempotency.cache_size";
+    public static final String RETENTION_HOURS_PROPERTY = "officemanagement.idempotency.retention_hours";
+    // How long a duplicate waits for the request in flight before it is told to retry later
+    public static final String WAIT_SECONDS_PROPERTY = "officemanagement.idempotency.wait_seconds";
+    // A claim without a response after this long belongs to a request that died; it is taken over
+    public static final String STALE_SECONDS_PROPERTY = "officemanagement.idempotency.stale_seconds";
+
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final long DEFAULT_RETENTION_HOURS = 24;
+    private static final long DEFAULT_WAIT_SECONDS = 30;
+    private static final long DEFAULT_STALE_SECONDS = 120;
+
+    private final SessionFactory sessionFactory;
+    private final long retentionHours;
+    private final long waitNanos;
+    private final long staleSeconds;
+
+    // Completed responses only, least recently used first
+    private final Map<String, IdempotencyRecord> cache;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    // Handed to the duplicates of a request that gave its key up without committing anything
+    private static final IdempotencyRecord RELEASED = new IdempotencyRecord();
+
+    /** Thrown from a commit whose claim was taken over meanwhile: the retry's run is the one kept. */
+    public static final class ClaimLostException extends HibernateException {
+        ClaimLostException(String key) {
+            super("The claim of Idempotency-Key " + key + " was taken over by a retry");
+        }
+    }
+
+    private static final class InFlight {
+        final IdempotencyRecord owner;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        // The completed record, RELEASED if nothing was committed, or null if that is not known
+        final CompletableFuture<IdempotencyRecord> done = new CompletableFuture<>();
+
+        InFlight(IdempotencyRecord owner) {
+            this.owner = owner;
+        }
+    }
+
+    private IdempotencyStore(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.retentionHours = longProperty(sessionFactory, RETENTION_HOURS_PROPERTY, DEFAULT_RETENTION_HOURS);
+        this.waitNanos = TimeUnit.SECONDS.toNanos(longProperty(sessionFactory, WAIT_SECONDS_PROPERTY, DEFAULT_WAIT_SECONDS));
+        this.staleSeconds = longProperty(sessionFactory, STALE_SECONDS_PROPERTY, DEFAULT_STALE_SECONDS);
+        int cacheSize = (int) longProperty(sessionFactory, CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // One per process: RESTEasy may instantiate a provider once per role it plays
+    public static IdempotencyStore get(SessionFactory sessionFactory) {
+        if (instance == null) {
+            synchronized (IdempotencyStore.class) {
+                if (instance == null) {
+                    instance = new IdempotencyStore(sessionFactory);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Claims the key of {@code pending} for the calling request. Returns {@code pending} itself
+     * if the request should run; the caller must then end it with {@link #completeWith} and
+     * {@link #committed}, or with {@link #complete} or {@link #release}. Otherwise returns the record to answer with: a completed one to
+     * replay, or one that is not completed if another request still holds the key. The
+     * fingerprints are not compared here.
+     */
+    public IdempotencyRecord begin(IdempotencyRecord pending) {
+        String key = pending.getKey();
+        long deadline = System.nanoTime() + waitNanos;
+        while (true) {
+            IdempotencyRecord cached = cached(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            InFlight own = new InFlight(pending);
+            InFlight running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                IdempotencyRecord claimed;
+                try {
+                    claimed = claim(pending);
+                } catch (RuntimeException e) {
+                    finish(key, own, null);
+                    throw e;
+                }
+                if (claimed != pending) {
+                    finish(key, own, claimed.isCompleted() ? claimed : null);
+                }
+                return claimed;
+            }
+
+            IdempotencyRecord completed = await(running, deadline - System.nanoTime());
+            if (completed == RELEASED) {
+                // The first request failed without committing anything; run this one instead
+                continue;
+            }
+            if (completed != null) {
+                return completed;
+            }
+            if (!running.done.isDone()
+                    && running.startedAt.isBefore(LocalDateTime.now().minusSeconds(staleSeconds))) {
+                // Safe: if it still commits, completeWith finds the claim gone and rolls it back
+                logger.warn("Request with Idempotency-Key {} never completed; taking it over", key);
+                inFlight.remove(key, running);
+                continue;
+            }
+            // Still running, or its outcome is unknown; answer "busy" with a copy, never the
+            // owner's record
+            return new IdempotencyRecord(key, running.owner.getFingerprint());
+        }
+    }
+
+    /**
+     * Stores the response of a claimed request in the request's own transaction, so that it
+     * commits if and only if the request's work does. Throws {@link ClaimLostException} if the
+     * claim was taken over meanwhile, which rolls the work back. Once the transaction
+     * committed, call {@link #committed}; if it did not, {@link #complete} or {@link #release}.
+     */
+    public void completeWith(Session session, IdempotencyRecord claimed, int status, String contentType,
+                             String etag, byte[] body) {
+        int updated = session.createMutationQuery(
+            "update IdempotencyRecord r set r.status = :status, r.contentType = :contentType, " +
+            "r.etag = :etag, r.body = :body where r.key = :key and r.createdAt = :createdAt and r.status is null")
+            .setParameter("status", status)
+            .setParameter("contentType", contentType)
+            .setParameter("etag", etag)
+            .setParameter("body", body)
+            .setParameter("key", claimed.getKey())
+            .setParameter("createdAt", claimed.getCreatedAt())
+            .executeUpdate();
+        if (updated != 1) {
+            throw new ClaimLostException(claimed.getKey());
+        }
+    }
+
+    /** Hands the response stored by {@link #completeWith} to the duplicates waiting for it. */
+    public void committed(IdempotencyRecord claimed, int status, String contentType, String etag, byte[] body) {
+        claimed.complete(status, contentType, etag, body);
+        remember(claimed);
+        finish(claimed, claimed);
+    }
+
+    /**
+     * Stores the response of a claimed request in a transaction of its own, for responses that
+     * committed nothing (errors), and hands it to the duplicates waiting for it.
+     */
+    public void complete(IdempotencyRecord claimed, int status, String contentType, String etag, byte[] body) {
+        if (status >= 500) {
+            // Worth retrying for real: the next attempt runs again
+            release(claimed);
+            return;
+        }
+        IdempotencyRecord completed = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            // Matching the claim's own row: after a takeover the key belongs to someone else,
+            // and a response already there was stored by a commit this request did not see
+            int updated = session.createMutationQuery(
+                "update IdempotencyRecord r set r.status = :status, r.contentType = :contentType, " +
+                "r.etag = :etag, r.body = :body where r.key = :key and r.createdAt = :createdAt and r.status is null")
+                .setParameter("status", status)
+                .setParameter("contentType", contentType)
+                .setParameter("etag", etag)
+                .setParameter("body", body)
+                .setParameter("key", claimed.getKey())
+                .setParameter("createdAt", claimed.getCreatedAt())
+                .executeUpdate();
+            transaction.commit();
+            if (updated == 1) {
+                claimed.complete(status, contentType, etag, body);
+                completed = claimed;
+                remember(completed);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not store the response for Idempotency-Key {}", claimed.getKey(), e);
+        } finally {
+            finish(claimed, completed);
+        }
+    }
+
+    /** Gives up a claimed key without a response to replay, e.g. after a server error. */
+    public void release(IdempotencyRecord claimed) {
+        IdempotencyRecord released = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            int deleted = session.createMutationQuery(
+                "delete from IdempotencyRecord r where r.key = :key and r.createdAt = :createdAt and r.status is null")
+                .setParameter("key", claimed.getKey())
+                .setParameter("createdAt", claimed.getCreatedAt())
+                .executeUpdate();
+            transaction.commit();
+            if (deleted == 1) {
+                released = RELEASED;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not release Idempotency-Key {}", claimed.getKey(), e);
+        } finally {
+            finish(claimed, released);
+        }
+    }
+
+    public static long retentionHours(SessionFactory sessionFactory) {
+        return longProperty(sessionFactory, RETENTION_HOURS_PROPERTY, DEFAULT_RETENTION_HOURS);
+    }
+
+    /** Deletes keys older than the retention period; retries after that run again. */
+    public static int compact(SessionFactory sessionFactory) {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours(sessionFactory));
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            int deleted = session.createMutationQuery("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate();
+            transaction.commit();
+            if (deleted > 0) {
+                logger.info("Compacted idempotency keys: deleted {} older than {}", deleted, cutoff);
+            }
+            return deleted;
+        }
+    }
+
+    // Inserts the pending row, or finds the row that is already there
+    private IdempotencyRecord claim(IdempotencyRecord pending) {
+        while (true) {
+            if (insert(pending)) {
+                return pending;
+            }
+            IdempotencyRecord existing = load(pending.getKey());
+            if (existing == null) {
+                // Deleted in between; try again
+                continue;
+            }
+            if (existing.isCompleted() ? !isExpired(existing) : !isStale(existing)) {
+                if (existing.isCompleted()) {
+                    remember(existing);
+                }
+                return existing;
+            }
+            // An expired response not compacted yet, or an abandoned claim
+            delete(existing);
+        }
+    }
+
+    private boolean insert(IdempotencyRecord record) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                session.insert(record);
+                transaction.commit();
+                return true;
+            } catch (ConstraintViolationException e) {
+                transaction.rollback();
+                return false;
+            }
+        }
+    }
+
+    private IdempotencyRecord load(String key) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.get(IdempotencyRecord.class, key);
+        }
+    }
+
+    private void delete(IdempotencyRecord record) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            // Only the row as read: someone else may have taken it over already, or its request
+            // stored a response after all
+            session.createMutationQuery("delete from IdempotencyRecord r where r.key = :key and r.createdAt = :createdAt" +
+                    (record.isCompleted() ? "" : " and r.status is null"))
+                .setParameter("key", record.getKey())
+                .setParameter("createdAt", record.getCreatedAt())
+                .executeUpdate();
+            transaction.commit();
+        }
+    }
+
+    private IdempotencyRecord await(InFlight running, long remainingNanos) {
+        if (remainingNanos <= 0) {
+            return null;
+        }
+        try {
+            return running.done.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // Never completed exceptionally
+            return null;
+        }
+    }
+
+    private void finish(IdempotencyRecord claimed, IdempotencyRecord completed) {
+        InFlight entry = inFlight.get(claimed.getKey());
+        // Unless a duplicate already gave up on this request and took the key over
+        if (entry != null && entry.owner == claimed) {
+            finish(claimed.getKey(), entry, completed);
+        }
+    }
+
+    private void finish(String key, InFlight entry, IdempotencyRecord completed) {
+        inFlight.remove(key, entry);
+        entry.done.complete(completed);
+    }
+
+    private IdempotencyRecord cached(String key) {
+        synchronized (cache) {
+            IdempotencyRecord record = cache.get(key);
+            if (record != null && isExpired(record)) {
+                cache.remove(key);
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private void remember(IdempotencyRecord record) {
+        synchronized (cache) {
+            cache.put(record.getKey(), record);
+        }
+    }
+
+    private boolean isExpired(IdempotencyRecord record) {
+        return record.getCreatedAt().isBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    private boolean isStale(IdempotencyRecord record) {
+        return record.getCreatedAt().isBefore(LocalDateTime.now().minusSeconds(staleSeconds));
+    }
+
+    private static long longProperty(SessionFactory sessionFactory, String name, long defaultValue) {
+        Object value = sessionFactory.getProperties().get(name);
+        return value == null ? defaultValue : Long.parseLong(value.toString().trim());
+    }
+}
@@ -0,0 +1,381 @@
+package com.officemanagement.util;
+
+import com.officemanagement.model.OccupancyRollup.Resolution;
+import com.officemanagement.model.OccupancyRollup.Scope;
+import com.officemanagement.model.SchedulerLease;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records room, floor and building occupancy behind {@code GET /stats/history}. Each sample is
+ * one grouped query kept in a fixed-size ring buffer; flush() folds the buffered samples into
+ * minute, hour and day rollups and merges them with two JDBC batches (update, then insert the
+ * buckets that did not exist yet). Samples are only discarded once their flush committed.
+ *
+ * Every node samples the same database, so only one of them does: the one holding the
+ * "occupancy-sampler" lease ({@link #acquireLease}), which it renews at every sample and loses
+ * when it stops for three sample intervals. A node that lost the lease still flushes the samples
+ * it took. Should its flush race the new holder's into inserting the same bucket, the loser's
+ * transaction fails on uk_occupancy_rollups_bucket and its next flush merges by update.
+ */
+public final class OccupancySampler {
+    private static final Logger logger = LoggerFactory.getLogger(OccupancySampler.class);
+
+    public static final String SAMPLE_SECONDS_PROPERTY = "officemanagement.history.sample_seconds";
+    public static final long DEFAULT_SAMPLE_SECONDS = 60;
+
+    public static final String FLUSH_SECONDS_PROPERTY = "officemanagement.history.flush_seconds";
+    public static final long DEFAULT_FLUSH_SECONDS = 300;
+
+    // Samples held between flushes; when full the oldest are overwritten
+    public static final String BUFFER_SIZE_PROPERTY = "officemanagement.history.buffer_size";
+    public static final long DEFAULT_BUFFER_SIZE = 1024;
+
+    // Minute and hour rollups older than this are deleted by compact(); day rollups are kept
+    public static final String MINUTE_RETENTION_HOURS_PROPERTY = "officemanagement.history.minute_retention_hours";
+    public static final long DEFAULT_MINUTE_RETENTION_HOURS = 48;
+    public static final String HOUR_RETENTION_DAYS_PROPERTY = "officemanagement.history.hour_retention_days";
+    public static final long DEFAULT_HOUR_RETENTION_DAYS = 90;
+
+    private static final String UPDATE_SQL =
+        "update occupancy_rollups set samples = samples + ?, occupied_sum = occupied_sum + ?, " +
+        "occupied_min = least(occupied_min, ?), occupied_max = greatest(occupied_max, ?), " +
+        "seats = greatest(seats, ?) " +
+        "where resolution = ? and scope_type = ? and scope_id = ? and bucket_start = ?";
+
+    private static final String INSERT_SQL =
+        "insert into occupancy_rollups (id, resolution, scope_type, scope_id, bucket_start, " +
+        "samples, occupied_sum, occupied_min, occupied_max, seats) " +
+        "values (nextval('occupancy_rollup_seq'), ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String LEASE = "occupancy-sampler";
+
+    private final SessionFactory sessionFactory;
+    private final String node = UUID.randomUUID().toString();
+    private final long leaseSeconds;
+
+    // Ring buffer: the newest sample is at (written - 1) % length
+    private final Sample[] ring;
+    private long written;
+    private int size;
+
+    public OccupancySampler(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.ring = new Sample[(int) longProperty(sessionFactory, BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE)];
+        this.leaseSeconds = 3 * longProperty(sessionFactory, SAMPLE_SECONDS_PROPERTY, DEFAULT_SAMPLE_SECONDS);
+    }
+
+    /** Samples and flushes at the configured intervals on the given executor. */
+    public void start(ScheduledExecutorService executor) {
+        long sampleSeconds = longProperty(sessionFactory, SAMPLE_SECONDS_PROPERTY, DEFAULT_SAMPLE_SECONDS);
+        long flushSeconds = longProperty(sessionFactory, FLUSH_SECONDS_PROPERTY, DEFAULT_FLUSH_SECONDS);
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                if (acquireLease(now)) {
+                    sample(now);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Occupancy sampling failed", e);
+            }
+        }, sampleSeconds, sampleSeconds, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.warn("Occupancy flush failed; samples are kept for the next one", e);
+            }
+        }, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Takes one sample of every room's occupancy, as of {@code at}, into the buffer. */
+    public void sample(LocalDateTime at) {
+        List<Object[]> rows;
+        try (Session session = sessionFactory.openSession()) {
+            session.setDefaultReadOnly(true);
+            rows = session.createQuery(
+                "select r.floor.id, r.id, count(s), count(s.employee.id) " +
+                "from OfficeRoom r left join r.seats s " +
+                "group by r.floor.id, r.id", Object[].class)
+                .list();
+        }
+
+        Sample sample = new Sample(at, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            sample.floorIds[i] = row[0] == null ? 0 : (Long) row[0];
+            sample.roomIds[i] = (Long) row[1];
+            sample.seats[i] = ((Long) row[2]).intValue();
+            sample.occupied[i] = ((Long) row[3]).intValue();
+        }
+        add(sample);
+    }
+
+    /**
+     * Takes the sampling lease, or renews it if this sampler holds it already, as of {@code now}.
+     * False while another node holds an unexpired lease.
+     */
+    public boolean acquireLease(LocalDateTime now) {
+        LocalDateTime until = now.plusSeconds(leaseSeconds);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                int updated = session.createMutationQuery(
+                    "update SchedulerLease l set l.owner = :owner, l.expiresAt = :until " +
+                    "where l.name = :name and (l.owner = :owner or l.expiresAt < :now)")
+                    .setParameter("owner", node)
+                    .setParameter("until", until)
+                    .setParameter("name", LEASE)
+                    .setParameter("now", now)
+                    .executeUpdate();
+                if (updated == 0 && session.get(SchedulerLease.class, LEASE) == null) {
+                    session.insert(new SchedulerLease(LEASE, node, until));
+                    updated = 1;
+                }
+                transaction.commit();
+                return updated == 1;
+            } catch (ConstraintViolationException e) {
+                // Another node inserted the lease first
+                transaction.rollback();
+                return false;
+            }
+        }
+    }
+
+    /** Writes the buffered samples to the rollups; returns how many samples were written. */
+    public int flush() {
+        long upTo;
+        List<Sample> pending;
+        synchronized (this) {
+            upTo = written;
+            pending = new ArrayList<>(size);
+            for (long i = written - size; i < written; i++) {
+                pending.add(ring[(int) (i % ring.length)]);
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Bucket> buckets = new ArrayList<>(rollUp(pending).values());
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.doWork(connection -> {
+                int[] updated;
+                try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                    for (Bucket bucket : buckets) {
+                        update.setInt(1, bucket.samples);
+                        update.setLong(2, bucket.occupiedSum);
+                        update.setInt(3, bucket.occupiedMin);
+                        update.setInt(4, bucket.occupiedMax);
+                        update.setInt(5, bucket.seats);
+                        update.setString(6, bucket.key.resolution.name());
+                        update.setString(7, bucket.key.scope.name());
+                        update.setLong(8, bucket.key.scopeId);
+                        update.setTimestamp(9, Timestamp.valueOf(bucket.key.start));
+                        update.addBatch();
+                    }
+                    updated = update.executeBatch();
+                }
+
+                try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                    boolean any = false;
+                    for (int i = 0; i < buckets.size(); i++) {
+                        if (updated[i] > 0) {
+                            continue;
+                        }
+                        Bucket bucket = buckets.get(i);
+                        insert.setString(1, bucket.key.resolution.name());
+                        insert.setString(2, bucket.key.scope.name());
+                        insert.setLong(3, bucket.key.scopeId);
+                        insert.setTimestamp(4, Timestamp.valueOf(bucket.key.start));
+                        insert.setInt(5, bucket.samples);
+                        insert.setLong(6, bucket.occupiedSum);
+                        insert.setInt(7, bucket.occupiedMin);
+                        insert.setInt(8, bucket.occupiedMax);
+                        insert.setInt(9, bucket.seats);
+                        insert.addBatch();
+                        any = true;
+                    }
+                    if (any) {
+                        insert.executeBatch();
+                    }
+                }
+            });
+            session.getTransaction().commit();
+        }
+
+        synchronized (this) {
+            // Samples overwritten while flushing are gone either way
+            size = (int) Math.min(size, written - upTo);
+        }
+        logger.debug("Flushed {} occupancy samples into {} rollup buckets", pending.size(), buckets.size());
+        return pending.size();
+    }
+
+    /** Deletes minute and hour rollups past their retention period. */
+    public int compact() {
+        LocalDateTime now = LocalDateTime.now();
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            int deleted = session.createMutationQuery(
+                "delete from OccupancyRollup r where " +
+                "(r.resolution = :minute and r.bucketStart < :minuteCutoff) or " +
+                "(r.resolution = :hour and r.bucketStart < :hourCutoff)")
+                .setParameter("minute", Resolution.MINUTE)
+                .setParameter("minuteCutoff", retentionStart(sessionFactory, Resolution.MINUTE, now))
+                .setParameter("hour", Resolution.HOUR)
+                .setParameter("hourCutoff", retentionStart(sessionFactory, Resolution.HOUR, now))
+                .executeUpdate();
+            session.getTransaction().commit();
+            if (deleted > 0) {
+                logger.info("Compacted occupancy history: deleted {} rollups", deleted);
+            }
+            return deleted;
+        }
+    }
+
+    /** The oldest time the given resolution still has rollups for, or null if it keeps them all. */
+    public static LocalDateTime retentionStart(SessionFactory sessionFactory, Resolution resolution, LocalDateTime now) {
+        switch (resolution) {
+            case MINUTE:
+                return now.minusHours(longProperty(sessionFactory,
+                    MINUTE_RETENTION_HOURS_PROPERTY, DEFAULT_MINUTE_RETENTION_HOURS));
+            case HOUR:
+                return now.minusDays(longProperty(sessionFactory,
+                    HOUR_RETENTION_DAYS_PROPERTY, DEFAULT_HOUR_RETENTION_DAYS));
+            default:
+                return null;
+        }
+    }
+
+    private synchronized void add(Sample sample) {
+        ring[(int) (written % ring.length)] = sample;
+        written++;
+        if (size < ring.length) {
+            size++;
+        } else {
+            logger.warn("Occupancy buffer full; dropped the oldest sample");
+        }
+    }
+
+    // Folds samples into one bucket per resolution, scope and bucket start
+    private static Map<BucketKey, Bucket> rollUp(List<Sample> samples) {
+        Map<BucketKey, Bucket> buckets = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            Map<Long, int[]> floors = new LinkedHashMap<>();
+            int buildingSeats = 0;
+            int buildingOccupied = 0;
+            for (int i = 0; i < sample.roomIds.length; i++) {
+                add(buckets, sample.at, Scope.ROOM, sample.roomIds[i], sample.occupied[i], sample.seats[i]);
+                int[] floor = floors.computeIfAbsent(sample.floorIds[i], id -> new int[2]);
+                floor[0] += sample.occupied[i];
+                floor[1] += sample.seats[i];
+                buildingOccupied += sample.occupied[i];
+                buildingSeats += sample.seats[i];
+            }
+            for (Map.Entry<Long, int[]> floor : floors.entrySet()) {
+                add(buckets, sample.at, Scope.FLOOR, floor.getKey(), floor.getValue()[0], floor.getValue()[1]);
+            }
+            add(buckets, sample.at, Scope.BUILDING, 0L, buildingOccupied, buildingSeats);
+        }
+        return buckets;
+    }
+
+    private static void add(Map<BucketKey, Bucket> buckets, LocalDateTime at, Scope scope, long scopeId,
+                            int occupied, int seats) {
+        for (Resolution resolution : Resolution.values()) {
+            BucketKey key = new BucketKey(resolution, scope, scopeId, resolution.truncate(at));
+            buckets.computeIfAbsent(key, Bucket::new).add(occupied, seats);
+        }
+    }
+
+    private static long longProperty(SessionFactory sessionFactory, String name, long defaultValue) {
+        Object value = sessionFactory.getProperties().get(name);
+        return value == null ? defaultValue : Long.parseLong(value.toString().trim());
+    }
+
+    // One sample: parallel arrays, one entry per room
+    private static class Sample {
+        final LocalDateTime at;
+        final long[] floorIds;
+        final long[] roomIds;
+        final int[] seats;
+        final int[] occupied;
+
+        Sample(LocalDateTime at, int rooms) {
+            this.at = at;
+            this.floorIds = new long[rooms];
+            this.roomIds = new long[rooms];
+            this.seats = new int[rooms];
+            this.occupied = new int[rooms];
+        }
+    }
+
+    private static class BucketKey {
+        final Resolution resolution;
+        final Scope scope;
+        final long scopeId;
+        final LocalDateTime start;
+
+        BucketKey(Resolution resolution, Scope scope, long scopeId, LocalDateTime start) {
+            this.resolution = resolution;
+            this.scope = scope;
+            this.scopeId = scopeId;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return resolution == other.resolution && scope == other.scope
+                && scopeId == other.scopeId && start.equals(other.start);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resolution, scope, scopeId, start);
+        }
+    }
+
+    private static class Bucket {
+        final BucketKey key;
+        int samples;
+        long occupiedSum;
+        int occupiedMin = Integer.MAX_VALUE;
+        int occupiedMax;
+        int seats;
+
+        Bucket(BucketKey key) {
+            this.key = key;
+        }
+
+        void add(int occupied, int seats) {
+            samples++;
+            occupiedSum += occupied;
+            occupiedMin = Math.min(occupiedMin, occupied);
+            occupiedMax = Math.max(occupiedMax, occupied);
+            this.seats = Math.max(this.seats, seats);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.officemanagement.util;
+
+import org.hibernate.SessionFactory;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where one request's time went: JDBC statements and their time, the time sessions were open,
+ * and the time spent writing the response body. Started by RequestTracingFilter and bound to
+ * the request thread; {@link RequestTraceListener} adds the database side for every session
+ * opened while it is bound, whichever thread later uses that session.
+ */
+public final class RequestTrace {
+    public static final String SAMPLE_RATE_PROPERTY = "officemanagement.trace.sample_rate";
+    public static final String SERVER_TIMING_PROPERTY = "officemanagement.trace.server_timing";
+    public static final String BUFFER_BODIES_PROPERTY = "officemanagement.trace.buffer_bodies";
+
+    private static final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+
+    private final String requestId;
+    private final String method;
+    private final String path;
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong jdbcNanos = new AtomicLong();
+    private final AtomicLong sessionNanos = new AtomicLong();
+    private final AtomicLong serializationNanos = new AtomicLong();
+
+    private RequestTrace(String requestId, String method, String path) {
+        this.requestId = requestId;
+        this.method = method;
+        this.path = path;
+    }
+
+    /** Starts a trace and binds it to the calling thread, replacing any left behind. */
+    public static RequestTrace begin(String requestId, String method, String path) {
+        RequestTrace trace = new RequestTrace(requestId, method, path);
+        current.set(trace);
+        return trace;
+    }
+
+    /** The trace bound to this thread, or null outside of a traced request. */
+    public static RequestTrace current() {
+        return current.get();
+    }
+
+    /** Binds a started trace to a worker thread that serves part of its request. */
+    public static void bind(RequestTrace trace) {
+        if (trace != null) {
+            current.set(trace);
+        }
+    }
+
+    public static void unbind() {
+        current.remove();
+    }
+
+    /** 0 (the default) never logs traces, 1 logs every request. */
+    public static double sampleRate(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(SAMPLE_RATE_PROPERTY);
+        return value == null ? 0 : Double.parseDouble(value.toString().trim());
+    }
+
+    public static boolean serverTimingEnabled(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(SERVER_TIMING_PROPERTY);
+        return value == null || Boolean.parseBoolean(value.toString().trim());
+    }
+
+    public static boolean bufferBodiesEnabled(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(BUFFER_BODIES_PROPERTY);
+        return value != null && Boolean.parseBoolean(value.toString().trim());
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    void statementExecuted(long nanos) {
+        statements.incrementAndGet();
+        jdbcNanos.addAndGet(nanos);
+    }
+
+    void jdbcTime(long nanos) {
+        jdbcNanos.addAndGet(nanos);
+    }
+
+    void sessionClosed(long nanos) {
+        sessionNanos.addAndGet(nanos);
+    }
+
+    public void serialized(long nanos) {
+        serializationNanos.addAndGet(nanos);
+    }
+
+    /**
+     * The Server-Timing header value, e.g.
+     * {@code db;desc="3 statements";dur=1.20, session;dur=4.02, serialize;dur=0.81, total;dur=7.34};
+     * without the serialize entry unless the body was already serialized.
+     */
+    public String serverTiming(boolean withSerialization) {
+        return "db;desc=\"" + statements.get() + (statements.get() == 1 ? " statement" : " statements") +
+            "\";dur=" + millis(jdbcNanos.get()) +
+            ", session;dur=" + millis(sessionNanos.get()) +
+            (withSerialization ? ", serialize;dur=" + millis(serializationNanos.get()) : "") +
+            ", total;dur=" + millis(System.nanoTime() - startedAt);
+    }
+
+    /** One line of key=value pairs for the trace log. */
+    public String summary(int status) {
+        return "requestId=" + requestId +
+            " method=" + method +
+            " path=" + path +
+            " status=" + status +
+            " statements=" + statements.get() +
+            " jdbcMs=" + millis(jdbcNanos.get()) +
+            " sessionMs=" + millis(sessionNanos.get()) +
+            " serializationMs=" + millis(serializationNanos.get()) +
+            " totalMs=" + millis(System.nanoTime() - startedAt);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.officemanagement.util;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate creates one of these for every session (hibernate.session.events.auto, set by
+ * HibernateUtil). Sessions opened during a traced request report their statements, JDBC time
+ * and lifetime to that request's {@link RequestTrace}; all others cost a null check per event.
+ *
+ * JDBC time is preparing and executing statements and batches; reading result sets is not
+ * part of it, so it leaves room for hydration within the session time.
+ */
+public class RequestTraceListener extends BaseSessionEventListener {
+    private final RequestTrace trace = RequestTrace.current();
+    private final long openedAt = trace == null ? 0 : System.nanoTime();
+
+    private long prepareStart;
+    private long executeStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        if (trace != null) {
+            prepareStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        if (trace != null) {
+            trace.jdbcTime(System.nanoTime() - prepareStart);
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        if (trace != null) {
+            executeStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        if (trace != null) {
+            trace.statementExecuted(System.nanoTime() - executeStart);
+        }
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        if (trace != null) {
+            batchStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        if (trace != null) {
+            // A batch is one round trip, counted as one statement
+            trace.statementExecuted(System.nanoTime() - batchStart);
+        }
+    }
+
+    @Override
+    public void end() {
+        if (trace != null) {
+            trace.sessionClosed(System.nanoTime() - openedAt);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.officemanagement.util;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.hibernate.cfg.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+/**
+ * Applies the versioned migrations in db/migration before Hibernate validates the schema.
+ * Databases that were created by hand from .devcontainer/schema.sql are baselined at V1.
+ */
+public final class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    public static final String MIGRATE_PROPERTY = "officemanagement.schema.migrate";
+
+    private SchemaMigrator() {
+    }
+
+    public static boolean isEnabled(Configuration configuration) {
+        return Boolean.parseBoolean(configuration.getProperty(MIGRATE_PROPERTY));
+    }
+
+    public static void migrate(Configuration configuration) {
+        Flyway flyway = Flyway.configure()
+            .dataSource(resolveDataSource(configuration))
+            .locations("classpath:db/migration")
+            .baselineOnMigrate(true)
+            .baselineVersion("1")
+            .load();
+        MigrateResult result = flyway.migrate();
+        logger.info("Schema migrated to version {} ({} migrations applied)",
+            result.targetSchemaVersion, result.migrationsExecuted);
+    }
+
+    private static DataSource resolveDataSource(Configuration configuration) {
+        String jndiName = configuration.getProperty("hibernate.connection.datasource");
+        if (jndiName != null) {
+            try {
+                return (DataSource) new InitialContext().lookup(jndiName);
+            } catch (NamingException e) {
+                throw new IllegalStateException("Cannot look up datasource " + jndiName, e);
+            }
+        }
+        return Flyway.configure()
+            .dataSource(
+                configuration.getProperty("hibernate.connection.url"),
+                configuration.getProperty("hibernate.connection.username"),
+                configuration.getProperty("hibernate.connection.password"))
+            .getDataSource();
+    }
+}
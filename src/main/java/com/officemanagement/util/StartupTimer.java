@@ -0,0 +1,73 @@
+package com.officemanagement.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long each startup phase takes and logs the time from JVM start to the first
+ * served request, which is what autoscaling actually waits for.
+ *
+ * <pre>
+ * try (StartupTimer.Phase phase = StartupTimer.phase("hibernate.session-factory")) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class StartupTimer {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimer.class);
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static final AtomicBoolean firstRequestServed = new AtomicBoolean();
+
+    private StartupTimer() {
+    }
+
+    public static Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /** Milliseconds since the JVM was started (includes JVM boot and classloading before main). */
+    public static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    public static synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /** Logs the startup summary once, when the first response is about to be sent. */
+    public static void firstRequestServed() {
+        if (firstRequestServed.get() || !firstRequestServed.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info("Time to first request: {} ms after JVM start (startup phases in ms: {})",
+            uptimeMillis(), getPhases());
+    }
+
+    public static boolean isFirstRequestServed() {
+        return firstRequestServed.get();
+    }
+
+    private static synchronized void record(String name, long millis) {
+        phases.merge(name, millis, Long::sum);
+        logger.info("Startup phase {} took {} ms", name, millis);
+    }
+
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start = System.nanoTime();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            record(name, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
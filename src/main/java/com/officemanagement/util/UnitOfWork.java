@@ -0,0 +1,145 @@
+package com.officemanagement.util;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The session and transaction of the current request, bound to its thread by
+ * UnitOfWorkFilter for resource methods marked @ReadOnly or @ReadWrite. A resource takes the
+ * session from {@link #currentSession()} and never begins, commits or closes anything itself;
+ * the filter commits a read-write unit when the response is a success and rolls back in every
+ * other case, so no return path can leave a transaction open.
+ *
+ * Work that must only happen once the data is committed (cache invalidation, audit events)
+ * is registered with {@link #afterCommit}; writes that must commit together with everything
+ * else, but only once the response is known, with {@link #beforeCommit}.
+ */
+public final class UnitOfWork {
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private final Session session;
+    private final boolean readOnly;
+    private final List<Consumer<Session>> beforeCommit = new ArrayList<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    private UnitOfWork(Session session, boolean readOnly) {
+        this.session = session;
+        this.readOnly = readOnly;
+    }
+
+    /** Opens a session, begins its transaction and binds both to the calling thread. */
+    public static UnitOfWork begin(SessionFactory sessionFactory, boolean readOnly) {
+        UnitOfWork leftover = current.get();
+        if (leftover != null) {
+            // The previous request on this thread died before its response was filtered
+            logger.warn("Rolling back a unit of work left behind on {}", Thread.currentThread().getName());
+            leftover.end(false);
+        }
+
+        Session session = sessionFactory.openSession();
+        try {
+            if (readOnly) {
+                // No snapshots for dirty checking, and nothing is ever flushed
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+            }
+            session.beginTransaction();
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+        UnitOfWork work = new UnitOfWork(session, readOnly);
+        current.set(work);
+        return work;
+    }
+
+    /** The unit of work bound to this thread, or null. */
+    public static UnitOfWork current() {
+        return current.get();
+    }
+
+    public static Session currentSession() {
+        UnitOfWork work = current.get();
+        if (work == null) {
+            throw new IllegalStateException("No unit of work on this thread; mark the resource method @ReadOnly or @ReadWrite");
+        }
+        return work.session;
+    }
+
+    /**
+     * Runs the action after the current unit of work committed, on the same thread; never if
+     * it rolls back. Without a unit of work it runs right away.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork work = current.get();
+        if (work == null) {
+            action.run();
+        } else {
+            work.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Runs the action while the current read-write unit of work commits, after the final flush
+     * and inside its transaction: what it writes commits or rolls back with the rest. An
+     * exception from it rolls the unit back and is thrown from the commit. Never runs if the
+     * unit rolls back.
+     */
+    public static void beforeCommit(Consumer<Session> action) {
+        UnitOfWork work = current.get();
+        if (work == null || work.readOnly) {
+            throw new IllegalStateException("No read-write unit of work on this thread");
+        }
+        work.beforeCommit.add(action);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Commits (read-write units only, when {@code success}) or rolls back, then closes the
+     * session and unbinds it. A failing commit is thrown after the session was closed.
+     */
+    public void end(boolean success) {
+        boolean committed = false;
+        try {
+            Transaction transaction = session.getTransaction();
+            if (transaction.isActive()) {
+                if (success && !readOnly && !transaction.getRollbackOnly()) {
+                    for (Consumer<Session> action : beforeCommit) {
+                        session.unwrap(SessionImplementor.class).getActionQueue()
+                            .registerProcess(completing -> action.accept(session));
+                    }
+                    transaction.commit();
+                    committed = true;
+                } else {
+                    transaction.rollback();
+                }
+            }
+        } finally {
+            current.remove();
+            session.close();
+        }
+
+        if (committed) {
+            for (Runnable action : afterCommit) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.warn("After-commit action failed", e);
+                }
+            }
+        }
+    }
+}
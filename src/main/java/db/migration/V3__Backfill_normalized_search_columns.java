@@ -0,0 +1,38 @@
+package db.migration;
+
+import com.officemanagement.util.TextNormalizer;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Fills the normalized search columns added in V2 for existing employees.
+ * Done in Java so the stored values use exactly the same rules as the application.
+ */
+public class V3__Backfill_normalized_search_columns extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement select = connection.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, full_name, occupation FROM employees");
+             PreparedStatement update = connection.prepareStatement(
+                 "UPDATE employees SET full_name_normalized = ?, occupation_normalized = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rs.next()) {
+                update.setString(1, TextNormalizer.normalize(rs.getString("full_name")));
+                update.setString(2, TextNormalizer.normalize(rs.getString("occupation")));
+                update.setLong(3, rs.getLong("id"));
+                update.addBatch();
+                if (++pending % 500 == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+    }
+}
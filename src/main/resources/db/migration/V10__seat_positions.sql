@@ -0,0 +1,6 @@
+-- Floor plan positions for GET /seats/nearby: rooms on their floor, seats relative to their room.
+-- Nullable; seats without a position are not found by the nearby search.
+ALTER TABLE office_rooms ADD COLUMN pos_x DOUBLE PRECISION;
+ALTER TABLE office_rooms ADD COLUMN pos_y DOUBLE PRECISION;
+ALTER TABLE seats ADD COLUMN pos_x DOUBLE PRECISION;
+ALTER TABLE seats ADD COLUMN pos_y DOUBLE PRECISION;
@@ -0,0 +1,10 @@
+-- Last sequence number handed to a committed change_log entry. Writing transactions take their
+-- final sequence numbers from this row right before they commit; its row lock orders them, so
+-- sequence numbers follow commit order. change_log_seq now only provides provisional (negative)
+-- numbers for the entries of transactions still in flight.
+CREATE TABLE change_log_head (
+    id INTEGER PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+
+INSERT INTO change_log_head (id, seq) SELECT 1, COALESCE(MAX(seq), 0) FROM change_log;
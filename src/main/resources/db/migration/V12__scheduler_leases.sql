@@ -0,0 +1,7 @@
+-- Which node runs a job that must run on one node only (the occupancy sampler), until when.
+-- The holder renews its lease while it runs; another node takes it over once it expired.
+CREATE TABLE scheduler_leases (
+    name VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(64) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,6 @@
+-- Highest sequence number compaction deleted entries up to. Sequence numbers have gaps (commits
+-- that only advance the head, for one), so the lowest entry left cannot tell whether a client
+-- missed compacted entries; this can. Entries below the lowest one left count as compacted.
+ALTER TABLE change_log_head ADD COLUMN compacted_through BIGINT NOT NULL DEFAULT 0;
+
+UPDATE change_log_head SET compacted_through = COALESCE((SELECT MIN(seq) - 1 FROM change_log WHERE seq > 0), seq);
@@ -0,0 +1,33 @@
+-- Baseline schema, identical to .devcontainer/schema.sql without the sample data.
+-- Existing databases created from that script are baselined at this version.
+
+CREATE SEQUENCE IF NOT EXISTS employee_seq START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS seat_seq START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS office_room_seq START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS floor_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS floors (
+    id BIGINT DEFAULT nextval('floor_seq') PRIMARY KEY,
+    floor_number INTEGER NOT NULL,
+    name VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS office_rooms (
+    id BIGINT DEFAULT nextval('office_room_seq') PRIMARY KEY,
+    room_number VARCHAR(255) NOT NULL,
+    name VARCHAR(255),
+    floor_id BIGINT REFERENCES floors(id)
+);
+
+CREATE TABLE IF NOT EXISTS employees (
+    id BIGINT DEFAULT nextval('employee_seq') PRIMARY KEY,
+    full_name VARCHAR(255) NOT NULL,
+    occupation VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS seats (
+    id BIGINT DEFAULT nextval('seat_seq') PRIMARY KEY,
+    seat_number VARCHAR(255) NOT NULL,
+    room_id BIGINT REFERENCES office_rooms(id),
+    employee_id BIGINT REFERENCES employees(id)
+);
@@ -0,0 +1,24 @@
+-- Uniqueness is enforced by the database instead of a SELECT before every write.
+-- The unique indexes also serve the "seats of a room" and "rooms of a floor" lookups.
+ALTER TABLE floors
+    ADD CONSTRAINT uk_floors_floor_number UNIQUE (floor_number);
+
+ALTER TABLE office_rooms
+    ADD CONSTRAINT uk_office_rooms_floor_room_number UNIQUE (floor_id, room_number);
+
+ALTER TABLE seats
+    ADD CONSTRAINT uk_seats_room_seat_number UNIQUE (room_id, seat_number);
+
+-- Reverse lookup used by the employee -> seats association
+CREATE INDEX idx_seats_employee_id ON seats (employee_id);
+
+-- Normalized search columns (lower-cased, accents stripped), maintained by the application
+-- on every insert/update and back-filled by V3.
+ALTER TABLE employees ADD COLUMN full_name_normalized VARCHAR(255);
+ALTER TABLE employees ADD COLUMN occupation_normalized VARCHAR(255);
+
+-- Trigram indexes serve the "contains" LIKE search, pattern_ops indexes serve prefix search
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_employees_full_name_trgm ON employees USING gin (full_name_normalized gin_trgm_ops);
+CREATE INDEX idx_employees_occupation_trgm ON employees USING gin (occupation_normalized gin_trgm_ops);
+CREATE INDEX idx_employees_full_name_prefix ON employees (full_name_normalized varchar_pattern_ops);
@@ -0,0 +1,13 @@
+-- Append-only log of entity writes for delta synchronization (GET /changes?since=seq).
+-- Rows are written in the same transaction as the change and compacted by age.
+CREATE SEQUENCE IF NOT EXISTS change_log_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE change_log (
+    seq BIGINT PRIMARY KEY,
+    entity_type VARCHAR(32) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    changed_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_change_log_changed_at ON change_log (changed_at);
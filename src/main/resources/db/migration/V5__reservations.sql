@@ -0,0 +1,15 @@
+-- Hot-desk reservations of a seat for [start_time, end_time). Overlaps are rejected by the
+-- application while holding a row lock on the seat.
+CREATE SEQUENCE IF NOT EXISTS reservation_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE reservations (
+    id BIGINT PRIMARY KEY,
+    seat_id BIGINT NOT NULL REFERENCES seats(id),
+    employee_id BIGINT NOT NULL REFERENCES employees(id),
+    start_time TIMESTAMP(6) NOT NULL,
+    end_time TIMESTAMP(6) NOT NULL,
+    CONSTRAINT ck_reservations_time_range CHECK (start_time < end_time)
+);
+
+CREATE INDEX idx_reservations_seat_start ON reservations (seat_id, start_time);
+CREATE INDEX idx_reservations_employee_id ON reservations (employee_id);
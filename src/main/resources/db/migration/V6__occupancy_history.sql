@@ -0,0 +1,18 @@
+-- Occupancy history rolled up per minute, hour and day for the building (scope_id 0), each
+-- floor and each room. Written in batches by the occupancy sampler; minute and hour rows are
+-- deleted after their retention period, day rows are kept.
+CREATE SEQUENCE IF NOT EXISTS occupancy_rollup_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE occupancy_rollups (
+    id BIGINT PRIMARY KEY,
+    resolution VARCHAR(8) NOT NULL,
+    scope_type VARCHAR(8) NOT NULL,
+    scope_id BIGINT NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    samples INTEGER NOT NULL,
+    occupied_sum BIGINT NOT NULL,
+    occupied_min INTEGER NOT NULL,
+    occupied_max INTEGER NOT NULL,
+    seats INTEGER NOT NULL,
+    CONSTRAINT uk_occupancy_rollups_bucket UNIQUE (resolution, scope_type, scope_id, bucket_start)
+);
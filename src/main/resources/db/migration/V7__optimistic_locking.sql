@@ -0,0 +1,5 @@
+-- Optimistic lock versions, checked by every entity UPDATE/DELETE and exposed as ETags
+ALTER TABLE floors ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE office_rooms ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE seats ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE employees ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,13 @@
+-- Responses of requests sent with an Idempotency-Key, replayed to retries. A row without a
+-- status marks a request still in flight. Rows are deleted by age.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    status INTEGER,
+    content_type VARCHAR(255),
+    etag VARCHAR(64),
+    body BYTEA
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
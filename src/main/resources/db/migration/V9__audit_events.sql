@@ -0,0 +1,18 @@
+-- Append-only audit trail of seat assignments and structural changes (GET /audit), written
+-- asynchronously in JDBC batches after the audited transaction committed.
+CREATE SEQUENCE IF NOT EXISTS audit_event_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE audit_events (
+    id BIGINT PRIMARY KEY,
+    occurred_at TIMESTAMP(6) NOT NULL,
+    actor VARCHAR(128),
+    action VARCHAR(32) NOT NULL,
+    entity_type VARCHAR(32) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    employee_id BIGINT,
+    detail VARCHAR(255)
+);
+
+CREATE INDEX idx_audit_events_occurred_at ON audit_events (occurred_at);
+CREATE INDEX idx_audit_events_entity ON audit_events (entity_type, entity_id);
+CREATE INDEX idx_audit_events_employee_id ON audit_events (employee_id);
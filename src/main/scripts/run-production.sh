@@ -0,0 +1,10 @@
+#!/bin/sh
+# Starts the production server built by `mvn -Pproduction package`.
+# exec hands the process to the JVM, so SIGTERM from the orchestrator triggers the graceful
+# shutdown (drain in-flight requests, undeploy, close the SessionFactory).
+#
+# Server tuning and the database are passed in JAVA_OPTS, e.g.
+#   JAVA_OPTS="-Dhibernate.connection.url=jdbc:postgresql://db:5432/office_management -Dserver.workerThreads=64" ./run-production.sh
+cd "$(dirname "$0")" || exit 1
+
+exec java -XX:MaxRAMPercentage=75 -XX:+ExitOnOutOfMemoryError $JAVA_OPTS -jar office-management-system-production.jar "$@"
@@ -0,0 +1,15 @@
+#!/bin/sh
+# Starts the standalone server built by `mvn -Pcds package`.
+# Uses the class-data-sharing archive recorded during the build when it is present and
+# compatible; otherwise the JVM silently falls back to normal classloading.
+#
+# Extra JVM options (database, port, heap, ...) can be passed in JAVA_OPTS, e.g.
+#   JAVA_OPTS="-Dhibernate.connection.url=jdbc:postgresql://db:5432/office_management -Dserver.port=8080" ./run-standalone.sh
+cd "$(dirname "$0")" || exit 1
+
+CDS_OPTS=""
+if [ -f office-management.jsa ]; then
+    CDS_OPTS="-XX:SharedArchiveFile=office-management.jsa -Xshare:auto"
+fi
+
+exec java $CDS_OPTS $JAVA_OPTS -jar office-management-system-standalone.jar "$@"
@@ -0,0 +1,102 @@
+package com.officemanagement.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jakarta.rs.json.JacksonJsonProvider;
+import com.officemanagement.config.RestEasyConfig;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.HibernateUtil;
+import io.undertow.Undertow;
+import org.hibernate.Session;
+import org.jboss.resteasy.core.ResteasyDeploymentImpl;
+import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+
+/**
+ * Starts the application on Undertow against the in-memory H2 test database, the same way
+ * BaseResourceTest does, and fills it with a building of the requested size.
+ */
+class EmbeddedServer {
+    private static final String[] FIRST_NAMES = {
+        "Marco", "Sofia", "Luca", "Giulia", "Hans", "Sabine", "Klaus", "Petra", "Elena", "Stefan"
+    };
+    private static final String[] LAST_NAMES = {
+        "Rossi", "Conti", "Ferrari", "Marino", "Mueller", "Schmidt", "Weber", "Fischer", "Wagner",
+        "Becker", "Romano", "Colombo", "Ricci", "Greco", "Hoffmann", "Schulz", "Koch", "Bauer"
+    };
+
+    private UndertowJaxrsServer server;
+
+    String start(int port) {
+        ObjectMapper mapper = RestEasyConfig.createObjectMapper();
+
+        HibernateUtil.getSessionFactory();
+        server = new UndertowJaxrsServer();
+        server.start(Undertow.builder().addHttpListener(port, "localhost"));
+
+        ResteasyDeploymentImpl deployment = new ResteasyDeploymentImpl();
+        deployment.setApplication(new RestEasyConfig());
+        deployment.getProviders().add(new JacksonJsonProvider(mapper));
+        server.deploy(deployment);
+        return "http://localhost:" + port + "/api";
+    }
+
+    TargetData seed(int floors, int roomsPerFloor, int seatsPerRoom, int employees) {
+        TargetData data = new TargetData();
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            for (int f = 1; f <= floors; f++) {
+                Floor floor = new Floor();
+                floor.setName("Floor " + f);
+                floor.setFloorNumber(f);
+                session.persist(floor);
+                data.floorIds.add(floor.getId());
+                for (int r = 1; r <= roomsPerFloor; r++) {
+                    OfficeRoom room = new OfficeRoom();
+                    room.setName("Room " + f + "-" + r);
+                    room.setRoomNumber(f + String.format("%02d", r));
+                    room.setFloor(floor);
+                    session.persist(room);
+                    for (int s = 1; s <= seatsPerRoom; s++) {
+                        Seat seat = new Seat();
+                        seat.setSeatNumber(room.getRoomNumber() + "-" + s);
+                        seat.setRoom(room);
+                        session.persist(seat);
+                        data.freeSeatIds.add(seat.getId());
+                    }
+                }
+                flushBatch(session);
+            }
+            for (int e = 0; e < employees; e++) {
+                Employee employee = new Employee();
+                String lastName = LAST_NAMES[e % LAST_NAMES.length];
+                employee.setFullName(FIRST_NAMES[(e / LAST_NAMES.length) % FIRST_NAMES.length] + " " + lastName);
+                employee.setOccupation("Engineer");
+                session.persist(employee);
+                data.employeeIds.add(employee.getId());
+                if (e % 50 == 0) {
+                    flushBatch(session);
+                }
+            }
+            session.getTransaction().commit();
+        }
+        for (String lastName : LAST_NAMES) {
+            data.searchTerms.add(TargetData.searchTermFor(lastName));
+        }
+        data.validate();
+        return data;
+    }
+
+    private static void flushBatch(Session session) {
+        session.flush();
+        session.clear();
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop();
+        }
+        HibernateUtil.shutdown();
+    }
+}
@@ -0,0 +1,113 @@
+package com.officemanagement.loadtest;
+
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the CPU time and heap allocation of a flush when a large graph is loaded but only
+ * one entity changed, which is what the write endpoints do (load a floor or room, change a
+ * seat, commit). Without bytecode-enhanced dirty tracking Hibernate compares every loaded
+ * entity with its snapshot on each flush; with it only the entity that changed is examined.
+ *
+ * Run with {@code mvn test-compile exec:java -Pload-test -Dload.main=com.officemanagement.loadtest.FlushBenchmark}.
+ */
+public class FlushBenchmark {
+
+    public static void main(String[] args) {
+        int rooms = Integer.getInteger("bench.rooms", 50);
+        int seatsPerRoom = Integer.getInteger("bench.seats", 20);
+        int iterations = Integer.getInteger("bench.iterations", 200);
+
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        long floorId = seed(sessionFactory, rooms, seatsPerRoom);
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long cpuNanos = 0;
+        long allocatedBytes = 0;
+        for (int i = 0; i < iterations * 2; i++) {
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                Floor floor = session.createQuery(
+                    "select distinct f from Floor f " +
+                    "left join fetch f.rooms r " +
+                    "left join fetch r.seats s " +
+                    "left join fetch s.employee " +
+                    "where f.id = :id", Floor.class)
+                    .setParameter("id", floorId)
+                    .uniqueResult();
+                Seat seat = floor.getRooms().iterator().next().getSeats().get(0);
+                seat.setSeatNumber("S-" + i);
+
+                long cpuBefore = threads.getCurrentThreadCpuTime();
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                session.flush();
+                long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+                long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+                session.getTransaction().commit();
+                // First half is JIT warm-up
+                if (i >= iterations) {
+                    cpuNanos += cpu;
+                    allocatedBytes += allocated;
+                }
+            }
+        }
+
+        System.out.println(String.format(
+            "Flush of 1 changed seat with %d seats loaded: %.1f us CPU, %d bytes allocated per flush (%s)",
+            rooms * seatsPerRoom, cpuNanos / 1000.0 / iterations, allocatedBytes / iterations,
+            isEnhanced() ? "enhanced entities" : "plain entities"));
+        HibernateUtil.shutdown();
+    }
+
+    private static boolean isEnhanced() {
+        for (Class<?> type : Seat.class.getInterfaces()) {
+            if (type.getName().equals("org.hibernate.engine.spi.SelfDirtinessTracker")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long seed(SessionFactory sessionFactory, int rooms, int seatsPerRoom) {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            Floor floor = new Floor();
+            floor.setName("Benchmark Floor");
+            floor.setFloorNumber(1);
+            session.persist(floor);
+            for (int r = 0; r < rooms; r++) {
+                OfficeRoom room = new OfficeRoom();
+                room.setName("Room " + r);
+                room.setRoomNumber("R" + r);
+                room.setFloor(floor);
+                session.persist(room);
+                for (int s = 0; s < seatsPerRoom; s++) {
+                    Seat seat = new Seat();
+                    seat.setSeatNumber("R" + r + "-" + s);
+                    seat.setRoom(room);
+                    session.persist(seat);
+                    if (s % 2 == 0) {
+                        Employee employee = new Employee();
+                        employee.setFullName("Employee " + r + "-" + s);
+                        employee.setOccupation("Engineer");
+                        session.persist(employee);
+                        seat.setEmployee(employee);
+                    }
+                }
+            }
+            session.getTransaction().commit();
+            return floor.getId();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.officemanagement.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-operation latency histograms (microseconds, 3 significant digits) and error counts.
+ * Latency is measured from the intended start time of each request, not from when a
+ * virtual user got around to sending it, so queueing under overload is not hidden.
+ */
+class LatencyReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final AtomicLong dropped = new AtomicLong();
+
+    LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    void record(Operation operation, long intendedStartNanos, boolean success) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+        histograms.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            errors.get(operation).incrementAndGet();
+        }
+    }
+
+    void recordDropped() {
+        dropped.incrementAndGet();
+    }
+
+    void print(PrintStream out, String title, double elapsedSeconds) {
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+
+        out.println();
+        out.println("== " + title + " (" + String.format("%.1f", elapsedSeconds) + " s) ==");
+        out.println(String.format("%-8s %9s %7s %9s %9s %9s %9s %9s %9s",
+            "op", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            long operationErrors = errors.get(operation).get();
+            totalErrors += operationErrors;
+            printRow(out, operation.key(), histogram, operationErrors, elapsedSeconds);
+        }
+        printRow(out, "total", total, totalErrors, elapsedSeconds);
+        if (dropped.get() > 0) {
+            out.println("dropped (all virtual users busy, backlog full): " + dropped.get());
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errors, double elapsedSeconds) {
+        out.println(String.format("%-8s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+            name,
+            histogram.getTotalCount(),
+            errors,
+            histogram.getTotalCount() / elapsedSeconds,
+            millis(histogram.getValueAtPercentile(50)),
+            millis(histogram.getValueAtPercentile(90)),
+            millis(histogram.getValueAtPercentile(99)),
+            millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue())));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.officemanagement.loadtest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for sizing the service.
+ *
+ * Requests arrive at a fixed rate regardless of how fast the server answers (an open model,
+ * like real users), and are executed by a fixed number of virtual users. When all virtual
+ * users are busy, arrivals queue up and their waiting time counts towards the latency.
+ * The run has two phases: a morning check-in burst dominated by seat assignments, then a
+ * steady phase with the regular mix of searches, floor-plan polling and stats polling.
+ *
+ * Run with {@code mvn -Pload-test} (see pom.xml) or directly from the IDE. Settings are
+ * system properties:
+ * <pre>
+ *   load.url             target base URL, e.g. http://host:8080/api (default: start an embedded server)
+ *   load.port            port of the embedded server (8082)
+ *   load.users           virtual users / concurrent requests (32)
+ *   load.rate            steady arrivals per second (200)
+ *   load.duration        steady phase in seconds (30)
+ *   load.mix             steady mix (assign:5,search:35,floor:40,stats:20)
+ *   load.burst.rate      check-in burst arrivals per second (400)
+ *   load.burst.duration  check-in burst in seconds (10, 0 to skip)
+ *   load.burst.mix       burst mix (assign:80,floor:15,stats:5)
+ *   load.seed.floors / load.seed.rooms / load.seed.seats / load.seed.employees
+ *                        size of the embedded building (9 / 20 / 4 / 1000)
+ * </pre>
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("load.url");
+        int users = Integer.getInteger("load.users", 32);
+
+        EmbeddedServer embedded = null;
+        TargetData data;
+        if (url == null) {
+            embedded = new EmbeddedServer();
+            url = embedded.start(Integer.getInteger("load.port", 8082));
+            data = embedded.seed(
+                Integer.getInteger("load.seed.floors", 9),
+                Integer.getInteger("load.seed.rooms", 20),
+                Integer.getInteger("load.seed.seats", 4),
+                Integer.getInteger("load.seed.employees", 1000));
+        } else {
+            data = TargetData.discover(url, Integer.getInteger("load.seed.employees", 1000));
+        }
+        System.out.println("Target " + url + ": " + data.floorIds.size() + " floors, "
+            + data.freeSeatIds.size() + " free seats, " + data.employeeIds.size() + " employees, "
+            + users + " virtual users");
+
+        OfficeClient client = new OfficeClient(url, data);
+        try {
+            int burstSeconds = Integer.getInteger("load.burst.duration", 10);
+            if (burstSeconds > 0) {
+                runPhase("morning check-in burst", client, users,
+                    WorkloadMix.parse(System.getProperty("load.burst.mix", "assign:80,floor:15,stats:5")),
+                    Integer.getInteger("load.burst.rate", 400), burstSeconds);
+            }
+            runPhase("steady state", client, users,
+                WorkloadMix.parse(System.getProperty("load.mix", "assign:5,search:35,floor:40,stats:20")),
+                Integer.getInteger("load.rate", 200), Integer.getInteger("load.duration", 30));
+        } finally {
+            if (embedded != null) {
+                embedded.stop();
+            }
+        }
+    }
+
+    static void runPhase(String name, OfficeClient client, int users, WorkloadMix mix, int ratePerSecond, int seconds)
+            throws InterruptedException {
+        System.out.println("Running " + name + ": " + ratePerSecond + " req/s for " + seconds + " s, mix " + mix);
+
+        LatencyReport report = new LatencyReport();
+        // Bounded backlog so a hopelessly overloaded target can't exhaust the generator's memory
+        ThreadPoolExecutor virtualUsers = new ThreadPoolExecutor(users, users, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1000, ratePerSecond * 10)));
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long intended = start; intended < end; intended += interval) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = mix.next();
+            long intendedStart = intended;
+            try {
+                virtualUsers.execute(() -> {
+                    boolean success;
+                    try {
+                        int status = client.execute(operation);
+                        success = status < 400;
+                    } catch (Exception e) {
+                        success = false;
+                    }
+                    report.record(operation, intendedStart, success);
+                });
+            } catch (RejectedExecutionException e) {
+                report.recordDropped();
+            }
+        }
+        virtualUsers.shutdown();
+        virtualUsers.awaitTermination(1, TimeUnit.MINUTES);
+
+        report.print(System.out, name, (System.nanoTime() - start) / 1e9);
+    }
+}
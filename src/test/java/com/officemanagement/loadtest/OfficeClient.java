@@ -0,0 +1,88 @@
+package com.officemanagement.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Issues one request per operation against the API. Seat assignments are tracked so a
+ * check-in takes a free seat and, once the building is full, a check-out releases one.
+ */
+class OfficeClient {
+    private final HttpClient http;
+    private final String baseUrl;
+    private final TargetData data;
+    private final ConcurrentLinkedQueue<Long> freeSeats;
+    private final ConcurrentLinkedQueue<long[]> assignments = new ConcurrentLinkedQueue<>();
+
+    OfficeClient(String baseUrl, TargetData data) {
+        this.http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.baseUrl = baseUrl;
+        this.data = data;
+        this.freeSeats = new ConcurrentLinkedQueue<>(data.freeSeatIds);
+    }
+
+    /** Executes the operation and returns the HTTP status code. */
+    int execute(Operation operation) throws Exception {
+        switch (operation) {
+            case ASSIGN_SEAT:
+                return checkInOrOut();
+            case SEARCH:
+                String term = pick(data.searchTerms);
+                return send(get("/employees/search?size=10&search=" + URLEncoder.encode(term, StandardCharsets.UTF_8)));
+            case FLOOR_PLAN:
+                return send(get("/floors/" + pick(data.floorIds)));
+            case STATS:
+                return send(get("/stats"));
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+        }
+    }
+
+    private int checkInOrOut() throws Exception {
+        Long seatId = freeSeats.poll();
+        if (seatId == null) {
+            long[] assignment = assignments.poll();
+            if (assignment == null) {
+                return send(get("/stats"));
+            }
+            int status = send(request("/employees/" + assignment[0] + "/unassign-seat/" + assignment[1]).DELETE().build());
+            freeSeats.add(assignment[1]);
+            return status;
+        }
+        long employeeId = pick(data.employeeIds);
+        int status = send(request("/employees/" + employeeId + "/assign-seat/" + seatId)
+            .PUT(HttpRequest.BodyPublishers.noBody()).build());
+        if (status == 200) {
+            assignments.add(new long[] {employeeId, seatId});
+        } else {
+            freeSeats.add(seatId);
+        }
+        return status;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static <T> T pick(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+}
@@ -0,0 +1,34 @@
+package com.officemanagement.loadtest;
+
+/**
+ * The request types an office client produces during a working day.
+ */
+enum Operation {
+    /** Morning check-in: assign a free seat (or release one when the building is full). */
+    ASSIGN_SEAT("assign"),
+    /** Directory search box. */
+    SEARCH("search"),
+    /** Floor-plan screen polling GET /floors/{id}. */
+    FLOOR_PLAN("floor"),
+    /** Dashboard polling GET /stats. */
+    STATS("stats");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "', expected one of assign, search, floor, stats");
+    }
+}
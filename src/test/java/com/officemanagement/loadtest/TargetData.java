@@ -0,0 +1,85 @@
+package com.officemanagement.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The IDs and search terms the workload draws from: either created by {@link EmbeddedServer}
+ * or discovered from a running deployment through the public API.
+ */
+class TargetData {
+    final List<Long> floorIds = new ArrayList<>();
+    final List<Long> freeSeatIds = new ArrayList<>();
+    final List<Long> employeeIds = new ArrayList<>();
+    final List<String> searchTerms = new ArrayList<>();
+
+    static TargetData discover(String baseUrl, int maxEmployees) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        ObjectMapper mapper = new ObjectMapper();
+        TargetData data = new TargetData();
+
+        for (JsonNode floor : get(client, mapper, baseUrl + "/floors")) {
+            long floorId = floor.get("id").asLong();
+            data.floorIds.add(floorId);
+            JsonNode detail = get(client, mapper, baseUrl + "/floors/" + floorId);
+            for (JsonNode room : detail.path("rooms")) {
+                for (JsonNode seat : room.path("seats")) {
+                    if (!seat.path("occupied").asBoolean()) {
+                        data.freeSeatIds.add(seat.get("id").asLong());
+                    }
+                }
+            }
+        }
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (int page = 0; data.employeeIds.size() < maxEmployees; page++) {
+            JsonNode result = get(client, mapper, baseUrl + "/employees/search?size=100&page=" + page);
+            if (result.path("content").isEmpty()) {
+                break;
+            }
+            for (JsonNode employee : result.path("content")) {
+                data.employeeIds.add(employee.get("id").asLong());
+                terms.add(searchTermFor(employee.path("fullName").asText()));
+            }
+        }
+        data.searchTerms.addAll(terms);
+        data.validate();
+        return data;
+    }
+
+    // First three letters of the last name, like someone typing into the search box
+    static String searchTermFor(String fullName) {
+        String[] parts = fullName.trim().split("\\s+");
+        String last = parts[parts.length - 1];
+        return last.substring(0, Math.min(3, last.length()));
+    }
+
+    void validate() {
+        if (floorIds.isEmpty() || employeeIds.isEmpty()) {
+            throw new IllegalStateException("Target has no floors or employees to exercise");
+        }
+        Collections.shuffle(freeSeatIds);
+    }
+
+    private static JsonNode get(HttpClient client, ObjectMapper mapper, String url)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create(url)).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + url + " returned " + response.statusCode());
+        }
+        return mapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,245 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AssignmentResourceTest extends BaseResourceTest {
+
+    private Floor createFloor(int number) {
+        Floor floor = new Floor();
+        floor.setName("Floor " + number);
+        floor.setFloorNumber(number);
+        session.save(floor);
+        return floor;
+    }
+
+    private OfficeRoom createRoom(Floor floor, String number, int seats) {
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room " + number);
+        room.setRoomNumber(number);
+        room.setFloor(floor);
+        session.save(room);
+        for (int i = 1; i <= seats; i++) {
+            Seat seat = new Seat();
+            seat.setSeatNumber(number + "-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+        }
+        return room;
+    }
+
+    private List<Long> createEmployees(String prefix, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Employee employee = new Employee();
+            employee.setFullName(prefix + " " + i);
+            employee.setOccupation("Engineer");
+            session.save(employee);
+            ids.add(employee.getId());
+        }
+        return ids;
+    }
+
+    private static String ids(List<Long> ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (Long id : ids) {
+            json.append(json.length() == 1 ? "" : ",").append(id);
+        }
+        return json.append("]").toString();
+    }
+
+    @Test
+    public void testPlanAndApply(QueryCounter queries) {
+        Floor first = createFloor(1);
+        Floor second = createFloor(2);
+        createRoom(first, "101", 2);
+        createRoom(first, "102", 5);
+        OfficeRoom room201 = createRoom(second, "201", 3);
+        List<Long> platform = createEmployees("Platform", 4);
+        List<Long> data = createEmployees("Data", 3);
+        List<Long> single = createEmployees("Solo", 1);
+        commitAndStartNewTransaction();
+
+        String request = "{\"teams\": [" +
+            "{\"name\": \"Data\", \"employeeIds\": " + ids(data) + "}," +
+            "{\"name\": \"Platform\", \"employeeIds\": " + ids(platform) + "}]," +
+            "\"employeeIds\": " + ids(single) + "}";
+
+        // Every team fits a room of its own; the single employee takes a leftover seat
+        String plan = given()
+            .contentType(ContentType.JSON)
+            .body(request)
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("assignments", hasSize(8))
+            .body("unassigned", empty())
+            .body("cost", equalTo(0))
+            .body("teams.name", contains("Data", "Platform"))
+            .body("teams.rooms", contains(1, 1))
+            .body("assignments.findAll { it.team == 'Platform' }.roomNumber", everyItem(equalTo("102")))
+            .body("assignments.findAll { it.team == 'Data' }.roomNumber", everyItem(equalTo("201")))
+            .extract().asString();
+
+        // Nothing is written until the plan is applied, all of it in one transaction
+        given()
+        .when()
+            .get(getApiPath("/rooms/" + room201.getId() + "/seats"))
+        .then()
+            .body("employee", everyItem(nullValue()));
+
+        queries.measure(() ->
+            given()
+                .contentType(ContentType.JSON)
+                .body(plan)
+            .when()
+                .post(getApiPath("/assignments/apply"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("updated", equalTo(8)))
+            // Seats, employees with their seats, reservations; 16 change log ids (8 seats, 8
+            // employees); then one batch each of change log inserts, seat updates and version
+            // bumps; three statements number the log entries at commit
+            .assertStatementsAtMost(25)
+            .assertNoNPlusOne();
+
+        given()
+        .when()
+            .get(getApiPath("/rooms/" + room201.getId() + "/seats"))
+        .then()
+            .body("employee.fullName", containsInAnyOrder("Data 1", "Data 2", "Data 3"));
+
+        // Every employee's version (its ETag) moved, as with assign-seat
+        session.clear();
+        List<Long> assigned = new ArrayList<>(platform);
+        assigned.addAll(data);
+        assigned.addAll(single);
+        assertEquals(List.of(1L), session.createQuery(
+            "select distinct e.version from Employee e where e.id in :ids", Long.class)
+            .setParameter("ids", assigned)
+            .list());
+        given()
+        .when()
+            .get(getApiPath("/employees/" + single.get(0)))
+        .then()
+            .header("ETag", equalTo("\"1\""));
+
+        // The seats are gone now: applying again changes nothing
+        given()
+            .contentType(ContentType.JSON)
+            .body(plan)
+        .when()
+            .post(getApiPath("/assignments/apply"))
+        .then()
+            .statusCode(Response.Status.CONFLICT.getStatusCode());
+
+        // Two seats left on the first floor for a team of three
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"teams\": [{\"name\": \"Late\", \"employeeIds\": " + ids(platform.subList(0, 3)) + "}]}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("assignments", hasSize(2))
+            .body("unassigned", contains(platform.get(2).intValue()))
+            .body("teams[0].floors", equalTo(1));
+    }
+
+    @Test
+    public void testPlanKeepsTeamsOnOneFloor() {
+        Floor first = createFloor(1);
+        Floor second = createFloor(2);
+        createRoom(first, "101", 3);
+        createRoom(first, "102", 3);
+        createRoom(second, "201", 4);
+        List<Long> team = createEmployees("Team", 5);
+        commitAndStartNewTransaction();
+
+        // Two rooms on one floor beat the larger room plus a seat on another floor
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"teams\": [{\"name\": \"Team\", \"employeeIds\": " + ids(team) + "}]}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("teams[0].floors", equalTo(1))
+            .body("teams[0].rooms", equalTo(2))
+            .body("cost", equalTo(1));
+
+        // Restricted to the second floor, where only four fit
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"teams\": [{\"name\": \"Team\", \"employeeIds\": " + ids(team) + "}]," +
+                "\"floorIds\": [" + second.getId() + "]}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("assignments", hasSize(4))
+            .body("assignments.floorId", everyItem(equalTo(second.getId().intValue())))
+            .body("unassigned", hasSize(1));
+    }
+
+    @Test
+    public void testPlanWithInvalidRequests() {
+        List<Long> employees = createEmployees("Someone", 1);
+        commitAndStartNewTransaction();
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("{}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"employeeIds\": [" + employees.get(0) + ", 999]}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+            .body(containsString("999"));
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"teams\": [{\"employeeIds\": " + ids(employees) + "}], \"employeeIds\": " + ids(employees) + "}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+            .body(containsString("more than once"));
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"employeeIds\": " + ids(employees) + ", \"floorIds\": [999]}")
+        .when()
+            .post(getApiPath("/assignments/plan"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"assignments\": [{\"employeeId\": " + employees.get(0) + ", \"seatId\": 999}]}")
+        .when()
+            .post(getApiPath("/assignments/apply"))
+        .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+}
@@ -0,0 +1,193 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.AuditEvent;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.AuditLog;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AuditResourceTest extends BaseResourceTest {
+
+    @Test
+    public void testAuditTrail() {
+        Floor first = new Floor();
+        first.setName("First Floor");
+        first.setFloorNumber(1);
+        session.save(first);
+
+        Floor second = new Floor();
+        second.setName("Second Floor");
+        second.setFloorNumber(2);
+        session.save(second);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(first);
+        session.save(room);
+
+        Seat seat = new Seat();
+        seat.setSeatNumber("101-1");
+        seat.setRoom(room);
+        session.save(seat);
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        session.save(employee);
+        commitAndStartNewTransaction();
+
+        given()
+            .header("X-User", "facilities")
+        .when()
+            .put(getApiPath("/employees/" + employee.getId() + "/assign-seat/" + seat.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        given()
+            .header("X-User", "facilities")
+        .when()
+            .delete(getApiPath("/employees/" + employee.getId() + "/unassign-seat/" + seat.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        given()
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/move-to-floor/" + second.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        // Rejected writes are not audited
+        given()
+            .contentType(ContentType.JSON)
+            .body("{}")
+        .when()
+            .post(getApiPath("/floors"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        // Written by the audit-writer thread; flush rather than wait for its interval
+        AuditLog.get(sessionFactory).flush();
+
+        given()
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("events", hasSize(3))
+            .body("events.action", contains("ASSIGN", "UNASSIGN", "MOVE"))
+            .body("events.actor", contains("facilities", "facilities", null))
+            .body("events[2].entityType", equalTo("room"))
+            .body("events[2].detail", equalTo("floor " + first.getId() + " -> " + second.getId()))
+            .body("hasMore", equalTo(false));
+
+        given()
+            .queryParam("employeeId", employee.getId())
+            .queryParam("action", "assign")
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("events", hasSize(1))
+            .body("events[0].entityType", equalTo("seat"))
+            .body("events[0].entityId", equalTo(seat.getId().intValue()))
+            .body("events[0].occurredAt", notNullValue());
+
+        // Keyset pages
+        int nextAfter = given()
+            .queryParam("limit", 2)
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("events", hasSize(2))
+            .body("hasMore", equalTo(true))
+            .extract()
+            .path("nextAfter");
+
+        given()
+            .queryParam("limit", 2)
+            .queryParam("after", nextAfter)
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("events.action", contains("MOVE"))
+            .body("hasMore", equalTo(false));
+    }
+
+    @Test
+    public void testAuditSurvivesEventsTooLongToInsert() {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+        commitAndStartNewTransaction();
+
+        // The detail quotes the prefixes; it is cut to fit the column
+        String prefix = "x".repeat(300);
+        given()
+            .queryParam("from", prefix)
+            .queryParam("to", prefix)
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        // An event the database rejects is dropped alone, instead of holding up the trail
+        AuditLog log = AuditLog.get(sessionFactory);
+        long rejected = log.getRejected();
+        log.publish(new AuditEvent(AuditEvent.Action.UPDATE, "x".repeat(100), room.getId(), null, null, null));
+        log.publish(new AuditEvent(AuditEvent.Action.UPDATE, "room", room.getId(), null, null, null));
+        // The audit-writer thread may get there first; either way the flush is done on return
+        log.flush();
+        assertEquals(rejected + 1, log.getRejected());
+
+        given()
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("events.action", contains("RENUMBER", "UPDATE"))
+            .body("events[0].detail", hasLength(AuditEvent.MAX_DETAIL_LENGTH));
+    }
+
+    @Test
+    public void testAuditRejectsInvalidParameters() {
+        given()
+            .queryParam("action", "teleport")
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .queryParam("from", "yesterday")
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .queryParam("limit", 0)
+        .when()
+            .get(getApiPath("/audit"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+}
@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.jakarta.rs.json.JacksonJsonProvider;
 import com.officemanagement.config.RestEasyConfig;
+import com.officemanagement.util.AuditLog;
+import com.officemanagement.util.ChangeLogFollower;
+import com.officemanagement.util.DataChanges;
 import com.officemanagement.util.HibernateUtil;
 import io.restassured.RestAssured;
 import io.restassured.config.ObjectMapperConfig;
@@ -30,6 +33,7 @@ import jakarta.ws.rs.core.Application;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 @ExtendWith(MockitoExtension.class)
+@ExtendWith(QueryCountExtension.class)
 @Execution(ExecutionMode.SAME_THREAD)
 @ApplicationPath("/api")
 public abstract class BaseResourceTest {
@@ -50,11 +54,8 @@ public abstract class BaseResourceTest {
             try {
                 logger.info("Starting test server setup...");
                 
-                // Configure ObjectMapper
-                objectMapper = new ObjectMapper();
-                objectMapper.registerModule(new JavaTimeModule());
-                objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-                objectMapper.configure(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
+                // Configure ObjectMapper the same way as the application
+                objectMapper = RestEasyConfig.createObjectMapper();
                 logger.info("Configured ObjectMapper");
                 
                 // Initialize Hibernate SessionFactory
@@ -166,20 +167,37 @@ public abstract class BaseResourceTest {
     private void cleanDatabase() {
         try {
             logger.info("Cleaning database...");
+            // Audit events of the previous test must not land after the truncation
+            AuditLog.get(sessionFactory).flush();
+            // Let the follower forget the previous test's commits: the head is about to restart at 0
+            ChangeLogFollower follower = ChangeLogFollower.get(sessionFactory);
+            follower.poll();
             // Disable foreign key checks temporarily
             session.createNativeQuery("SET REFERENTIAL_INTEGRITY FALSE").executeUpdate();
             
             // Truncate all tables
+            session.createNativeQuery("TRUNCATE TABLE reservations").executeUpdate();
             session.createNativeQuery("TRUNCATE TABLE seats").executeUpdate();
             session.createNativeQuery("TRUNCATE TABLE employees").executeUpdate();
             session.createNativeQuery("TRUNCATE TABLE office_rooms").executeUpdate();
             session.createNativeQuery("TRUNCATE TABLE floors").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE change_log").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE change_log_head").executeUpdate();
+            session.createNativeQuery("INSERT INTO change_log_head (id, seq, compacted_through) VALUES (1, 0, 0)").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE occupancy_rollups").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE idempotency_keys").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE audit_events").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE scheduler_leases").executeUpdate();
             
             // Reset sequences
             session.createNativeQuery("ALTER SEQUENCE seat_seq RESTART WITH 1").executeUpdate();
             session.createNativeQuery("ALTER SEQUENCE employee_seq RESTART WITH 1").executeUpdate();
             session.createNativeQuery("ALTER SEQUENCE office_room_seq RESTART WITH 1").executeUpdate();
             session.createNativeQuery("ALTER SEQUENCE floor_seq RESTART WITH 1").executeUpdate();
+            session.createNativeQuery("ALTER SEQUENCE change_log_seq RESTART WITH 1").executeUpdate();
+            session.createNativeQuery("ALTER SEQUENCE reservation_seq RESTART WITH 1").executeUpdate();
+            session.createNativeQuery("ALTER SEQUENCE occupancy_rollup_seq RESTART WITH 1").executeUpdate();
+            session.createNativeQuery("ALTER SEQUENCE audit_event_seq RESTART WITH 1").executeUpdate();
             
             // Re-enable foreign key checks
             session.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE").executeUpdate();
@@ -187,6 +205,9 @@ public abstract class BaseResourceTest {
             // Commit the changes
             transaction.commit();
             transaction = session.beginTransaction();
+            // Native statements bypass the change tracking, so invalidate derived caches and indexes
+            DataChanges.invalidateAll();
+            follower.poll();
             logger.info("Database cleaned successfully");
         } catch (Exception e) {
             logger.error("Failed to clean database", e);
@@ -197,16 +218,11 @@ public abstract class BaseResourceTest {
     @AfterEach
     public void cleanup() throws Exception {
         try {
+            // Roll back whatever the test left pending: many tests save an entity locally and
+            // then POST the same data, so committing here would trip the unique constraints.
+            // The database is truncated before the next test anyway.
             if (transaction != null && transaction.isActive()) {
-                try {
-                    transaction.commit();
-                } catch (Exception e) {
-                    logger.error("Failed to commit transaction", e);
-                    if (transaction.isActive()) {
-                        transaction.rollback();
-                    }
-                    throw e;
-                }
+                transaction.rollback();
             }
         } finally {
             Session currentSession = threadLocalSession.get();
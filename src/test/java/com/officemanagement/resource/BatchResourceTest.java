@@ -0,0 +1,132 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+public class BatchResourceTest extends BaseResourceTest {
+
+    @Test
+    public void testBatch(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        Seat seat = new Seat();
+        seat.setSeatNumber("101-1");
+        seat.setRoom(room);
+        session.save(seat);
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        session.save(employee);
+        employee.addSeat(seat);
+        commitAndStartNewTransaction();
+
+        String batch = "[" +
+            "{\"id\": \"stats\", \"path\": \"/stats\"}," +
+            "{\"id\": \"floors\", \"path\": \"/floors\"}," +
+            "{\"id\": \"floor\", \"path\": \"/floors/" + floor.getId() + "?fields=id,name\"}," +
+            "{\"id\": \"floorWithRooms\", \"path\": \"/floors/" + floor.getId() + "\"}," +
+            "{\"id\": \"seats\", \"path\": \"/rooms/" + room.getId() + "/seats\"}," +
+            "{\"id\": \"employee\", \"path\": \"/employees/" + employee.getId() + "\"}," +
+            "{\"id\": \"snapshot\", \"path\": \"/building/snapshot\"}," +
+            "{\"id\": \"missing\", \"path\": \"/floors/999\"}," +
+            "{\"id\": \"unknown\", \"path\": \"/nowhere\"}" +
+            "]";
+
+        for (boolean parallel : new boolean[] {false, true}) {
+            queries.measure(() ->
+                given()
+                    .contentType(ContentType.JSON)
+                    .queryParam("parallel", parallel)
+                    .body(batch)
+                .when()
+                    .post(getApiPath("/batch"))
+                .then()
+                    .statusCode(Response.Status.OK.getStatusCode())
+                    .body("id", contains("stats", "floors", "floor", "floorWithRooms", "seats", "employee",
+                        "snapshot", "missing", "unknown"))
+                    .body("status", contains(200, 200, 200, 200, 200, 200, 200, 404, 404))
+                    .body("[0].body.totalSeats", equalTo(1))
+                    .body("[1].body.name", contains("First Floor"))
+                    .body("[2].etag", equalTo("\"0\""))
+                    .body("[2].body.name", equalTo("First Floor"))
+                    .body("[2].body.rooms", nullValue())
+                    .body("[3].body.rooms[0].seats[0].employee.fullName", equalTo("Jane Doe"))
+                    .body("[4].body.employee.fullName", contains("Jane Doe"))
+                    .body("[5].body.fullName", equalTo("Jane Doe"))
+                    .body("[6].body.floors[0].rooms[0].seats[0].employeeName", equalTo("Jane Doe")))
+                // What the nine requests cost on their own: 4 counts, 1 for the floors, 1 per floor,
+                // 2 each for the seats and the employee (with their rooms' floors), 4 for the snapshot
+                .assertStatementsAtMost(16)
+                .assertNoNPlusOne();
+        }
+    }
+
+    @Test
+    public void testBatchLimits() {
+        given()
+            .contentType(ContentType.JSON)
+            .body("[]")
+        .when()
+            .post(getApiPath("/batch"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        StringBuilder tooMany = new StringBuilder("[");
+        for (int i = 0; i <= BatchResource.DEFAULT_MAX_REQUESTS; i++) {
+            tooMany.append(i == 0 ? "" : ",").append("{\"path\": \"/stats\"}");
+        }
+        given()
+            .contentType(ContentType.JSON)
+            .body(tooMany.append("]").toString())
+        .when()
+            .post(getApiPath("/batch"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+            .body(containsString("at most " + BatchResource.DEFAULT_MAX_REQUESTS));
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("[{\"id\": \"nested\", \"path\": \"/batch\"}]")
+        .when()
+            .post(getApiPath("/batch"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+            .body(containsString("nested"));
+
+        // Writes are not batched
+        given()
+            .contentType(ContentType.JSON)
+            .body("[{\"method\": \"DELETE\", \"path\": \"/floors/1\"}]")
+        .when()
+            .post(getApiPath("/batch"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("[{\"path\": \"/../admin\"}]")
+        .when()
+            .post(getApiPath("/batch"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+}
@@ -0,0 +1,139 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.DataChanges;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+public class BuildingResourceTest extends BaseResourceTest {
+
+    @Test
+    public void testGetSnapshot(QueryCounter queries) {
+        Floor first = new Floor();
+        first.setName("First Floor");
+        first.setFloorNumber(1);
+        session.save(first);
+
+        Floor ground = new Floor();
+        ground.setName("Ground Floor");
+        ground.setFloorNumber(0);
+        session.save(ground);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(first);
+        session.save(room);
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        session.save(employee);
+
+        for (int i = 1; i <= 2; i++) {
+            Seat seat = new Seat();
+            seat.setSeatNumber("101-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+            if (i == 1) {
+                employee.addSeat(seat);
+            }
+        }
+        commitAndStartNewTransaction();
+
+        // Built from three flat queries, one per level, after reading the shared data version
+        queries.measure(() ->
+            given()
+            .when()
+                .get(getApiPath("/building/snapshot"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("floors.name", contains("Ground Floor", "First Floor"))
+                .body("floors[0].rooms", empty())
+                .body("floors[1].rooms[0].roomNumber", equalTo("101"))
+                .body("floors[1].rooms[0].seats.seatNumber", contains("101-1", "101-2"))
+                .body("floors[1].rooms[0].seats[0].employeeName", equalTo("Jane Doe"))
+                .body("floors[1].rooms[0].seats[1].employeeName", nullValue()))
+            .assertStatementsAtMost(4);
+
+        // Served from the cached bytes until something is written: only the version is read
+        String version = given()
+            .when()
+                .get(getApiPath("/building/snapshot"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .header("ETag");
+
+        queries.measure(() ->
+            given()
+                .header("If-None-Match", version)
+            .when()
+                .get(getApiPath("/building/snapshot"))
+            .then()
+                .statusCode(Response.Status.NOT_MODIFIED.getStatusCode()))
+            .assertStatementsAtMost(1);
+
+        // Any write bumps the version, so the next snapshot includes it
+        Floor second = new Floor();
+        second.setName("Second Floor");
+        second.setFloorNumber(2);
+        given()
+            .contentType(ContentType.JSON)
+            .body(second)
+        .when()
+            .post(getApiPath("/floors"))
+        .then()
+            .statusCode(Response.Status.CREATED.getStatusCode());
+
+        given()
+            .header("If-None-Match", version)
+        .when()
+            .get(getApiPath("/building/snapshot"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .header("ETag", not(equalTo(version)))
+            .body("floors.name", contains("Ground Floor", "First Floor", "Second Floor"));
+
+        // So does a write committed by another node, which only advances the change log head
+        session.createNativeQuery("UPDATE floors SET name = 'Top Floor' WHERE floor_number = 2").executeUpdate();
+        session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+        commitAndStartNewTransaction();
+
+        given()
+        .when()
+            .get(getApiPath("/building/snapshot"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("floors.name", contains("Ground Floor", "First Floor", "Top Floor"));
+
+        // A write this node sees but that is not logged moves only the local version; the tag
+        // still changes with the bytes
+        String before = given()
+            .when()
+                .get(getApiPath("/building/snapshot"))
+            .then()
+                .extract()
+                .header("ETag");
+        session.createNativeQuery("UPDATE floors SET name = 'Roof' WHERE floor_number = 2").executeUpdate();
+        commitAndStartNewTransaction();
+        DataChanges.invalidateAll();
+
+        given()
+            .header("If-None-Match", before)
+        .when()
+            .get(getApiPath("/building/snapshot"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .header("ETag", not(equalTo(before)))
+            .body("floors.name", contains("Ground Floor", "First Floor", "Roof"));
+    }
+}
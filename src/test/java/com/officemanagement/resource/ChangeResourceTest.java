@@ -0,0 +1,235 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.ChangeLogEntry;
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.ChangeLog;
+import io.restassured.http.ContentType;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+public class ChangeResourceTest extends BaseResourceTest {
+
+    @Test
+    public void testGetChangesSince() {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        int floorId = post("/floors", floor);
+        floor.setId((long) floorId);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        int roomId = post("/rooms", room);
+        room.setId((long) roomId);
+
+        Seat seat = new Seat();
+        seat.setSeatNumber("101-1");
+        seat.setRoom(room);
+        int seatId = post("/seats", seat);
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        int employeeId = post("/employees", employee);
+
+        given()
+        .when()
+            .put(getApiPath("/employees/" + employeeId + "/assign-seat/" + seatId))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        // The seat was created and then assigned: only its latest state is returned
+        int nextSince = given()
+            .queryParam("since", 0)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resyncRequired", is(false))
+            .body("hasMore", is(false))
+            .body("changes.entityType", contains("floor", "room", "seat", "employee"))
+            .body("changes[2].operation", equalTo("UPDATE"))
+            .body("changes[2].entity.employee.fullName", equalTo("Jane Doe"))
+            .extract()
+            .path("nextSince");
+
+        // Only what changed since then
+        floor.setName("Renamed Floor");
+        given()
+            .contentType(ContentType.JSON)
+            .body(floor)
+        .when()
+            .put(getApiPath("/floors/" + floorId))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        Floor empty = new Floor();
+        empty.setName("Empty Floor");
+        empty.setFloorNumber(9);
+        int emptyId = post("/floors", empty);
+        given()
+        .when()
+            .delete(getApiPath("/floors/" + emptyId))
+        .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+
+        given()
+            .queryParam("since", nextSince)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("changes", hasSize(2))
+            .body("changes[0].entityId", equalTo(floorId))
+            .body("changes[0].entity.name", equalTo("Renamed Floor"))
+            .body("changes[1].entityId", equalTo(emptyId))
+            .body("changes[1].operation", equalTo("DELETE"))
+            .body("changes[1].entity", nullValue());
+
+        // Paging
+        given()
+            .queryParam("since", 0)
+            .queryParam("limit", 2)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("hasMore", is(true))
+            .body("changes", hasSize(2))
+            .body("nextSince", equalTo(2));
+    }
+
+    @Test
+    public void testNumbersFollowCommitOrder() {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        int floorId = post("/floors", floor);
+        floor.setId((long) floorId);
+
+        // A transaction logs a change but has not committed yet...
+        try (Session pending = sessionFactory.openSession()) {
+            Transaction tx = pending.beginTransaction();
+            Floor loaded = pending.get(Floor.class, (long) floorId);
+            loaded.setName("Pending Floor");
+            ChangeLog.record(pending, loaded, ChangeLogEntry.Operation.UPDATE);
+            pending.flush();
+
+            // ...while a later one commits: a client syncing now sees only committed changes
+            Floor other = new Floor();
+            other.setName("Second Floor");
+            other.setFloorNumber(2);
+            int otherId = post("/floors", other);
+
+            int nextSince = given()
+                .queryParam("since", 0)
+            .when()
+                .get(getApiPath("/changes"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("changes.entityId", contains(floorId, otherId))
+                .extract()
+                .path("nextSince");
+
+            tx.commit();
+
+            // The earlier transaction committed last, so its change is numbered after nextSince
+            given()
+                .queryParam("since", nextSince)
+            .when()
+                .get(getApiPath("/changes"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("changes", hasSize(1))
+                .body("changes[0].entityId", equalTo(floorId))
+                .body("changes[0].entity.name", equalTo("Pending Floor"));
+        }
+    }
+
+    @Test
+    public void testGapsAreNotCompaction() {
+        // A commit that only advanced the head (a reservation) left number 1 without an entry
+        session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+        commitAndStartNewTransaction();
+
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        post("/floors", floor);
+
+        given()
+            .queryParam("since", 0)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resyncRequired", is(false))
+            .body("nextSince", equalTo(2))
+            .body("changes", hasSize(1));
+    }
+
+    @Test
+    public void testResyncRequiredAfterCompaction() {
+        for (int i = 0; i < 3; i++) {
+            Floor floor = new Floor();
+            floor.setName("Floor " + i);
+            floor.setFloorNumber(i);
+            post("/floors", floor);
+        }
+
+        // Age every entry past the retention period and compact; the newest one is kept
+        session.createNativeQuery("UPDATE change_log SET changed_at = DATEADD('YEAR', -1, changed_at)")
+            .executeUpdate();
+        commitAndStartNewTransaction();
+        ChangeLog.compact(sessionFactory);
+
+        given()
+            .queryParam("since", 0)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resyncRequired", is(true))
+            .body("nextSince", equalTo(3))
+            .body("changes", empty());
+
+        // Clients that were up to date just before the kept entry can still catch up
+        given()
+            .queryParam("since", 2)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resyncRequired", is(false))
+            .body("changes", hasSize(1));
+
+        given()
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    private int post(String path, Object body) {
+        return given()
+            .contentType(ContentType.JSON)
+            .body(body)
+        .when()
+            .post(getApiPath(path))
+        .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract()
+            .path("id");
+    }
+}
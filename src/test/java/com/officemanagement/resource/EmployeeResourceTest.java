@@ -2,16 +2,34 @@ package com.officemanagement.resource;
 
 import com.officemanagement.model.Employee;
 import com.officemanagement.model.Floor;
+import com.officemanagement.model.IdempotencyRecord;
 import com.officemanagement.model.OfficeRoom;
 import com.officemanagement.model.Seat;
+import com.officemanagement.util.ChangeLogFollower;
+import com.officemanagement.util.IdempotencyStore;
+import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
 import org.junit.jupiter.api.Test;
 
 import jakarta.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class EmployeeResourceTest extends BaseResourceTest {
 
@@ -97,6 +115,21 @@ public class EmployeeResourceTest extends BaseResourceTest {
             .body("content.find { it.occupation == 'Software Engineer' }", notNullValue());
     }
 
+    @Test
+    public void testSearchEmployeesIgnoresCaseAndAccents() {
+        createTestEmployee("Jürgen Richter", "Senior Systems Engineer");
+        commitAndStartNewTransaction();
+
+        given()
+            .queryParam("search", "JURGEN")
+        .when()
+            .get(getApiPath("/employees/search"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("totalElements", equalTo(1))
+            .body("content[0].fullName", equalTo("Jürgen Richter"));
+    }
+
     @Test
     public void testAssignAndUnassignSeat() {
         // Create test data directly in the database
@@ -128,16 +161,28 @@ public class EmployeeResourceTest extends BaseResourceTest {
         flushAndClear();
 
         // Assign seat to employee
-        given()
+        String assigned = given()
+            .header("If-Match", "\"0\"")
         .when()
             .put(getApiPath("/employees/" + employee.getId() + "/assign-seat/" + seat.getId()))
         .then()
             .statusCode(Response.Status.OK.getStatusCode())
             .body("seats", hasSize(1))
-            .body("seats[0].id", equalTo(seat.getId().intValue()));
+            .body("seats[0].id", equalTo(seat.getId().intValue()))
+            .extract()
+            .header("ETag");
+
+        // The assignment moved the employee's version, so the old one no longer matches
+        given()
+            .header("If-Match", "\"0\"")
+        .when()
+            .delete(getApiPath("/employees/" + employee.getId() + "/unassign-seat/" + seat.getId()))
+        .then()
+            .statusCode(Response.Status.PRECONDITION_FAILED.getStatusCode());
 
         // Unassign seat from employee
         given()
+            .header("If-Match", assigned)
         .when()
             .delete(getApiPath("/employees/" + employee.getId() + "/unassign-seat/" + seat.getId()))
         .then()
@@ -239,11 +284,421 @@ public class EmployeeResourceTest extends BaseResourceTest {
             .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
     }
 
-    private void createTestEmployee(String fullName, String occupation) {
+    private Employee createTestEmployee(String fullName, String occupation) {
         Employee employee = new Employee();
         employee.setFullName(fullName);
         employee.setOccupation(occupation);
         session.save(employee);
         session.flush();
+        return employee;
+    }
+
+    @Test
+    public void testGetEmployeesByIds(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        Employee[] employees = new Employee[3];
+        for (int i = 0; i < employees.length; i++) {
+            employees[i] = new Employee();
+            employees[i].setFullName("Employee " + i);
+            employees[i].setOccupation("Engineer");
+            session.save(employees[i]);
+
+            Seat seat = new Seat();
+            seat.setSeatNumber("101-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+            employees[i].addSeat(seat);
+        }
+        commitAndStartNewTransaction();
+
+        // Request order is kept, unknown ids come back as null and are listed as missing
+        String ids = employees[2].getId() + ",99999," + employees[0].getId() + "," + employees[1].getId();
+        queries.measure(() ->
+            given()
+                .queryParam("ids", ids)
+            .when()
+                .get(getApiPath("/employees"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("items", hasSize(4))
+                .body("items[0].fullName", equalTo("Employee 2"))
+                .body("items[1]", nullValue())
+                .body("items[2].fullName", equalTo("Employee 0"))
+                .body("items[3].fullName", equalTo("Employee 1"))
+                .body("items[0].seats[0].seatNumber", equalTo("101-2"))
+                .body("missing", contains(99999)))
+            .assertStatementsAtMost(1);
+
+        given()
+            .queryParam("ids", "1,abc")
+        .when()
+            .get(getApiPath("/employees"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+        .when()
+            .get(getApiPath("/employees"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void testSearchEmployeesWithFiltersAndFacets(QueryCounter queries) {
+        Floor first = new Floor();
+        first.setName("First Floor");
+        first.setFloorNumber(1);
+        session.save(first);
+
+        Floor second = new Floor();
+        second.setName("Second Floor");
+        second.setFloorNumber(2);
+        session.save(second);
+
+        OfficeRoom room101 = new OfficeRoom();
+        room101.setName("Room 101");
+        room101.setRoomNumber("101");
+        room101.setFloor(first);
+        session.save(room101);
+
+        OfficeRoom room201 = new OfficeRoom();
+        room201.setName("Room 201");
+        room201.setRoomNumber("201");
+        room201.setFloor(second);
+        session.save(room201);
+
+        Employee ada = createTestEmployee("Ada", "Engineer");
+        Employee bob = createTestEmployee("Bob", "engineer");
+        Employee cyd = createTestEmployee("Cyd", "Designer");
+        Employee dan = createTestEmployee("Dan", "Engineer");
+        int seatNumber = 0;
+        for (Object[] seating : new Object[][] {{ada, room101}, {ada, room101}, {bob, room201}, {cyd, room101}}) {
+            Seat seat = new Seat();
+            seat.setSeatNumber("S" + (++seatNumber));
+            seat.setRoom((OfficeRoom) seating[1]);
+            session.save(seat);
+            ((Employee) seating[0]).addSeat(seat);
+        }
+        commitAndStartNewTransaction();
+
+        given()
+            .queryParam("floorId", first.getId())
+        .when()
+            .get(getApiPath("/employees/search"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("totalElements", equalTo(2))
+            .body("content.fullName", contains("Ada", "Cyd"))
+            .body("facets", nullValue());
+
+        given()
+            .queryParam("roomId", room201.getId())
+        .when()
+            .get(getApiPath("/employees/search"))
+        .then()
+            .body("content.fullName", contains("Bob"));
+
+        // Occupations match like the search does, case and accents ignored
+        given()
+            .queryParam("occupation", "ENGINEER")
+        .when()
+            .get(getApiPath("/employees/search"))
+        .then()
+            .body("content.fullName", contains("Ada", "Bob", "Dan"));
+
+        given()
+            .queryParam("seated", false)
+        .when()
+            .get(getApiPath("/employees/search"))
+        .then()
+            .body("content.fullName", contains("Dan"));
+
+        // Each facet leaves out its own filter: the other occupations on the first floor, the
+        // floors of the engineers. Ada's two seats count once.
+        queries.measure(() ->
+            given()
+                .queryParam("occupation", "engineer")
+                .queryParam("floorId", first.getId())
+                .queryParam("facets", true)
+            .when()
+                .get(getApiPath("/employees/search"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("totalElements", equalTo(1))
+                .body("content[0].fullName", equalTo("Ada"))
+                .body("content[0].seats", hasSize(2))
+                .body("facets.occupation.label", contains("Designer", "Engineer"))
+                .body("facets.occupation.count", contains(1, 1))
+                .body("facets.floor.label", contains("First Floor", "Second Floor"))
+                .body("facets.floor.count", contains(1, 1)))
+            // Count, one grouped query per facet, the page of ids, the employees with their seats,
+            // rooms and floors
+            .assertStatementsAtMost(5);
+    }
+
+    @Test
+    public void testSuggestEmployees(QueryCounter queries) {
+        createTestEmployee("Jürgen Richter", "Senior Systems Engineer");
+        createTestEmployee("Jane van Doe", "Architect");
+        createTestEmployee("Richard Roe", "Analyst");
+        commitAndStartNewTransaction();
+        ChangeLogFollower follower = ChangeLogFollower.get(sessionFactory);
+        follower.poll();
+
+        // Loads the index
+        given()
+            .queryParam("prefix", "ri")
+        .when()
+            .get(getApiPath("/employees/suggest"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("fullName", contains("Richard Roe", "Jürgen Richter"));
+
+        // Created through the API: in the index once committed
+        given()
+            .contentType(ContentType.JSON)
+            .body("{\"fullName\": \"Rita Ricci\", \"occupation\": \"Designer\"}")
+        .when()
+            .post(getApiPath("/employees"))
+        .then()
+            .statusCode(Response.Status.CREATED.getStatusCode());
+
+        // Any word of the name ("ricci" comes first), case and accents ignored, each employee once;
+        // no database
+        queries.measure(() ->
+            given()
+                .queryParam("prefix", "RI")
+            .when()
+                .get(getApiPath("/employees/suggest"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("fullName", contains("Rita Ricci", "Richard Roe", "Jürgen Richter")))
+            .assertStatementsAtMost(0);
+
+        given()
+            .queryParam("prefix", "van d")
+        .when()
+            .get(getApiPath("/employees/suggest"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("fullName", contains("Jane van Doe"))
+            .body("[0].occupation", equalTo("Architect"));
+
+        given()
+            .queryParam("prefix", "ri")
+            .queryParam("limit", 1)
+        .when()
+            .get(getApiPath("/employees/suggest"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("fullName", contains("Rita Ricci"));
+
+        given()
+        .when()
+            .get(getApiPath("/employees/suggest"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("", empty());
+
+        given()
+            .queryParam("prefix", "ri")
+            .queryParam("limit", 0)
+        .when()
+            .get(getApiPath("/employees/suggest"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        // Renamed by another node: the next poll of the change log head invalidates the index
+        session.createNativeQuery("UPDATE employees SET full_name = 'Rita Rossi', full_name_normalized = 'rita rossi' " +
+            "WHERE full_name = 'Rita Ricci'").executeUpdate();
+        session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+        commitAndStartNewTransaction();
+        follower.poll();
+
+        given()
+            .queryParam("prefix", "ross")
+        .when()
+            .get(getApiPath("/employees/suggest"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("fullName", contains("Rita Rossi"));
+    }
+
+    @Test
+    public void testSearchEmployeesWithFields(QueryCounter queries) {
+        for (int i = 0; i < 3; i++) {
+            Employee employee = new Employee();
+            employee.setFullName("Engineer " + i);
+            employee.setOccupation("Software Engineer");
+            session.save(employee);
+        }
+        commitAndStartNewTransaction();
+
+        // Basic attributes only: served from a projection (count + one select)
+        queries.measure(() ->
+            given()
+                .queryParam("search", "engineer")
+                .queryParam("fields", "id,fullName")
+            .when()
+                .get(getApiPath("/employees/search"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("totalElements", equalTo(3))
+                .body("content", hasSize(3))
+                .body("content[0].keySet()", contains("id", "fullName")))
+            .assertStatementsAtMost(2);
+
+        // Hidden columns cannot be selected through fields
+        given()
+            .queryParam("search", "engineer")
+            .queryParam("fields", "fullNameNormalized")
+        .when()
+            .get(getApiPath("/employees/search"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("content[0]", anEmptyMap());
+    }
+
+    @Test
+    public void testIdempotentRetries(QueryCounter queries) throws Exception {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        Seat seat = new Seat();
+        seat.setSeatNumber("101-1");
+        seat.setRoom(room);
+        session.save(seat);
+        commitAndStartNewTransaction();
+
+        String body = "{\"fullName\": \"Jane Doe\", \"occupation\": \"Architect\"}";
+        int id = postEmployee("create-1", body)
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .header("Idempotent-Replayed", nullValue())
+            .extract()
+            .path("id");
+
+        // The retry gets the first response back, from memory
+        queries.measure(() ->
+            postEmployee("create-1", body)
+                .statusCode(Response.Status.CREATED.getStatusCode())
+                .header("Idempotent-Replayed", equalTo("true"))
+                .body("id", equalTo(id))
+                .body("fullName", equalTo("Jane Doe")))
+            .assertStatementsAtMost(0);
+
+        postEmployee("create-1", "{\"fullName\": \"John Doe\", \"occupation\": \"Architect\"}")
+            .statusCode(422);
+
+        // Concurrent duplicates wait for the first one instead of running again
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> postEmployee("create-2", body.replace("Jane", "Joan"))
+                    .statusCode(Response.Status.CREATED.getStatusCode())
+                    .extract()
+                    .<Integer>path("id")));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Integer> result : results) {
+                ids.add(result.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals(1, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2L, session.createQuery("select count(e) from Employee e", Long.class).uniqueResult());
+
+        // A retried assignment replays its success instead of "Seat is already occupied"
+        for (int attempt = 0; attempt < 2; attempt++) {
+            given()
+                .header("Idempotency-Key", "assign-1")
+            .when()
+                .put(getApiPath("/employees/" + id + "/assign-seat/" + seat.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .header("ETag", equalTo("\"1\""))
+                .body("seats[0].id", equalTo(seat.getId().intValue()));
+        }
+
+        // Stored by the request's own commit
+        assertEquals(201, session.createNativeQuery(
+            "select status from idempotency_keys where idempotency_key = 'create-1'", Integer.class).uniqueResult());
+
+        // An abandoned claim has no committed work behind it: the retry takes it over and runs
+        session.createNativeMutationQuery(
+            "insert into idempotency_keys (idempotency_key, fingerprint, created_at) values ('create-3', 'x', :createdAt)")
+            .setParameter("createdAt", LocalDateTime.now().minusHours(1))
+            .executeUpdate();
+        commitAndStartNewTransaction();
+        postEmployee("create-3", body.replace("Jane", "Jill"))
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .header("Idempotent-Replayed", nullValue());
+
+        // A duplicate of a request whose outcome is unknown is told to retry, never run again
+        String unknownBody = body.replace("Jane", "June");
+        IdempotencyStore store = IdempotencyStore.get(sessionFactory);
+        IdempotencyRecord claim = new IdempotencyRecord("create-4", fingerprint("POST", "/employees", unknownBody));
+        assertSame(claim, store.begin(claim));
+        ExecutorService waiter = Executors.newSingleThreadExecutor();
+        try {
+            Future<io.restassured.response.Response> duplicate = waiter.submit(() ->
+                postEmployee("create-4", unknownBody).extract().response());
+            Thread.sleep(500);
+            // Its commit stored a response, but the request did not learn about it
+            session.createNativeMutationQuery("update idempotency_keys set status = 201 where idempotency_key = 'create-4'")
+                .executeUpdate();
+            commitAndStartNewTransaction();
+            store.release(claim);
+
+            io.restassured.response.Response answer = duplicate.get(30, TimeUnit.SECONDS);
+            // 409 while waiting; a replay of the stored response if it arrived after all that
+            assertTrue(answer.getStatusCode() == Response.Status.CONFLICT.getStatusCode()
+                || "true".equals(answer.getHeader("Idempotent-Replayed")), answer.getStatusLine());
+        } finally {
+            waiter.shutdownNow();
+        }
+        assertEquals(3L, session.createQuery("select count(e) from Employee e", Long.class).uniqueResult());
+    }
+
+    // As IdempotencyFilter computes it
+    private String fingerprint(String method, String path, String body) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((method + " " + RestAssured.basePath + getApiPath(path) + "?").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+        digest.update(body.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private ValidatableResponse postEmployee(String idempotencyKey, String body) {
+        return given()
+            .header("Idempotency-Key", idempotencyKey)
+            .contentType(ContentType.JSON)
+            .body(body)
+        .when()
+            .post(getApiPath("/employees"))
+        .then();
     }
-} 
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.officemanagement.resource;
 
 import com.officemanagement.model.Floor;
 import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Seat;
+import com.officemanagement.model.Employee;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +12,7 @@ import java.time.LocalDateTime;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FloorResourceTest extends BaseResourceTest {
 
@@ -271,7 +274,242 @@ public class FloorResourceTest extends BaseResourceTest {
         .when()
             .post(getApiPath("/floors"))
         .then()
-            .statusCode(Response.Status.CONFLICT.getStatusCode());
+            .statusCode(Response.Status.CONFLICT.getStatusCode())
+            .body(equalTo("A floor with number 1 already exists"));
+    }
+
+    @Test
+    public void testGetFloorQueryCount(QueryCounter queries) {
+        // A floor with several rooms, each with a few seats, some occupied
+        Floor floor = new Floor();
+        floor.setName("Busy Floor");
+        floor.setFloorNumber(7);
+        session.save(floor);
+        for (int r = 1; r <= 3; r++) {
+            OfficeRoom room = new OfficeRoom();
+            room.setName("Room 70" + r);
+            room.setRoomNumber("70" + r);
+            room.setFloor(floor);
+            session.save(room);
+            for (int s = 1; s <= 3; s++) {
+                Seat seat = new Seat();
+                seat.setSeatNumber("70" + r + "-" + s);
+                seat.setRoom(room);
+                session.save(seat);
+                if (s == 1) {
+                    Employee employee = new Employee();
+                    employee.setFullName("Employee " + r);
+                    employee.setOccupation("Engineer");
+                    session.save(employee);
+                    employee.addSeat(seat);
+                }
+            }
+        }
+        commitAndStartNewTransaction();
+
+        // Rooms, seats and occupants must all come from a single joined query
+        queries.measure(() ->
+            given()
+            .when()
+                .get(getApiPath("/floors/" + floor.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("rooms", hasSize(3)))
+            .assertStatementsAtMost(1)
+            .assertRowsAtMost(1 + 3 + 9 + 3)
+            .assertNoNPlusOne();
+    }
+
+    @Test
+    public void testServerTiming(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("Traced Floor");
+        floor.setFloorNumber(4);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 401");
+        room.setRoomNumber("401");
+        room.setFloor(floor);
+        session.save(room);
+        commitAndStartNewTransaction();
+
+        String[] serverTiming = new String[1];
+        QueryReport report = queries.measure(() ->
+            serverTiming[0] = given()
+                .header("X-Request-Id", "client-42")
+            .when()
+                .get(getApiPath("/floors/" + floor.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .header("X-Request-Id", equalTo("client-42"))
+                .extract()
+                .header("Server-Timing"));
+
+        // The statements counted by the trace are the ones Hibernate ran for the request; bodies
+        // are not buffered, so serialization is only in the trace log
+        assertTrue(serverTiming[0].matches("db;desc=\"\\d+ statements?\";dur=[\\d.]+, session;dur=[\\d.]+, " +
+            "total;dur=[\\d.]+"), serverTiming[0]);
+        assertTrue(serverTiming[0].startsWith("db;desc=\"" + report.getStatementCount() + " statement"),
+            serverTiming[0]);
+
+        // Responses without a body are timed too, and unusable request ids are replaced
+        given()
+            .header("X-Request-Id", "not a usable id")
+        .when()
+            .get(getApiPath("/floors/999"))
+        .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode())
+            .header("Server-Timing", startsWith("db;desc="))
+            .header("X-Request-Id", matchesPattern("[0-9a-f-]{36}"));
+    }
+
+    @Test
+    public void testClearFloorAssignments(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("Moving Floor");
+        floor.setFloorNumber(5);
+        session.save(floor);
+
+        Floor other = new Floor();
+        other.setName("Staying Floor");
+        other.setFloorNumber(6);
+        session.save(other);
+
+        Seat kept = null;
+        for (int r = 1; r <= 3; r++) {
+            OfficeRoom room = new OfficeRoom();
+            room.setName("Room " + r);
+            room.setRoomNumber("R" + r);
+            room.setFloor(r == 3 ? other : floor);
+            session.save(room);
+
+            Seat seat = new Seat();
+            seat.setSeatNumber("R" + r + "-1");
+            seat.setRoom(room);
+            session.save(seat);
+
+            Employee employee = new Employee();
+            employee.setFullName("Employee " + r);
+            employee.setOccupation("Engineer");
+            session.save(employee);
+            employee.addSeat(seat);
+            kept = seat;
+        }
+        commitAndStartNewTransaction();
+        Long keptId = kept.getId();
+
+        // Floor lookup, two change log inserts, the employee version bump and one UPDATE,
+        // however many seats there are; then three statements number the log entries at commit
+        queries.measure(() ->
+            given()
+            .when()
+                .delete(getApiPath("/floors/" + floor.getId() + "/assignments"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("updated", equalTo(2)))
+            .assertStatementsAtMost(8);
+
+        given()
+        .when()
+            .get(getApiPath("/floors/" + floor.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("rooms.seats.flatten().occupied", everyItem(is(false)));
+
+        given()
+        .when()
+            .get(getApiPath("/seats/" + keptId))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("occupied", is(true));
+
+        // Both sides of every cleared assignment are reported to delta sync clients
+        given()
+            .queryParam("since", 0)
+        .when()
+            .get(getApiPath("/changes"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("changes.entityType", containsInAnyOrder("seat", "seat", "employee", "employee"))
+            .body("changes.entity.employee", everyItem(nullValue()));
+
+        given()
+        .when()
+            .delete(getApiPath("/floors/999/assignments"))
+        .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    public void testConditionalUpdateAndDelete() {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+
+        String created = given()
+            .contentType(ContentType.JSON)
+            .body(floor)
+        .when()
+            .post(getApiPath("/floors"))
+        .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract()
+            .header("ETag");
+        int floorId = given()
+        .when()
+            .get(getApiPath("/floors/1"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .header("ETag", equalTo(created))
+            .body("version", is(0))
+            .extract()
+            .path("id");
+
+        floor.setName("Renamed Floor");
+        String renamed = given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", created)
+            .body(floor)
+        .when()
+            .put(getApiPath("/floors/" + floorId))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .header("ETag", not(equalTo(created)))
+            .body("version", is(1))
+            .extract()
+            .header("ETag");
+
+        // A second editor still holding the first version loses instead of overwriting
+        floor.setName("Stale Name");
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", created)
+            .body(floor)
+        .when()
+            .put(getApiPath("/floors/" + floorId))
+        .then()
+            .statusCode(Response.Status.PRECONDITION_FAILED.getStatusCode());
+
+        given()
+            .header("If-Match", created)
+        .when()
+            .delete(getApiPath("/floors/" + floorId))
+        .then()
+            .statusCode(Response.Status.PRECONDITION_FAILED.getStatusCode());
+
+        given()
+        .when()
+            .get(getApiPath("/floors/" + floorId))
+        .then()
+            .body("name", equalTo("Renamed Floor"));
+
+        given()
+            .header("If-Match", renamed)
+        .when()
+            .delete(getApiPath("/floors/" + floorId))
+        .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
     }
 
     private void createTestFloor(String name, int floorNumber) {
@@ -0,0 +1,44 @@
+package com.officemanagement.resource;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Resets the statement log before each test, injects a {@link QueryCounter} into test
+ * methods that ask for one, and warns about repeated identical statements (N+1 patterns)
+ * anywhere in the test once it has finished.
+ */
+public class QueryCountExtension implements BeforeEachCallback, AfterEachCallback, ParameterResolver {
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        QueryCounter.reset();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        Map<String, Integer> repeated = new QueryReport(QueryCounter.snapshot(), -1).getRepeatedStatements();
+        for (Map.Entry<String, Integer> entry : repeated.entrySet()) {
+            logger.warn("{}: N+1 suspect, executed {} times: {}",
+                context.getDisplayName(), entry.getValue(), entry.getKey());
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == QueryCounter.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return new QueryCounter();
+    }
+}
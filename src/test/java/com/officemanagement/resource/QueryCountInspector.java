@@ -0,0 +1,16 @@
+package com.officemanagement.resource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate hook that sees every SQL statement before it is prepared.
+ * Registered in the test hibernate.cfg.xml and feeds {@link QueryCounter}.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.record(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,56 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.util.HibernateUtil;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the SQL statements issued by Hibernate (both by the test session and by the
+ * server handling REST calls) so tests can put a ceiling on the queries and rows a single
+ * request costs. Injected into test methods by {@link QueryCountExtension}.
+ */
+public class QueryCounter {
+    private static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    static void record(String sql) {
+        statements.add(sql.replaceAll("\\s+", " ").trim());
+    }
+
+    static void reset() {
+        statements.clear();
+    }
+
+    static List<String> snapshot() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    /**
+     * Runs the request and reports the statements and entity rows it caused.
+     * The request must be synchronous (e.g. a RestAssured call), which is the case for
+     * every test in this suite since the server finishes its work before responding.
+     */
+    public QueryReport measure(Runnable request) {
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+        int from = statements.size();
+        long loadsBefore = statistics.getEntityLoadCount() + statistics.getEntityFetchCount();
+
+        request.run();
+
+        long loadsAfter = statistics.getEntityLoadCount() + statistics.getEntityFetchCount();
+        List<String> executed;
+        synchronized (statements) {
+            executed = new ArrayList<>(statements.subList(from, statements.size()));
+        }
+        return new QueryReport(executed, loadsAfter - loadsBefore);
+    }
+
+    /** Everything recorded since the current test started. */
+    public QueryReport total() {
+        return new QueryReport(snapshot(), -1);
+    }
+}
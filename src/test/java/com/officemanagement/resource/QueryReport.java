@@ -0,0 +1,101 @@
+package com.officemanagement.resource;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Statements (and hydrated entity rows) recorded while running a request.
+ * An identical statement executed {@value #N_PLUS_ONE_THRESHOLD} or more times is
+ * reported as an N+1 pattern: it almost always means a lazy/eager association is being
+ * loaded one parent at a time instead of with a join or a batch.
+ */
+public class QueryReport {
+    public static final int N_PLUS_ONE_THRESHOLD = 3;
+
+    private final List<String> statements;
+    private final long rows;
+
+    QueryReport(List<String> statements, long rows) {
+        this.statements = Collections.unmodifiableList(statements);
+        this.rows = rows;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    /** Entity rows hydrated by the request, or -1 when not measured. */
+    public long getRowCount() {
+        return rows;
+    }
+
+    /** SELECTs executed at least {@link #N_PLUS_ONE_THRESHOLD} times, with their counts. */
+    public Map<String, Integer> getRepeatedStatements() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String sql : statements) {
+            if (isSelect(sql) && !isSequenceCall(sql)) {
+                counts.merge(sql, 1, Integer::sum);
+            }
+        }
+        counts.values().removeIf(count -> count < N_PLUS_ONE_THRESHOLD);
+        return counts;
+    }
+
+    // Repeated inserts/updates are batched writes, not N+1 reads
+    private static boolean isSelect(String sql) {
+        return sql.regionMatches(true, 0, "select", 0, 6);
+    }
+
+    // Id generation (allocationSize = 1) legitimately repeats once per inserted row
+    private static boolean isSequenceCall(String sql) {
+        String lower = sql.toLowerCase();
+        return lower.startsWith("select next value for") || lower.contains("nextval(");
+    }
+
+    public QueryReport assertStatementsAtMost(int max) {
+        if (statements.size() > max) {
+            fail("Expected at most " + max + " statements but " + statements.size() + " were executed\n" + this);
+        }
+        return this;
+    }
+
+    public QueryReport assertRowsAtMost(long max) {
+        if (rows > max) {
+            fail("Expected at most " + max + " entity rows but " + rows + " were loaded\n" + this);
+        }
+        return this;
+    }
+
+    public QueryReport assertNoNPlusOne() {
+        if (!getRepeatedStatements().isEmpty()) {
+            fail("N+1 query pattern detected\n" + this);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(statements.size()).append(" statement(s)");
+        if (rows >= 0) {
+            report.append(", ").append(rows).append(" entity row(s)");
+        }
+        report.append('\n');
+        for (int i = 0; i < statements.size(); i++) {
+            report.append("  ").append(i + 1).append(". ").append(statements.get(i)).append('\n');
+        }
+        for (Map.Entry<String, Integer> repeated : getRepeatedStatements().entrySet()) {
+            report.append("  N+1 suspect (x").append(repeated.getValue()).append("): ")
+                .append(repeated.getKey()).append('\n');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package com.officemanagement.resource;
+
+import com.officemanagement.model.Employee;
+import com.officemanagement.model.Floor;
+import com.officemanagement.model.OfficeRoom;
+import com.officemanagement.model.Reservation;
+import com.officemanagement.model.Seat;
+import com.officemanagement.util.ChangeLogFollower;
+import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+public class ReservationResourceTest extends BaseResourceTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    @Test
+    public void testReserveAndQueryFreeSeats(QueryCounter queries) {
+        Floor third = new Floor();
+        third.setName("Third Floor");
+        third.setFloorNumber(3);
+        session.save(third);
+
+        Floor fourth = new Floor();
+        fourth.setName("Fourth Floor");
+        fourth.setFloorNumber(4);
+        session.save(fourth);
+
+        OfficeRoom room = createRoom(third, "301");
+        OfficeRoom otherRoom = createRoom(fourth, "401");
+        Seat hotDesk = createSeat(room, "301-1");
+        Seat assigned = createSeat(room, "301-2");
+        createSeat(otherRoom, "401-1");
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        session.save(employee);
+        employee.addSeat(assigned);
+        commitAndStartNewTransaction();
+        ChangeLogFollower follower = ChangeLogFollower.get(sessionFactory);
+        follower.poll();
+
+        // Permanently assigned seats and other floors are never free here
+        freeSeats(third, 9, 13).body("seatNumber", contains("301-1"));
+
+        int reservationId = reserve(hotDesk, employee, 9, 13)
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract()
+            .path("id");
+
+        // Answered from the index, which followed the commit; the reservation advanced the
+        // change log head, but as a write of this node it does not invalidate the index
+        follower.poll();
+        queries.measure(() -> freeSeats(third, 9, 13).body("", empty()))
+            .assertStatementsAtMost(0);
+        freeSeats(third, 13, 17).body("seatNumber", contains("301-1"));
+
+        reserve(hotDesk, employee, 12, 14)
+            .statusCode(Response.Status.CONFLICT.getStatusCode());
+        reserve(assigned, employee, 9, 13)
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+        .when()
+            .delete(getApiPath("/reservations/" + reservationId))
+        .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+
+        freeSeats(third, 9, 13).body("seatNumber", contains("301-1"));
+
+        // Seats created through the API show up as well
+        Seat added = new Seat();
+        added.setSeatNumber("301-3");
+        added.setRoom(room);
+        given()
+            .contentType(ContentType.JSON)
+            .body(added)
+        .when()
+            .post(getApiPath("/seats"))
+        .then()
+            .statusCode(Response.Status.CREATED.getStatusCode());
+
+        freeSeats(third, 9, 13).body("seatNumber", contains("301-1", "301-3"));
+
+        // Reserved through another node: the next poll of the change log head invalidates the index
+        session.createNativeQuery("INSERT INTO reservations (id, seat_id, employee_id, start_time, end_time) " +
+                "VALUES (nextval('reservation_seq'), :seatId, :employeeId, :start, :end)")
+            .setParameter("seatId", hotDesk.getId())
+            .setParameter("employeeId", employee.getId())
+            .setParameter("start", TOMORROW.atTime(9, 0))
+            .setParameter("end", TOMORROW.atTime(13, 0))
+            .executeUpdate();
+        session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+        commitAndStartNewTransaction();
+        follower.poll();
+
+        freeSeats(third, 9, 13).body("seatNumber", contains("301-3"));
+    }
+
+    @Test
+    public void testFreeSeatsRequiresTimeRange() {
+        given()
+            .queryParam("start", "tomorrow")
+            .queryParam("end", TOMORROW.atTime(13, 0).toString())
+        .when()
+            .get(getApiPath("/reservations/free-seats"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .queryParam("start", TOMORROW.atTime(13, 0).toString())
+            .queryParam("end", TOMORROW.atTime(9, 0).toString())
+        .when()
+            .get(getApiPath("/reservations/free-seats"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    private OfficeRoom createRoom(Floor floor, String roomNumber) {
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room " + roomNumber);
+        room.setRoomNumber(roomNumber);
+        room.setFloor(floor);
+        session.save(room);
+        return room;
+    }
+
+    private Seat createSeat(OfficeRoom room, String seatNumber) {
+        Seat seat = new Seat();
+        seat.setSeatNumber(seatNumber);
+        seat.setRoom(room);
+        session.save(seat);
+        return seat;
+    }
+
+    private ValidatableResponse reserve(Seat seat, Employee employee, int fromHour, int toHour) {
+        Seat seatRef = new Seat();
+        seatRef.setId(seat.getId());
+        Employee employeeRef = new Employee();
+        employeeRef.setId(employee.getId());
+
+        Reservation reservation = new Reservation();
+        reservation.setSeat(seatRef);
+        reservation.setEmployee(employeeRef);
+        reservation.setStartTime(TOMORROW.atTime(LocalTime.of(fromHour, 0)));
+        reservation.setEndTime(TOMORROW.atTime(LocalTime.of(toHour, 0)));
+
+        return given()
+            .contentType(ContentType.JSON)
+            .body(reservation)
+        .when()
+            .post(getApiPath("/reservations"))
+        .then();
+    }
+
+    private ValidatableResponse freeSeats(Floor floor, int fromHour, int toHour) {
+        LocalDateTime start = TOMORROW.atTime(fromHour, 0);
+        LocalDateTime end = TOMORROW.atTime(toHour, 0);
+        return given()
+            .queryParam("floorId", floor.getId())
+            .queryParam("start", start.toString())
+            .queryParam("end", end.toString())
+        .when()
+            .get(getApiPath("/reservations/free-seats"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+    }
+}
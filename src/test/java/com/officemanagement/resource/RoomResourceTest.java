@@ -3,6 +3,7 @@ package com.officemanagement.resource;
 import com.officemanagement.model.Floor;
 import com.officemanagement.model.OfficeRoom;
 import com.officemanagement.model.Seat;
+import com.officemanagement.model.Employee;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +11,8 @@ import jakarta.ws.rs.core.Response;
 import java.time.LocalDateTime;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
 public class RoomResourceTest extends BaseResourceTest {
@@ -104,7 +107,8 @@ public class RoomResourceTest extends BaseResourceTest {
         .when()
             .post(getApiPath("/rooms"))
         .then()
-            .statusCode(Response.Status.CONFLICT.getStatusCode());
+            .statusCode(Response.Status.CONFLICT.getStatusCode())
+            .body(equalTo("A room with number 101 already exists on this floor"));
     }
 
     @Test
@@ -135,4 +139,300 @@ public class RoomResourceTest extends BaseResourceTest {
         .then()
             .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testGetRoomQueryCount(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        for (int i = 1; i <= 5; i++) {
+            Seat seat = new Seat();
+            seat.setSeatNumber("101-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+
+            Employee employee = new Employee();
+            employee.setFullName("Employee " + i);
+            employee.setOccupation("Engineer");
+            session.save(employee);
+            employee.addSeat(seat);
+        }
+        commitAndStartNewTransaction();
+
+        // Seats and their occupants are fetch-joined; only the floor may need its own select
+        queries.measure(() ->
+            given()
+            .when()
+                .get(getApiPath("/rooms/" + room.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("seats", hasSize(5)))
+            .assertStatementsAtMost(2)
+            .assertNoNPlusOne();
+
+        queries.measure(() ->
+            given()
+            .when()
+                .get(getApiPath("/rooms/" + room.getId() + "/seats"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("$", hasSize(5)))
+            .assertNoNPlusOne();
+    }
+
+    @Test
+    public void testGetRoomWithFields(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        for (int i = 1; i <= 3; i++) {
+            Seat seat = new Seat();
+            seat.setSeatNumber("101-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+        }
+        commitAndStartNewTransaction();
+
+        // Nested paths keep only the named parts of the seats
+        given()
+            .queryParam("fields", "id,name,seats.seatNumber")
+        .when()
+            .get(getApiPath("/rooms/" + room.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("name", equalTo("Room 101"))
+            .body("$", not(hasKey("floor")))
+            .body("$", not(hasKey("roomNumber")))
+            .body("seats", hasSize(3))
+            .body("seats[0].keySet()", contains("seatNumber"));
+
+        // Without seats in the fields they are not loaded at all: only the room and its
+        // floor (counted as a load and a fetch) are hydrated
+        queries.measure(() ->
+            given()
+                .queryParam("fields", "id,name")
+            .when()
+                .get(getApiPath("/rooms/" + room.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("keySet()", containsInAnyOrder("id", "name")))
+            .assertRowsAtMost(3);
+    }
+
+    @Test
+    public void testBulkRoomOperations(QueryCounter queries) {
+        Floor first = new Floor();
+        first.setName("First Floor");
+        first.setFloorNumber(1);
+        session.save(first);
+
+        Floor second = new Floor();
+        second.setName("Second Floor");
+        second.setFloorNumber(2);
+        session.save(second);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(first);
+        session.save(room);
+
+        OfficeRoom taken = new OfficeRoom();
+        taken.setName("Room 201");
+        taken.setRoomNumber("201");
+        taken.setFloor(second);
+        session.save(taken);
+
+        for (int i = 1; i <= 3; i++) {
+            Seat seat = new Seat();
+            seat.setSeatNumber("101-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+
+            Employee employee = new Employee();
+            employee.setFullName("Employee " + i);
+            employee.setOccupation("Engineer");
+            session.save(employee);
+            employee.addSeat(seat);
+        }
+        commitAndStartNewTransaction();
+
+        // Room lookup, two change log inserts, two bulk updates, and three statements that
+        // number the log entries at commit
+        queries.measure(() ->
+            given()
+            .when()
+                .delete(getApiPath("/rooms/" + room.getId() + "/assignments"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("updated", equalTo(3)))
+            .assertStatementsAtMost(8);
+
+        // The cleared seats are free in the next snapshot
+        given()
+        .when()
+            .get(getApiPath("/building/snapshot"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("floors[0].rooms[0].seats.employeeName", everyItem(nullValue()));
+
+        given()
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/move-to-floor/" + second.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("updated", equalTo(1));
+
+        given()
+        .when()
+            .get(getApiPath("/rooms/" + room.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("floor.id", equalTo(second.getId().intValue()))
+            .body("seats", hasSize(3));
+
+        given()
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/move-to-floor/999"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        // Only the matching prefix is replaced, and the wildcard in it is taken literally
+        given()
+            .queryParam("from", "101-")
+            .queryParam("to", "201-")
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("updated", equalTo(3));
+
+        given()
+            .queryParam("from", "2_1")
+            .queryParam("to", "301")
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("updated", equalTo(0));
+
+        given()
+        .when()
+            .get(getApiPath("/rooms/" + room.getId() + "/seats"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("seatNumber", containsInAnyOrder("201-1", "201-2", "201-3"));
+
+        // Renumbering onto an existing seat number is a conflict
+        given()
+            .queryParam("from", "201-1")
+            .queryParam("to", "201-2")
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+        .then()
+            .statusCode(Response.Status.CONFLICT.getStatusCode());
+
+        // So is moving onto a floor where the room number is taken
+        given()
+        .when()
+            .put(getApiPath("/rooms/" + taken.getId() + "/move-to-floor/" + first.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        OfficeRoom clash = new OfficeRoom();
+        clash.setName("Other 101");
+        clash.setRoomNumber("101");
+        clash.setFloor(first);
+        session.save(clash);
+        commitAndStartNewTransaction();
+
+        given()
+        .when()
+            .put(getApiPath("/rooms/" + clash.getId() + "/move-to-floor/" + second.getId()))
+        .then()
+            .statusCode(Response.Status.CONFLICT.getStatusCode())
+            .body(equalTo("A room with this number already exists on this floor"));
+    }
+
+    @Test
+    public void testFailedWritesRollBack() {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        for (int i = 1; i <= 2; i++) {
+            Seat seat = new Seat();
+            seat.setSeatNumber("101-" + i);
+            seat.setRoom(room);
+            session.save(seat);
+        }
+        commitAndStartNewTransaction();
+
+        // The change log entries are written before the renumbering fails; the 409 rolls them back
+        given()
+            .queryParam("from", "101-1")
+            .queryParam("to", "101-2")
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+        .then()
+            .statusCode(Response.Status.CONFLICT.getStatusCode());
+
+        assertEquals(0L, changeLogSize());
+
+        // Rejected writes return their connections: more of them than the pool holds
+        for (int i = 0; i < 25; i++) {
+            given()
+                .queryParam("from", "")
+                .queryParam("to", "x")
+            .when()
+                .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+            given()
+            .when()
+                .put(getApiPath("/rooms/" + room.getId() + "/move-to-floor/999"))
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+        }
+
+        given()
+            .queryParam("from", "101-2")
+            .queryParam("to", "102-2")
+        .when()
+            .put(getApiPath("/rooms/" + room.getId() + "/renumber-seats"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("updated", equalTo(1));
+
+        assertEquals(1L, changeLogSize());
+    }
+
+    private long changeLogSize() {
+        commitAndStartNewTransaction();
+        return session.createQuery("select count(c) from ChangeLogEntry c", Long.class).uniqueResult();
+    }
+}
@@ -4,13 +4,27 @@ import com.officemanagement.model.Floor;
 import com.officemanagement.model.OfficeRoom;
 import com.officemanagement.model.Seat;
 import com.officemanagement.model.Employee;
+import com.officemanagement.index.SeatGraph;
+import com.officemanagement.util.ChangeLogFollower;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
 import jakarta.ws.rs.core.Response;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
 
 
 public class SeatResourceTest extends BaseResourceTest {
@@ -122,7 +136,8 @@ public class SeatResourceTest extends BaseResourceTest {
         .when()
             .post(getApiPath("/seats"))
         .then()
-            .statusCode(Response.Status.CONFLICT.getStatusCode());
+            .statusCode(Response.Status.CONFLICT.getStatusCode())
+            .body(equalTo("A seat with number 101-1 already exists in this room"));
     }
 
     @Test
@@ -190,4 +205,374 @@ public class SeatResourceTest extends BaseResourceTest {
         .then()
             .statusCode(Response.Status.NOT_FOUND.getStatusCode());
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testGetSeatsByIds(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room = new OfficeRoom();
+        room.setName("Room 101");
+        room.setRoomNumber("101");
+        room.setFloor(floor);
+        session.save(room);
+
+        Seat first = new Seat();
+        first.setSeatNumber("101-1");
+        first.setRoom(room);
+        session.save(first);
+
+        Seat second = new Seat();
+        second.setSeatNumber("101-2");
+        second.setRoom(room);
+        session.save(second);
+        commitAndStartNewTransaction();
+
+        // Repeated and comma-separated ids both work; duplicates are returned once
+        queries.measure(() ->
+            given()
+                .queryParam("ids", second.getId() + "," + first.getId())
+                .queryParam("ids", "424242," + second.getId())
+            .when()
+                .get(getApiPath("/seats"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("items", hasSize(3))
+                .body("items[0].seatNumber", equalTo("101-2"))
+                .body("items[1].seatNumber", equalTo("101-1"))
+                .body("items[1].room.roomNumber", equalTo("101"))
+                .body("items[2]", nullValue())
+                .body("missing", contains(424242)))
+            .assertStatementsAtMost(1);
+    }
+
+    private Seat createPlacedSeat(OfficeRoom room, String number, Double x, Double y) {
+        Seat seat = new Seat();
+        seat.setSeatNumber(number);
+        seat.setRoom(room);
+        seat.setX(x);
+        seat.setY(y);
+        session.save(seat);
+        return seat;
+    }
+
+    @Test
+    public void testNearbySeats(QueryCounter queries) {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        Floor otherFloor = new Floor();
+        otherFloor.setName("Second Floor");
+        otherFloor.setFloorNumber(2);
+        session.save(otherFloor);
+
+        // Room 101 at the floor's origin, room 102 twenty units to the right
+        OfficeRoom room101 = new OfficeRoom();
+        room101.setName("Room 101");
+        room101.setRoomNumber("101");
+        room101.setFloor(floor);
+        session.save(room101);
+
+        OfficeRoom room102 = new OfficeRoom();
+        room102.setName("Room 102");
+        room102.setRoomNumber("102");
+        room102.setFloor(floor);
+        room102.setX(20.0);
+        room102.setY(0.0);
+        session.save(room102);
+
+        OfficeRoom room201 = new OfficeRoom();
+        room201.setName("Room 201");
+        room201.setRoomNumber("201");
+        room201.setFloor(otherFloor);
+        session.save(room201);
+
+        Seat mine = createPlacedSeat(room101, "101-1", 1.0, 1.0);
+        Seat neighbour = createPlacedSeat(room101, "101-2", 2.0, 1.0);
+        Seat taken = createPlacedSeat(room101, "101-3", 1.0, 4.0);
+        createPlacedSeat(room101, "101-4", 10.0, 10.0);
+        Seat across = createPlacedSeat(room102, "102-1", 1.0, 1.0);
+        createPlacedSeat(room201, "201-1", 1.0, 1.0);
+        Seat unplaced = createPlacedSeat(room101, "101-5", null, null);
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        session.save(employee);
+        employee.addSeat(taken);
+        commitAndStartNewTransaction();
+        ChangeLogFollower follower = ChangeLogFollower.get(sessionFactory);
+        follower.poll();
+
+        given()
+            .queryParam("seatId", mine.getId())
+            .queryParam("radius", 5)
+        .when()
+            .get(getApiPath("/seats/nearby"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("seatNumber", contains("101-2", "101-3"))
+            .body("[0].distance", equalTo(1.0f))
+            .body("[1].occupied", equalTo(true));
+
+        // Free ones only, across rooms (102-1 is at 21,1 on the floor), never other floors; no database
+        queries.measure(() ->
+            given()
+                .queryParam("seatId", mine.getId())
+                .queryParam("radius", 25)
+                .queryParam("free", true)
+            .when()
+                .get(getApiPath("/seats/nearby"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("seatNumber", contains("101-2", "101-4", "102-1"))
+                .body("[2].x", equalTo(21.0f))
+                .body("[2].roomNumber", equalTo("102")))
+            .assertStatementsAtMost(0);
+
+        // Moving a room moves its seats
+        room102.setX(3.0);
+        given()
+            .contentType(ContentType.JSON)
+            .body(room102)
+        .when()
+            .put(getApiPath("/rooms/" + room102.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        given()
+            .queryParam("seatId", mine.getId())
+            .queryParam("radius", 3.5)
+            .queryParam("free", true)
+        .when()
+            .get(getApiPath("/seats/nearby"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("seatNumber", contains("101-2", "102-1"))
+            .body("[1].x", equalTo(4.0f));
+
+        given()
+            .queryParam("seatId", unplaced.getId())
+            .queryParam("radius", 5)
+        .when()
+            .get(getApiPath("/seats/nearby"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .queryParam("seatId", 99999)
+            .queryParam("radius", 5)
+        .when()
+            .get(getApiPath("/seats/nearby"))
+        .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+
+        given()
+            .queryParam("seatId", neighbour.getId())
+            .queryParam("radius", -1)
+        .when()
+            .get(getApiPath("/seats/nearby"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        // Freed by another node: the next poll of the change log head invalidates the index.
+        // (Room 102 was moved through the API; this session's copy is stale.)
+        session.clear();
+        session.createNativeQuery("UPDATE seats SET employee_id = NULL WHERE id = :id")
+            .setParameter("id", taken.getId())
+            .executeUpdate();
+        session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+        commitAndStartNewTransaction();
+        follower.poll();
+
+        given()
+            .queryParam("seatId", mine.getId())
+            .queryParam("radius", 3.5)
+            .queryParam("free", true)
+        .when()
+            .get(getApiPath("/seats/nearby"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("seatNumber", contains("101-2", "101-3", "102-1"));
+    }
+
+    @Test
+    public void testReadsFromMemory(QueryCounter queries) throws Exception {
+        Floor floor = new Floor();
+        floor.setName("First Floor");
+        floor.setFloorNumber(1);
+        session.save(floor);
+
+        OfficeRoom room101 = new OfficeRoom();
+        room101.setName("Room 101");
+        room101.setRoomNumber("101");
+        room101.setFloor(floor);
+        room101.setX(10.0);
+        session.save(room101);
+
+        OfficeRoom room102 = new OfficeRoom();
+        room102.setName("Room 102");
+        room102.setRoomNumber("102");
+        room102.setFloor(floor);
+        session.save(room102);
+
+        Seat taken = createPlacedSeat(room101, "101-1", 1.0, 2.0);
+        Seat free = createPlacedSeat(room101, "101-2", null, null);
+        createPlacedSeat(room102, "102-1", 3.0, 3.0);
+
+        Employee employee = new Employee();
+        employee.setFullName("Jane Doe");
+        employee.setOccupation("Architect");
+        session.save(employee);
+        employee.addSeat(taken);
+        commitAndStartNewTransaction();
+
+        String[] paths = {
+            "/floors/" + floor.getId(),
+            "/rooms/" + room101.getId(),
+            "/rooms/" + room101.getId() + "/seats",
+            "/seats/" + taken.getId(),
+            "/seats/" + free.getId(),
+            "/stats"
+        };
+        List<JsonNode> fromDatabase = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        for (String path : paths) {
+            io.restassured.response.Response response = given().when().get(getApiPath(path));
+            fromDatabase.add(sortedById(objectMapper.readTree(response.asString())));
+            tags.add(response.header("ETag"));
+        }
+
+        Map<String, Object> properties = sessionFactory.getProperties();
+        properties.put(SeatGraph.READS_PROPERTY, SeatGraph.MEMORY);
+        ChangeLogFollower follower = ChangeLogFollower.get(sessionFactory);
+        follower.poll();
+        try {
+            SeatGraph.get(sessionFactory).warmUp();
+
+            // The same bodies and ETags as from the database, without a statement
+            for (int i = 0; i < paths.length; i++) {
+                String path = paths[i];
+                int index = i;
+                queries.measure(() -> {
+                    io.restassured.response.Response response = given().when().get(getApiPath(path));
+                    assertEquals(200, response.statusCode(), path);
+                    try {
+                        assertEquals(fromDatabase.get(index), sortedById(objectMapper.readTree(response.asString())), path);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                    assertEquals(tags.get(index), response.header("ETag"), path);
+                }).assertStatementsAtMost(0);
+            }
+
+            given()
+                .queryParam("fields", "id,seatNumber")
+            .when()
+                .get(getApiPath("/seats/" + free.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("seatNumber", equalTo("101-2"))
+                .body("$", not(hasKey("room")));
+
+            given()
+            .when()
+                .get(getApiPath("/seats/99999"))
+            .then()
+                .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+
+            // A committed assignment is in the next read
+            employee.addSeat(free);
+            commitAndStartNewTransaction();
+            queries.measure(() ->
+                given()
+                .when()
+                    .get(getApiPath("/seats/" + free.getId()))
+                .then()
+                    .statusCode(Response.Status.OK.getStatusCode())
+                    .body("occupied", equalTo(true))
+                    .body("employee.fullName", equalTo("Jane Doe"))
+                    .body("room.floor.name", equalTo("First Floor")))
+                .assertStatementsAtMost(0);
+
+            // So is a new seat
+            createPlacedSeat(room102, "102-2", null, null);
+            commitAndStartNewTransaction();
+            queries.measure(() -> {
+                given()
+                .when()
+                    .get(getApiPath("/rooms/" + room102.getId() + "/seats"))
+                .then()
+                    .statusCode(Response.Status.OK.getStatusCode())
+                    .body("seatNumber", contains("102-1", "102-2"));
+                given()
+                .when()
+                    .get(getApiPath("/stats"))
+                .then()
+                    .body("totalSeats", equalTo(4))
+                    .body("totalEmployees", equalTo(1));
+            }).assertStatementsAtMost(0);
+
+            // The follower tells this node's writes from other nodes': they keep the replica
+            Floor second = new Floor();
+            second.setName("Second Floor");
+            second.setFloorNumber(2);
+            given()
+                .contentType(ContentType.JSON)
+                .body(second)
+            .when()
+                .post(getApiPath("/floors"))
+            .then()
+                .statusCode(Response.Status.CREATED.getStatusCode());
+            follower.poll();
+            queries.measure(() ->
+                given()
+                .when()
+                    .get(getApiPath("/stats"))
+                .then()
+                    .body("totalFloors", equalTo(2)))
+                .assertStatementsAtMost(0);
+
+            // A write committed by another node only advances the change log head: the next
+            // poll invalidates the replica and the read after it reloads
+            session.createNativeQuery("UPDATE seats SET employee_id = NULL WHERE id = :id")
+                .setParameter("id", free.getId())
+                .executeUpdate();
+            session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+            commitAndStartNewTransaction();
+            follower.poll();
+            given()
+            .when()
+                .get(getApiPath("/seats/" + free.getId()))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("occupied", equalTo(false));
+        } finally {
+            properties.remove(SeatGraph.READS_PROPERTY);
+        }
+    }
+
+    // Collections come back in no particular order from the database: compare them by id
+    private static JsonNode sortedById(JsonNode node) {
+        if (node.isArray()) {
+            List<JsonNode> elements = new ArrayList<>();
+            node.forEach(element -> elements.add(sortedById(element)));
+            elements.sort(Comparator.comparingLong((JsonNode element) -> element.path("id").asLong()));
+            ArrayNode sorted = ((ArrayNode) node).removeAll();
+            sorted.addAll(elements);
+            return sorted;
+        }
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(sortedById(field.getValue()));
+            }
+        }
+        return node;
+    }
+}
@@ -4,6 +4,7 @@ import com.officemanagement.model.Employee;
 import com.officemanagement.model.Floor;
 import com.officemanagement.model.OfficeRoom;
 import com.officemanagement.model.Seat;
+import com.officemanagement.util.OccupancySampler;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,9 +12,13 @@ import org.junit.jupiter.api.Test;
 import jakarta.ws.rs.core.Response;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StatsResourceTest extends BaseResourceTest {
 
@@ -49,6 +54,180 @@ public class StatsResourceTest extends BaseResourceTest {
             .body("totalSeats", is(2));
     }
 
+    @Test
+    public void testGetUtilization(QueryCounter queries) {
+        Floor floor = session.createQuery("from Floor", Floor.class).getSingleResult();
+        createTestRoom(floor, "Empty Room", "102");
+        createTestFloor("Empty Floor", 2);
+        Seat seat = session.createQuery("from Seat s where s.seatNumber = 'A1'", Seat.class).getSingleResult();
+        Long employeeId = session.createQuery("select min(e.id) from Employee e", Long.class).getSingleResult();
+
+        // One grouped query, whatever the number of floors and rooms, after reading the shared version
+        queries.measure(() ->
+            given()
+            .when()
+                .get(getApiPath("/stats/utilization"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("seats", is(2))
+                .body("occupied", is(0))
+                .body("floors.name", contains("Test Floor", "Empty Floor"))
+                .body("floors[0].rooms.roomNumber", contains("101", "102"))
+                .body("floors[0].rooms[1].utilization", is(0.0f))
+                .body("floors[1].rooms", empty()))
+            .assertStatementsAtMost(2);
+
+        // Cached until the next write: only the version is read
+        queries.measure(() ->
+            given()
+            .when()
+                .get(getApiPath("/stats/utilization"))
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode()))
+            .assertStatementsAtMost(1);
+
+        given()
+        .when()
+            .put(getApiPath("/employees/" + employeeId + "/assign-seat/" + seat.getId()))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+
+        given()
+        .when()
+            .get(getApiPath("/stats/utilization"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("occupied", is(1))
+            .body("utilization", is(0.5f))
+            .body("floors[0].occupied", is(1))
+            .body("floors[0].rooms[0].seats", is(2))
+            .body("floors[0].rooms[0].occupied", is(1))
+            .body("floors[0].rooms[0].utilization", is(0.5f));
+
+        // A write committed by another node only advances the change log head
+        session.createNativeQuery("UPDATE seats SET employee_id = NULL").executeUpdate();
+        session.createNativeQuery("UPDATE change_log_head SET seq = seq + 1").executeUpdate();
+        commitAndStartNewTransaction();
+
+        given()
+        .when()
+            .get(getApiPath("/stats/utilization"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("occupied", is(0));
+    }
+
+    @Test
+    public void testGetHistory(QueryCounter queries) {
+        OccupancySampler sampler = new OccupancySampler(sessionFactory);
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(10);
+
+        // One grouped query per sample, however many rooms there are
+        queries.measure(() -> sampler.sample(start))
+            .assertStatementsAtMost(1);
+        sampler.sample(start.plusSeconds(20));
+
+        given()
+        .when()
+            .put(getApiPath("/employees/1/assign-seat/1"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode());
+        sampler.sample(start.plusMinutes(1));
+        assertEquals(3, sampler.flush());
+        assertEquals(0, sampler.flush());
+
+        // A later flush merges into the buckets that already exist
+        sampler.sample(start.plusMinutes(1).plusSeconds(30));
+        assertEquals(1, sampler.flush());
+
+        // Only one node samples: the one holding the lease, until it stops renewing it
+        OccupancySampler otherNode = new OccupancySampler(sessionFactory);
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(sampler.acquireLease(now));
+        assertFalse(otherNode.acquireLease(now.plusSeconds(60)));
+        assertTrue(sampler.acquireLease(now.plusSeconds(60)));
+        assertFalse(otherNode.acquireLease(now.plusSeconds(200)));
+        assertTrue(otherNode.acquireLease(now.plusSeconds(241)));
+        assertFalse(sampler.acquireLease(now.plusSeconds(242)));
+
+        // Short ranges are served per minute
+        given()
+            .queryParam("scope", "room")
+            .queryParam("id", 1)
+            .queryParam("from", start.toString())
+            .queryParam("to", start.plusMinutes(5).toString())
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resolution", equalTo("MINUTE"))
+            .body("points.samples", contains(2, 2))
+            .body("points.minOccupied", contains(0, 1))
+            .body("points[1].seats", is(2))
+            .body("points[1].utilization", is(0.5f));
+
+        given()
+            .queryParam("scope", "floor")
+            .queryParam("id", 1)
+            .queryParam("from", start.toString())
+            .queryParam("to", start.plusMinutes(5).toString())
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("points.maxOccupied", contains(0, 1));
+
+        // Longer ranges switch to hours, then days
+        given()
+            .queryParam("from", start.minusDays(3).toString())
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("scope", equalTo("building"))
+            .body("resolution", equalTo("HOUR"))
+            .body("points.samples.sum()", is(4));
+
+        given()
+            .queryParam("from", start.minusYears(1).toString())
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resolution", equalTo("DAY"))
+            .body("points.samples.sum()", is(4));
+
+        // Minutes are only kept for two days, so an old range is served per hour even if short
+        given()
+            .queryParam("from", start.minusDays(3).toString())
+            .queryParam("to", start.minusDays(3).plusHours(1).toString())
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("resolution", equalTo("HOUR"))
+            .body("points", empty());
+
+        // Compaction drops expired minute rollups for the building, the floor and the room
+        sampler.sample(start.minusDays(5));
+        sampler.flush();
+        assertEquals(3, sampler.compact());
+
+        given()
+            .queryParam("scope", "floor")
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+            .queryParam("scope", "desk")
+        .when()
+            .get(getApiPath("/stats/history"))
+        .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
     private void createTestEmployee(String fullName, String occupation) {
         Employee employee = new Employee();
         employee.setFullName(fullName);